@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Ограниченная карта с вытеснением давно не читанных записей (LRU).
+ * Порядок доступа меняется и при чтении, поэтому все операции идут под одним монитором.
+ */
+public final class LruMap<K, V> {
+
+    private final LinkedHashMap<K, V> entries;
+
+    public LruMap(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void remove(K key, V value) {
+        entries.remove(key, value);
+    }
+
+    public synchronized void removeIf(Predicate<V> condition) {
+        entries.values().removeIf(condition);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
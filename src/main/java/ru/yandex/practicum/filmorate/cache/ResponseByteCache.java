@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.FilmLikesChangedEvent;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Готовые к отправке тела ответов GET /films/{id} и GET /films/popular.
+ *
+ * <p>Каждая запись помечена штампом, прочитанным до вызова контроллера, и отдаётся, только пока штамп актуален:
+ * для фильма — версия в хранилище, для популярных — поколение, которое растёт при изменении лайков.
+ * События изменений удаляют затронутые записи сразу, штамп защищает от гонки, когда ответ
+ * собран по старым данным и сохранён уже после события.
+ * Число записей каждого вида ограничено max-entries: при переполнении вытесняется давно не читанная,
+ * устаревшая по штампу запись удаляется при первом же чтении.
+ */
+@Slf4j
+@Component
+public class ResponseByteCache {
+
+    public record Entry(byte[] body, byte[] gzipped, String contentType, String etag, long stamp, Set<Long> filmIds) {
+    }
+
+    private final FilmStorage filmStorage;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final boolean gzip;
+    private final LruMap<Long, Entry> films;
+    private final LruMap<Integer, Entry> popular;
+    private final AtomicLong popularGeneration = new AtomicLong();
+    // Сколько запросов популярных сейчас собирается контроллером
+    private final AtomicInteger popularInFlight = new AtomicInteger();
+
+    public ResponseByteCache(FilmStorage filmStorage, ObjectMapper objectMapper,
+                             @Value("${filmorate.response-cache.enabled:true}") boolean enabled,
+                             @Value("${filmorate.response-cache.gzip:true}") boolean gzip,
+                             @Value("${filmorate.response-cache.max-entries:10000}") int maxEntries) {
+        this.filmStorage = filmStorage;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.gzip = gzip;
+        this.films = new LruMap<>(maxEntries);
+        this.popular = new LruMap<>(maxEntries);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long filmStamp(Long filmId) {
+        return filmStorage.getVersion(filmId);
+    }
+
+    public Entry getFilm(Long filmId) {
+        Entry entry = films.get(filmId);
+        if (entry == null || entry.stamp() == filmStorage.getVersion(filmId)) {
+            return entry;
+        }
+        films.remove(filmId, entry);
+        return null;
+    }
+
+    public void putFilm(Long filmId, long stamp, byte[] body, String contentType, String etag) {
+        films.put(filmId, entry(body, contentType, etag, stamp, Set.of(filmId)));
+    }
+
+    // Число записей фильмов и популярных вместе
+    public int size() {
+        return films.size() + popular.size();
+    }
+
+    // Начало сборки популярных контроллером: возвращает штамп, с которым нужно сохранить ответ
+    public long beginPopular() {
+        popularInFlight.incrementAndGet();
+        return popularGeneration.get();
+    }
+
+    public void endPopular() {
+        popularInFlight.decrementAndGet();
+    }
+
+    public Entry getPopular(int count) {
+        Entry entry = popular.get(count);
+        if (entry == null || entry.stamp() == popularGeneration.get()) {
+            return entry;
+        }
+        popular.remove(count, entry);
+        return null;
+    }
+
+    public void putPopular(int count, long stamp, byte[] body, String contentType, String etag) {
+        Set<Long> filmIds = filmIds(body);
+        if (filmIds != null) {
+            popular.put(count, entry(body, contentType, etag, stamp, filmIds));
+        }
+    }
+
+    // Лайк может поменять любой топ, поэтому устаревают все записи популярных
+    @EventListener
+    public void onFilmLikesChanged(FilmLikesChangedEvent event) {
+        popularGeneration.incrementAndGet();
+        popular.clear();
+    }
+
+    // Изменение фильма затрагивает только его запись и те топы, в которые он входит
+    @EventListener
+    public void onFilmChanged(FilmChangedEvent event) {
+        films.remove(event.filmId());
+        popular.removeIf(entry -> entry.filmIds().contains(event.filmId()));
+        if (popularInFlight.get() > 0) {
+            // Собираемый сейчас топ мог прочитать фильм до изменения
+            popularGeneration.incrementAndGet();
+        }
+    }
+
+    private Entry entry(byte[] body, String contentType, String etag, long stamp, Set<Long> filmIds) {
+        return new Entry(body, gzip ? gzip(body) : null, contentType, etag, stamp, filmIds);
+    }
+
+    // ID фильмов в ответе; null, если ответ не разобрался — тогда он не кэшируется
+    private Set<Long> filmIds(byte[] body) {
+        Set<Long> ids = new HashSet<>();
+        try {
+            for (JsonNode film : objectMapper.readTree(body)) {
+                ids.add(film.path("id").asLong());
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось разобрать ответ популярных фильмов для кэша: {}", e.getMessage());
+            return null;
+        }
+        return Set.copyOf(ids);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2 + 32);
+        try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+            zip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
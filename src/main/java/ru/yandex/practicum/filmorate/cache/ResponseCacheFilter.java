@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Отдаёт GET /films/{id} и GET /films/popular из {@link ResponseByteCache} прямо в поток ответа,
+ * минуя контроллер, сервис и Jackson. При промахе ответ контроллера перехватывается и сохраняется.
+ * Кэшируется только JSON: запросы Smile и CBOR проходят мимо кэша. У одного URL несколько представлений,
+ * поэтому ответы помечаются Vary: Accept — общие кэши не должны отдавать JSON клиенту Smile и наоборот.
+ */
+@Component
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final Pattern FILM_PATH = Pattern.compile("/films/(\\d{1,18})");
+    private static final String POPULAR_PATH = "/films/popular";
+    private static final int DEFAULT_POPULAR_COUNT = 10;
+
+    private final ResponseByteCache cache;
+
+    public ResponseCacheFilter(ResponseByteCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !cache.isEnabled() || !"GET".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        Matcher matcher = FILM_PATH.matcher(path);
+        boolean isPopular = POPULAR_PATH.equals(path);
+        if (!isPopular && !matcher.matches()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept != null && (accept.contains("smile") || accept.contains("cbor"))) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (isPopular) {
+            Integer count = popularCount(request);
+            if (count == null) {
+                chain.doFilter(request, response);
+                return;
+            }
+            ResponseByteCache.Entry hit = cache.getPopular(count);
+            if (hit != null) {
+                send(hit, request, response);
+                return;
+            }
+            long stamp = cache.beginPopular();
+            try {
+                ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+                chain.doFilter(request, wrapper);
+                if (isCacheable(wrapper)) {
+                    cache.putPopular(count, stamp, wrapper.getContentAsByteArray(), wrapper.getContentType(),
+                            wrapper.getHeader(HttpHeaders.ETAG));
+                }
+                wrapper.copyBodyToResponse();
+            } finally {
+                cache.endPopular();
+            }
+            return;
+        }
+
+        Long filmId = Long.valueOf(matcher.group(1));
+        ResponseByteCache.Entry hit = cache.getFilm(filmId);
+        if (hit != null) {
+            send(hit, request, response);
+            return;
+        }
+        // Версия читается до контроллера: если фильм изменится во время запроса, запись сразу устареет
+        long stamp = cache.filmStamp(filmId);
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        if (stamp > 0 && isCacheable(wrapper)) {
+            cache.putFilm(filmId, stamp, wrapper.getContentAsByteArray(), wrapper.getContentType(),
+                    wrapper.getHeader(HttpHeaders.ETAG));
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private static void send(ResponseByteCache.Entry entry, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (entry.etag() != null && new ServletWebRequest(request, response).checkNotModified(entry.etag())) {
+            return;
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(entry.contentType());
+        if (entry.etag() != null) {
+            response.setHeader(HttpHeaders.ETAG, entry.etag());
+        }
+        byte[] body = entry.body();
+        if (entry.gzipped() != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                body = entry.gzipped();
+            }
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean isCacheable(ContentCachingResponseWrapper response) {
+        return response.getStatus() == HttpStatus.OK.value()
+                && response.getContentType() != null
+                && MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(response.getContentType()));
+    }
+
+    // count из запроса; null, если параметр некорректен — такой запрос обработает контроллер
+    private static Integer popularCount(HttpServletRequest request) {
+        String value = request.getParameter("count");
+        if (value == null) {
+            return DEFAULT_POPULAR_COUNT;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Двоичные представления для межсервисного трафика: клиент выбирает формат заголовками
+ * Accept / Content-Type (application/x-jackson-smile или application/cbor), JSON остаётся форматом по умолчанию.
+ * Мапперы собираются из того же билдера, что и JSON, поэтому модули и сериализаторы длительности общие.
+ */
+@Configuration
+public class BinaryFormatsConfig {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+            ObjectProvider<Jackson2ObjectMapperBuilder> builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.getObject().factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+            ObjectProvider<Jackson2ObjectMapperBuilder> builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.getObject().factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.yandex.practicum.filmorate.ratelimit.AdmissionControl;
+import ru.yandex.practicum.filmorate.ratelimit.RateLimitInterceptor;
+import ru.yandex.practicum.filmorate.ratelimit.TokenBucketLimiter;
+
+import java.util.Map;
+
+@Configuration
+public class RateLimitConfig implements WebMvcConfigurer {
+
+    private final boolean enabled;
+    private final double writesPerSecond;
+    private final int writeBurst;
+    private final int maxClients;
+    private final int popularConcurrency;
+    private final int commonFriendsConcurrency;
+
+    public RateLimitConfig(@Value("${filmorate.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${filmorate.rate-limit.writes-per-second:20}") double writesPerSecond,
+                           @Value("${filmorate.rate-limit.write-burst:40}") int writeBurst,
+                           @Value("${filmorate.rate-limit.max-clients:100000}") int maxClients,
+                           @Value("${filmorate.admission.popular:32}") int popularConcurrency,
+                           @Value("${filmorate.admission.common-friends:32}") int commonFriendsConcurrency) {
+        this.enabled = enabled;
+        this.writesPerSecond = writesPerSecond;
+        this.writeBurst = writeBurst;
+        this.maxClients = maxClients;
+        this.popularConcurrency = popularConcurrency;
+        this.commonFriendsConcurrency = commonFriendsConcurrency;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        registry.addInterceptor(new RateLimitInterceptor(
+                new TokenBucketLimiter(writesPerSecond, writeBurst, maxClients),
+                Map.of("GET /films/popular", new AdmissionControl(popularConcurrency),
+                        "GET /users/{id}/friends/common/{otherId}", new AdmissionControl(commonFriendsConcurrency))));
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+/**
+ * Профиль fast-startup включает spring.main.lazy-initialization: сторонние бины (Logbook, конвертеры
+ * форматов и прочая автоконфигурация) создаются при первом обращении. Собственные бины приложения
+ * остаются ранними, чтобы первый запрос не собирал хранилища и сервисы, а планировщик SSE работал сразу.
+ */
+@Configuration
+public class StartupConfig {
+
+    private static final String APPLICATION_PACKAGE = FilmorateApplication.class.getPackageName();
+
+    @Bean
+    static LazyInitializationExcludeFilter applicationBeansEager() {
+        return (beanName, definition, beanType) -> beanType.getPackageName().startsWith(APPLICATION_PACKAGE);
+    }
+}
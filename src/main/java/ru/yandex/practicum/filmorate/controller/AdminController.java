@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.AggregateRebuildReport;
+import ru.yandex.practicum.filmorate.model.FriendGraphStats;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FriendGraphService;
+
+@RestController
+@Slf4j
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final FriendGraphService friendGraphService;
+    private final FilmService filmService;
+
+    public AdminController(FriendGraphService friendGraphService, FilmService filmService) {
+        this.friendGraphService = friendGraphService;
+        this.filmService = filmService;
+    }
+
+    // Статистика графа дружбы: распределение степеней, компоненты связности, кластеризация
+    @GetMapping("/graph/stats")
+    public FriendGraphStats getFriendGraphStats() {
+        log.info("Запрос статистики графа дружбы");
+        return friendGraphService.getStats();
+    }
+
+    // Пересчёт производных индексов лайков со сверкой и исправлением расхождений
+    @PostMapping("/aggregates/rebuild")
+    public AggregateRebuildReport rebuildAggregates() {
+        log.info("Запрос на пересчёт производных индексов лайков");
+        return filmService.rebuildAggregates();
+    }
+}
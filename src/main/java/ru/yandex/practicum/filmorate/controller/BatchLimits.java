@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.List;
+
+final class BatchLimits {
+
+    // Максимум ID в одном пакетном запросе
+    static final int MAX_IDS = 500;
+    // Максимум записей в подборках вроде популярных и трендовых фильмов
+    static final int MAX_COUNT = 500;
+
+    private BatchLimits() {
+    }
+
+    static void check(List<Long> ids) {
+        if (ids.size() > MAX_IDS) {
+            throw new ValidationException("В одном запросе можно получить не более " + MAX_IDS + " записей");
+        }
+    }
+
+    static void checkCount(int count) {
+        if (count <= 0 || count > MAX_COUNT) {
+            throw new ValidationException("Параметр count должен быть от 1 до " + MAX_COUNT);
+        }
+    }
+}
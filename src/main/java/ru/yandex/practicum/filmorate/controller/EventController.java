@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.event.EventStreamHub;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.List;
+
+@RestController
+@Slf4j
+@RequestMapping("/events")
+public class EventController {
+
+    private final EventStreamHub eventStreamHub;
+    private final UserService userService;
+
+    public EventController(EventStreamHub eventStreamHub, UserService userService) {
+        this.eventStreamHub = eventStreamHub;
+        this.userService = userService;
+    }
+
+    // Поток изменений лайков указанных фильмов и списка друзей пользователя
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) List<Long> filmIds,
+                             @RequestParam(required = false) Long userId) {
+        if ((filmIds == null || filmIds.isEmpty()) && userId == null) {
+            throw new ValidationException("Нужно указать filmIds и/или userId");
+        }
+        if (userId != null) {
+            userService.getUserById(userId);
+        }
+        log.info("Подписка на события: фильмы {}, пользователь {}", filmIds, userId);
+        return eventStreamHub.subscribe(filmIds == null ? List.of() : filmIds, userId);
+    }
+}
@@ -2,10 +2,17 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.TrendWindow;
 
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 @RestController
 @Slf4j
@@ -24,24 +31,44 @@ public class FilmController {
         return filmService.findAll();
     }
 
+    // Пакетное получение фильмов: GET /films?ids=1,2,3
+    @GetMapping(params = "ids")
+    public Collection<Film> findByIds(@RequestParam List<Long> ids) {
+        log.info("Пакетный запрос {} фильмов", ids.size());
+        BatchLimits.check(ids);
+        return filmService.getByIds(ids);
+    }
+
     @PostMapping
     public Film create(@RequestBody Film film) {
-        log.debug("Начало создания фильма с названием: {}", film.getName());
+        log.debug("Начало создания фильма с названием: {}", film.name());
         return filmService.create(film);
     }
 
     @PutMapping
     public Film update(@RequestBody Film film) {
-        log.debug("Начало обновления фильма с ID: {}", film.getId());
+        log.debug("Начало обновления фильма с ID: {}", film.id());
         return filmService.update(film);
     }
 
     @GetMapping("/{id}")
-    public Film getFilmById(@PathVariable Long id) {
+    public Film getFilmById(@PathVariable Long id, WebRequest request) {
         log.info("Запрос на получение фильма с ID: {}", id);
+        // При совпадении If-None-Match отвечаем 304, не загружая фильм
+        String etag = filmService.getFilmEtag(id);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
         return filmService.getById(id);
     }
 
+    // Удаление фильма; лайки и индексы очищаются в фоне
+    @DeleteMapping("/{id}")
+    public void deleteFilm(@PathVariable Long id) {
+        log.info("Запрос на удаление фильма с ID: {}", id);
+        filmService.deleteFilm(id);
+    }
+
     // Лайк фильма
     @PutMapping("/{id}/like/{userId}")
     public void addLike(@PathVariable Long id, @PathVariable Long userId) {
@@ -58,8 +85,42 @@ public class FilmController {
 
     // Получение популярных фильмов
     @GetMapping("/popular")
-    public Collection<Film> getPopularFilms(@RequestParam(defaultValue = "10", required = false) Integer count) {
+    public Collection<Film> getPopularFilms(@RequestParam(defaultValue = "10", required = false) Integer count,
+                                            WebRequest request) {
         log.info("Запрос на получение первых {} популярных фильмов", count);
+        BatchLimits.checkCount(count);
+        if (request.checkNotModified(filmService.getTopFilmsEtag(count))) {
+            return null;
+        }
         return filmService.getTopFilms(count);
     }
-}
\ No newline at end of file
+
+    // Получение фильмов, популярных за последний час, сутки или неделю
+    @GetMapping("/trending")
+    public Collection<Film> getTrendingFilms(@RequestParam(defaultValue = "24h") String window,
+                                             @RequestParam(defaultValue = "10") Integer count) {
+        log.info("Запрос на получение {} трендовых фильмов за окно {}", count, window);
+        BatchLimits.checkCount(count);
+        return filmService.getTrendingFilms(TrendWindow.fromParam(window), count);
+    }
+
+    // Поиск фильмов по названию и описанию
+    @GetMapping("/search")
+    public Collection<Film> search(@RequestParam String query,
+                                   @RequestParam(defaultValue = "title,description") List<String> by) {
+        log.info("Поиск фильмов по запросу '{}' в полях {}", query, by);
+        return filmService.search(query, parseSearchFields(by));
+    }
+
+    private Set<FilmSearchIndex.Field> parseSearchFields(List<String> by) {
+        Set<FilmSearchIndex.Field> fields = EnumSet.noneOf(FilmSearchIndex.Field.class);
+        for (String value : by) {
+            switch (value.trim().toLowerCase()) {
+                case "title" -> fields.add(FilmSearchIndex.Field.TITLE);
+                case "description" -> fields.add(FilmSearchIndex.Field.DESCRIPTION);
+                default -> throw new ValidationException("Неизвестное поле поиска: " + value);
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.ProfilingStatus;
+import ru.yandex.practicum.filmorate.service.ProfilingService;
+
+/**
+ * Запись JFR по запросу. Запись содержит системные свойства и переменные окружения процесса,
+ * поэтому контроллер создаётся только при filmorate.profiling.enabled=true, а по умолчанию путей нет (404).
+ */
+@RestController
+@Slf4j
+@RequestMapping("/admin/profiling")
+@ConditionalOnProperty(name = "filmorate.profiling.enabled", havingValue = "true")
+public class ProfilingController {
+
+    private final ProfilingService profilingService;
+
+    public ProfilingController(ProfilingService profilingService) {
+        this.profilingService = profilingService;
+    }
+
+    // Запуск записи JFR: POST /admin/profiling/start?durationSeconds=60&settings=profile
+    @PostMapping("/start")
+    public ProfilingStatus startProfiling(@RequestParam(defaultValue = "60") long durationSeconds,
+                                          @RequestParam(defaultValue = "profile") String settings) {
+        log.info("Запрос на запуск записи JFR на {} с", durationSeconds);
+        return profilingService.start(durationSeconds, settings);
+    }
+
+    @GetMapping
+    public ProfilingStatus getProfilingStatus() {
+        return profilingService.getStatus();
+    }
+
+    // Остановка записи JFR; ответ — файл .jfr для JDK Mission Control или jfr print
+    @PostMapping("/stop")
+    public ResponseEntity<byte[]> stopProfiling() {
+        log.info("Запрос на остановку записи JFR");
+        byte[] recording = profilingService.stop();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("filmorate.jfr").build().toString())
+                .body(recording);
+    }
+}
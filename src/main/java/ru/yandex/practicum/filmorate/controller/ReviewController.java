@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.service.ReviewService;
+
+import java.util.List;
+
+@RestController
+@Slf4j
+@RequestMapping("/reviews")
+public class ReviewController {
+
+    private final ReviewService reviewService;
+
+    public ReviewController(ReviewService reviewService) {
+        this.reviewService = reviewService;
+    }
+
+    @PostMapping
+    public Review create(@RequestBody Review review) {
+        log.info("Создание отзыва пользователя {} на фильм {}", review.userId(), review.filmId());
+        return reviewService.create(review);
+    }
+
+    @PutMapping
+    public Review update(@RequestBody Review review) {
+        log.info("Обновление отзыва с ID {}", review.reviewId());
+        return reviewService.update(review);
+    }
+
+    @DeleteMapping("/{id}")
+    public void delete(@PathVariable Long id) {
+        log.info("Запрос на удаление отзыва с ID {}", id);
+        reviewService.delete(id);
+    }
+
+    @GetMapping("/{id}")
+    public Review getById(@PathVariable Long id) {
+        log.info("Запрос на получение отзыва с ID {}", id);
+        return reviewService.getById(id);
+    }
+
+    // Отзывы по убыванию полезности: GET /reviews?filmId=1&count=10; без filmId — по всем фильмам
+    @GetMapping
+    public List<Review> getReviews(@RequestParam(required = false) Long filmId,
+                                   @RequestParam(defaultValue = "10") int count) {
+        log.info("Запрос {} самых полезных отзывов фильма {}", count, filmId);
+        BatchLimits.checkCount(count);
+        return reviewService.getReviews(filmId, count);
+    }
+
+    @PutMapping("/{id}/like/{userId}")
+    public void addLike(@PathVariable Long id, @PathVariable Long userId) {
+        log.info("Пользователь с ID {} ставит лайк отзыву с ID {}", userId, id);
+        reviewService.addLike(id, userId);
+    }
+
+    @PutMapping("/{id}/dislike/{userId}")
+    public void addDislike(@PathVariable Long id, @PathVariable Long userId) {
+        log.info("Пользователь с ID {} ставит дизлайк отзыву с ID {}", userId, id);
+        reviewService.addDislike(id, userId);
+    }
+
+    @DeleteMapping("/{id}/like/{userId}")
+    public void removeLike(@PathVariable Long id, @PathVariable Long userId) {
+        log.info("Пользователь с ID {} удаляет лайк у отзыва с ID {}", userId, id);
+        reviewService.removeLike(id, userId);
+    }
+
+    @DeleteMapping("/{id}/dislike/{userId}")
+    public void removeDislike(@PathVariable Long id, @PathVariable Long userId) {
+        log.info("Пользователь с ID {} удаляет дизлайк у отзыва с ID {}", userId, id);
+        reviewService.removeDislike(id, userId);
+    }
+}
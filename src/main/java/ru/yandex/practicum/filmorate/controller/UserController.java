@@ -2,10 +2,16 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.FriendshipPath;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FeedService;
+import ru.yandex.practicum.filmorate.service.FriendGraphService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
+import java.util.List;
 
 @RestController
 @Slf4j
@@ -13,9 +19,13 @@ import java.util.Collection;
 public class UserController {
 
     private final UserService userService;
+    private final FriendGraphService friendGraphService;
+    private final FeedService feedService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FriendGraphService friendGraphService, FeedService feedService) {
         this.userService = userService;
+        this.friendGraphService = friendGraphService;
+        this.feedService = feedService;
     }
 
     @GetMapping
@@ -24,15 +34,23 @@ public class UserController {
         return userService.findAllUsers();
     }
 
+    // Пакетное получение пользователей: GET /users?ids=1,2,3
+    @GetMapping(params = "ids")
+    public Collection<User> findUsersByIds(@RequestParam List<Long> ids) {
+        log.info("Пакетный запрос {} пользователей", ids.size());
+        BatchLimits.check(ids);
+        return userService.getUsersByIds(ids);
+    }
+
     @PostMapping
     public User createUser(@RequestBody User user) {
-        log.info("Создание пользователя с email {}", user.getEmail());
+        log.info("Создание пользователя с email {}", user.email());
         return userService.createUser(user);
     }
 
     @PutMapping
     public User updateUser(@RequestBody User user) {
-        log.info("Обновление пользователя с id {}", user.getId());
+        log.info("Обновление пользователя с id {}", user.id());
         return userService.updateUser(user);
     }
 
@@ -42,6 +60,13 @@ public class UserController {
         return userService.getUserById(id);
     }
 
+    // Удаление пользователя; друзья и лайки очищаются в фоне
+    @DeleteMapping("/{id}")
+    public void deleteUser(@PathVariable Long id) {
+        log.info("Запрос на удаление пользователя с ID: {}", id);
+        userService.deleteUser(id);
+    }
+
     // Добавление в друзья
     @PutMapping("/{id}/friends/{friendId}")
     public void addFriend(@PathVariable Long id, @PathVariable Long friendId) {
@@ -58,8 +83,12 @@ public class UserController {
 
     // Получение списка друзей
     @GetMapping("/{id}/friends")
-    public Collection<User> getFriends(@PathVariable Long id) {
+    public Collection<User> getFriends(@PathVariable Long id, WebRequest request) {
         log.info("Запрос на получение списка друзей пользователя с ID {}", id);
+        String etag = userService.getFriendsEtag(id);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
         return userService.getFriends(id);
     }
 
@@ -69,4 +98,19 @@ public class UserController {
         log.info("Запрос на получение общих друзей для пользователей с ID {} и {}", id, otherId);
         return userService.getCommonFriends(id, otherId);
     }
-}
\ No newline at end of file
+
+    // Кратчайшая цепочка друзей между пользователями
+    @GetMapping("/{id}/distance/{otherId}")
+    public FriendshipPath getDistance(@PathVariable Long id, @PathVariable Long otherId) {
+        log.info("Запрос расстояния между пользователями с ID {} и {}", id, otherId);
+        return friendGraphService.getDistance(id, otherId);
+    }
+
+    // Лента последних лайков и изменений дружбы пользователя и его друзей
+    @GetMapping("/{id}/feed")
+    public List<FeedEvent> getFeed(@PathVariable Long id, @RequestParam(defaultValue = "20") int count) {
+        log.info("Запрос ленты пользователя с ID {}", id);
+        BatchLimits.checkCount(count);
+        return feedService.getFeed(id, count);
+    }
+}
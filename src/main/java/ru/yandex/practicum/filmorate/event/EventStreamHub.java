@@ -0,0 +1,205 @@
+package ru.yandex.practicum.filmorate.event;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рассылка изменений лайков и дружбы подписчикам по Server-Sent Events.
+ * Обработчики событий только складывают изменения в очередь подписчика и никогда не блокируются;
+ * отправка идёт раз в такт, изменения лайков одного фильма за такт схлопываются в одно событие.
+ * Подписчик, не успевающий забирать события, отключается.
+ */
+@Slf4j
+@Component
+public class EventStreamHub {
+
+    // Сколько тактов подряд отправка может не завершаться, прежде чем подписчик будет отключён
+    private static final int MAX_STALLED_TICKS = 20;
+
+    private final long emitterTimeoutMillis;
+    private final int maxPendingEvents;
+    private final Map<Long, Set<Subscriber>> filmSubscribers = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscriber>> userSubscribers = new ConcurrentHashMap<>();
+    private final Set<Subscriber> dirty = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    public EventStreamHub(@Value("${filmorate.sse.timeout-millis:1800000}") long emitterTimeoutMillis,
+                          @Value("${filmorate.sse.max-pending-events:256}") int maxPendingEvents) {
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+        this.maxPendingEvents = maxPendingEvents;
+    }
+
+    public SseEmitter subscribe(Collection<Long> filmIds, Long userId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, List.copyOf(filmIds), userId);
+        for (Long filmId : subscriber.filmIds) {
+            filmSubscribers.compute(filmId, (id, subscribers) -> with(subscribers, subscriber));
+        }
+        if (userId != null) {
+            userSubscribers.compute(userId, (id, subscribers) -> with(subscribers, subscriber));
+        }
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        return emitter;
+    }
+
+    @EventListener
+    public void onFilmLikesChanged(FilmLikesChangedEvent event) {
+        Set<Subscriber> subscribers = filmSubscribers.get(event.filmId());
+        if (subscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            LikeUpdate update = new LikeUpdate(event.filmId(), event.delta(), event.likes());
+            subscriber.pendingLikes.merge(event.filmId(), update,
+                    (old, current) -> new LikeUpdate(current.filmId(), old.delta() + current.delta(), current.likes()));
+            dirty.add(subscriber);
+        }
+    }
+
+    @EventListener
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        enqueueFriendship(event.userId(), event);
+        enqueueFriendship(event.friendId(), event);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.sse.tick-millis:250}")
+    public void flush() {
+        for (Subscriber subscriber : dirty) {
+            dirty.remove(subscriber);
+            if (!subscriber.sending.compareAndSet(false, true)) {
+                // Предыдущая отправка ещё не завершилась — заберём изменения в следующий такт
+                if (subscriber.stalledTicks.incrementAndGet() > MAX_STALLED_TICKS) {
+                    log.warn("Подписчик не успевает получать события и будет отключён");
+                    drop(subscriber);
+                } else {
+                    dirty.add(subscriber);
+                }
+                continue;
+            }
+            subscriber.stalledTicks.set(0);
+            senders.execute(() -> send(subscriber));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    private void enqueueFriendship(Long userId, FriendshipChangedEvent event) {
+        Set<Subscriber> subscribers = userSubscribers.get(userId);
+        if (subscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.pendingFriendshipCount.incrementAndGet() > maxPendingEvents) {
+                log.warn("Подписчик на события пользователя {} не успевает их получать и будет отключён", userId);
+                drop(subscriber);
+                continue;
+            }
+            subscriber.pendingFriendships.add(event);
+            dirty.add(subscriber);
+        }
+    }
+
+    private void send(Subscriber subscriber) {
+        try {
+            List<LikeUpdate> likes = new ArrayList<>(subscriber.pendingLikes.size());
+            for (Long filmId : subscriber.pendingLikes.keySet()) {
+                LikeUpdate update = subscriber.pendingLikes.remove(filmId);
+                if (update != null) {
+                    likes.add(update);
+                }
+            }
+            for (LikeUpdate update : likes) {
+                subscriber.emitter.send(SseEmitter.event().name("likes").data(update, MediaType.APPLICATION_JSON));
+            }
+            FriendshipChangedEvent friendship;
+            while ((friendship = subscriber.pendingFriendships.poll()) != null) {
+                subscriber.pendingFriendshipCount.decrementAndGet();
+                subscriber.emitter.send(SseEmitter.event().name("friends")
+                        .data(friendship, MediaType.APPLICATION_JSON));
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.info("Подписчик отключился: {}", e.getMessage());
+            drop(subscriber);
+        } finally {
+            subscriber.sending.set(false);
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        unsubscribe(subscriber);
+        subscriber.emitter.complete();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        dirty.remove(subscriber);
+        for (Long filmId : subscriber.filmIds) {
+            filmSubscribers.computeIfPresent(filmId, (id, subscribers) -> without(subscribers, subscriber));
+        }
+        if (subscriber.userId != null) {
+            userSubscribers.computeIfPresent(subscriber.userId, (id, subscribers) -> without(subscribers, subscriber));
+        }
+    }
+
+    // Добавление внутри compute: отписка не может удалить множество между его получением и добавлением
+    private static Set<Subscriber> with(Set<Subscriber> subscribers, Subscriber subscriber) {
+        Set<Subscriber> result = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+        result.add(subscriber);
+        return result;
+    }
+
+    // Пустое множество удаляется из карты, иначе каждый когда-либо подписанный ID оставался бы в ней навсегда
+    private static Set<Subscriber> without(Set<Subscriber> subscribers, Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        return subscribers.isEmpty() ? null : subscribers;
+    }
+
+    // Число фильмов и пользователей, на которые есть хотя бы одна подписка
+    public int getSubscribedIdCount() {
+        return filmSubscribers.size() + userSubscribers.size();
+    }
+
+    public record LikeUpdate(Long filmId, int delta, int likes) {
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final List<Long> filmIds;
+        private final Long userId;
+        private final Map<Long, LikeUpdate> pendingLikes = new ConcurrentHashMap<>();
+        private final Queue<FriendshipChangedEvent> pendingFriendships = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingFriendshipCount = new AtomicInteger();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicInteger stalledTicks = new AtomicInteger();
+
+        Subscriber(SseEmitter emitter, List<Long> filmIds, Long userId) {
+            this.emitter = emitter;
+            this.filmIds = filmIds;
+            this.userId = userId;
+        }
+    }
+}
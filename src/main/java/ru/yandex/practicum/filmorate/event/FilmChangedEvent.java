@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.event;
+
+/**
+ * Данные фильма изменены (PUT /films) или фильм удалён (DELETE /films/{id}).
+ */
+public record FilmChangedEvent(Long filmId) {
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.event;
+
+/**
+ * Лайк фильма поставлен (delta = 1) или снят (delta = -1).
+ */
+public record FilmLikesChangedEvent(Long filmId, Long userId, int delta, int likes) {
+}
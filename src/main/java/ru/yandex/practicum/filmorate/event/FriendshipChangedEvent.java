@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.event;
+
+/**
+ * Пользователи userId и friendId стали друзьями (added = true) или перестали ими быть.
+ */
+public record FriendshipChangedEvent(Long userId, Long friendId, boolean added) {
+}
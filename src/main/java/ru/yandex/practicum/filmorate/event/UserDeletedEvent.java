@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.event;
+
+/**
+ * Пользователь удалён; публикуется из фоновой очистки, слушатели убирают его лайки и прочие ссылки.
+ */
+public record UserDeletedEvent(Long userId) {
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.exception;
+
+/**
+ * Тело ответа с ошибкой: {"error": "..."}.
+ */
+public record ErrorResponse(String error) {
+}
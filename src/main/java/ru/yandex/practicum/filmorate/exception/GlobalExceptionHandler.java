@@ -1,36 +1,72 @@
 package ru.yandex.practicum.filmorate.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.yandex.practicum.filmorate.cache.LruMap;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    // Постоянных сообщений немного; место под сообщения, повторяющие ввод клиента, освобождается по LRU
+    private static final int MAX_CACHED_RESPONSES = 256;
+
+    // Готовые неизменяемые ответы по статусу и сообщению, чтобы не собирать тело на каждую ошибку.
+    // Сообщения с числами (ID, лимиты) собираются заново: они почти не повторяются и вытесняли бы остальные
+    private final Map<HttpStatus, LruMap<String, ResponseEntity<ErrorResponse>>> cachedResponses =
+            new ConcurrentHashMap<>();
+
     // Обработка ошибок "не найдено" 404
     @ExceptionHandler(NotFoundException.class)
-    public ResponseEntity<Map<String, String>> handleNotFound(NotFoundException e) {
-        Map<String, String> errorBody = new HashMap<>();
-        errorBody.put("error", e.getMessage());
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorBody);
+    public ResponseEntity<ErrorResponse> handleNotFound(NotFoundException e) {
+        return response(HttpStatus.NOT_FOUND, e.getMessage());
     }
 
     // Обработка ошибок валидации 400
     @ExceptionHandler(ValidationException.class)
-    public ResponseEntity<Map<String, String>> handleValidation(ValidationException e) {
-        Map<String, String> errorBody = new HashMap<>();
-        errorBody.put("error", e.getMessage());
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorBody);
+    public ResponseEntity<ErrorResponse> handleValidation(ValidationException e) {
+        return response(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+
+    // Превышен лимит запросов 429 или сервис перегружен 503; ответ не кэшируется из-за Retry-After
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorResponse> handleTooManyRequests(TooManyRequestsException e) {
+        return ResponseEntity.status(e.isOverloaded() ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new ErrorResponse(e.getMessage()));
     }
 
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<Map<String, String>> handleOtherExceptions(Exception e) {
-        Map<String, String> errorBody = new HashMap<>();
-        errorBody.put("error", e.getMessage());
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorBody);
+    public ResponseEntity<ErrorResponse> handleOtherExceptions(Exception e) {
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse(e.getMessage()));
+    }
+
+    private ResponseEntity<ErrorResponse> response(HttpStatus status, String message) {
+        if (message == null || containsDigit(message)) {
+            return ResponseEntity.status(status).body(new ErrorResponse(message));
+        }
+        LruMap<String, ResponseEntity<ErrorResponse>> byMessage =
+                cachedResponses.computeIfAbsent(status, s -> new LruMap<>(MAX_CACHED_RESPONSES));
+        ResponseEntity<ErrorResponse> cached = byMessage.get(message);
+        if (cached != null) {
+            return cached;
+        }
+        ResponseEntity<ErrorResponse> created = ResponseEntity.status(status).body(new ErrorResponse(message));
+        byMessage.put(message, created);
+        return created;
+    }
+
+    private static boolean containsDigit(String message) {
+        for (int i = 0; i < message.length(); i++) {
+            if (Character.isDigit(message.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
     }
 }
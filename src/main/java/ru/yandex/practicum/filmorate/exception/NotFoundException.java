@@ -1,7 +1,11 @@
 package ru.yandex.practicum.filmorate.exception;
 
+/**
+ * Доменное исключение без стектрейса: бросается на горячих путях (несуществующие ID),
+ * а трасса для ответа 404 не нужна.
+ */
 public class NotFoundException extends RuntimeException {
     public NotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.exception;
+
+import lombok.Getter;
+
+/**
+ * Клиент превысил лимит запросов (429) или сервис перегружен (503).
+ * Через retryAfterSeconds клиенту сообщается, когда имеет смысл повторить запрос.
+ */
+@Getter
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+    private final boolean overloaded;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds, boolean overloaded) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.overloaded = overloaded;
+    }
+}
@@ -1,7 +1,11 @@
 package ru.yandex.practicum.filmorate.exception;
 
+/**
+ * Доменное исключение без стектрейса: ошибка валидации описывается сообщением,
+ * трасса для ответа 400 не нужна.
+ */
 public class ValidationException extends RuntimeException {
     public ValidationException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
-}
\ No newline at end of file
+}
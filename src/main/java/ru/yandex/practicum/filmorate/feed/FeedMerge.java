@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Слияние k упорядоченных от нового к старому списков событий через кучу курсоров.
+ * Работа — O(limit · log k): каждый список читается только до тех пор, пока нужны события.
+ */
+public final class FeedMerge {
+
+    private FeedMerge() {
+    }
+
+    /**
+     * Возвращает до limit самых новых событий, прошедших фильтр. Событие с одним eventId,
+     * попавшее в несколько источников, выдаётся один раз.
+     */
+    public static List<FeedEvent> newest(List<FeedEvent[]> sources, int limit, Predicate<FeedEvent> filter) {
+        PriorityQueue<Cursor> heap = new PriorityQueue<>(Math.max(1, sources.size()),
+                (a, b) -> Long.compare(b.current().eventId(), a.current().eventId()));
+        for (FeedEvent[] source : sources) {
+            if (source.length > 0) {
+                heap.add(new Cursor(source));
+            }
+        }
+        List<FeedEvent> result = new ArrayList<>(Math.min(limit, 64));
+        long lastId = Long.MIN_VALUE;
+        while (!heap.isEmpty() && result.size() < limit) {
+            Cursor cursor = heap.poll();
+            FeedEvent event = cursor.current();
+            if (event.eventId() != lastId) {
+                lastId = event.eventId();
+                if (filter.test(event)) {
+                    result.add(event);
+                }
+            }
+            if (cursor.advance()) {
+                heap.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    private static final class Cursor {
+        private final FeedEvent[] events;
+        private int position;
+
+        Cursor(FeedEvent[] events) {
+            this.events = events;
+        }
+
+        FeedEvent current() {
+            return events[position];
+        }
+
+        boolean advance() {
+            return ++position < events.length;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+
+/**
+ * Кольцевой буфер последних событий фиксированной ёмкости.
+ * Добавление за O(1) затирает самое старое событие, поэтому память на буфер не растёт.
+ */
+public final class FeedRingBuffer {
+
+    private final FeedEvent[] slots;
+    // Сколько событий добавлено за всё время; следующее ляжет в слот head % capacity
+    private long head;
+
+    public FeedRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ёмкость буфера должна быть положительной");
+        }
+        this.slots = new FeedEvent[capacity];
+    }
+
+    public synchronized void append(FeedEvent event) {
+        slots[(int) (head % slots.length)] = event;
+        head++;
+    }
+
+    // Копия содержимого от нового события к старому
+    public synchronized FeedEvent[] newestFirst() {
+        int size = (int) Math.min(head, slots.length);
+        FeedEvent[] copy = new FeedEvent[size];
+        for (int i = 0; i < size; i++) {
+            copy[i] = slots[(int) ((head - 1 - i) % slots.length)];
+        }
+        return copy;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
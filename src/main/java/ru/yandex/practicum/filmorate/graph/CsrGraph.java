@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.graph;
+
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Неизменяемый снимок графа дружбы в формате CSR (compressed sparse row).
+ * Вершины — индексы 0..n-1 в отсортированном массиве ID пользователей,
+ * соседи вершины v лежат в targets[offsets[v]..offsets[v+1]) по возрастанию.
+ * Граф неориентированный: дружба, записанная хотя бы у одного из пользователей, даёт ребро в обе стороны.
+ */
+public final class CsrGraph {
+
+    private final long[] ids;
+    private final int[] offsets;
+    private final int[] targets;
+
+    private CsrGraph(long[] ids, int[] offsets, int[] targets) {
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    public static CsrGraph build(Collection<User> users) {
+        // Хранилище может отдавать живое представление: размер и оба прохода берём из одной копии
+        List<User> snapshot = List.copyOf(users);
+        long[] ids = new long[snapshot.size()];
+        int n = 0;
+        for (User user : snapshot) {
+            ids[n++] = user.id();
+        }
+        Arrays.sort(ids);
+
+        // Рёбра упаковываются в long: старшие 32 бита — меньший индекс, младшие — больший
+        long[] edges = new long[16];
+        int edgeCount = 0;
+        for (User user : snapshot) {
+            int from = Arrays.binarySearch(ids, user.id());
+            for (Long friendId : user.friends()) {
+                int to = Arrays.binarySearch(ids, friendId);
+                if (to < 0 || to == from) {
+                    continue;
+                }
+                if (edgeCount == edges.length) {
+                    edges = Arrays.copyOf(edges, edgeCount * 2);
+                }
+                edges[edgeCount++] = ((long) Math.min(from, to) << 32) | Math.max(from, to);
+            }
+        }
+        Arrays.sort(edges, 0, edgeCount);
+
+        int[] degrees = new int[n + 1];
+        long previous = -1;
+        int unique = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            if (edges[i] == previous) {
+                continue;
+            }
+            previous = edges[i];
+            edges[unique++] = previous;
+            degrees[(int) (previous >>> 32)]++;
+            degrees[(int) previous]++;
+        }
+
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] = offsets[v] + degrees[v];
+        }
+        int[] targets = new int[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < unique; i++) {
+            int a = (int) (edges[i] >>> 32);
+            int b = (int) edges[i];
+            targets[fill[a]++] = b;
+            targets[fill[b]++] = a;
+        }
+        for (int v = 0; v < n; v++) {
+            Arrays.sort(targets, offsets[v], offsets[v + 1]);
+        }
+        return new CsrGraph(ids, offsets, targets);
+    }
+
+    public int vertexCount() {
+        return ids.length;
+    }
+
+    public long edgeCount() {
+        return targets.length / 2;
+    }
+
+    // Индекс вершины пользователя или -1, если пользователя нет в снимке
+    public int indexOf(long userId) {
+        int index = Arrays.binarySearch(ids, userId);
+        return index < 0 ? -1 : index;
+    }
+
+    public long idOf(int vertex) {
+        return ids[vertex];
+    }
+
+    public int degree(int vertex) {
+        return offsets[vertex + 1] - offsets[vertex];
+    }
+
+    public int firstEdge(int vertex) {
+        return offsets[vertex];
+    }
+
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    public boolean hasEdge(int from, int to) {
+        return Arrays.binarySearch(targets, offsets[from], offsets[from + 1], to) >= 0;
+    }
+}
@@ -0,0 +1,213 @@
+package ru.yandex.practicum.filmorate.graph;
+
+import ru.yandex.practicum.filmorate.model.FriendGraphStats;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Глобальная статистика CSR-графа. Вершины делятся на диапазоны, которые обрабатываются задачами fork-join;
+ * все промежуточные данные — примитивные массивы, без упаковки в Integer/Long.
+ */
+public final class GraphStatistics {
+
+    // Диапазон вершин, который задача обрабатывает сама, не разделяя дальше
+    private static final int PARTITION_SIZE = 1024;
+
+    private GraphStatistics() {
+    }
+
+    public static FriendGraphStats compute(CsrGraph graph, ForkJoinPool pool) {
+        int n = graph.vertexCount();
+        if (n == 0) {
+            return new FriendGraphStats(0, 0, 0, 0, Map.of(), 0, 0, 0, 0, 0);
+        }
+        // Первый проход: степени, треугольники и объединение компонент связности
+        AtomicIntegerArray parent = new AtomicIntegerArray(n);
+        for (int v = 0; v < n; v++) {
+            parent.set(v, v);
+        }
+        Partial total = pool.invoke(new VertexTask(graph, parent, 0, n));
+
+        // Второй проход: размеры компонент по найденным корням
+        AtomicIntegerArray componentSizes = new AtomicIntegerArray(n);
+        pool.invoke(new ComponentSizeTask(parent, componentSizes, 0, n));
+        int components = 0;
+        int largest = 0;
+        for (int v = 0; v < n; v++) {
+            int size = componentSizes.get(v);
+            if (size > 0) {
+                components++;
+                largest = Math.max(largest, size);
+            }
+        }
+
+        Map<Integer, Integer> distribution = new LinkedHashMap<>();
+        for (int degree = 0; degree < total.degreeHistogram.length; degree++) {
+            if (total.degreeHistogram[degree] > 0) {
+                distribution.put(degree, total.degreeHistogram[degree]);
+            }
+        }
+        int isolated = total.degreeHistogram.length > 0 ? total.degreeHistogram[0] : 0;
+        return new FriendGraphStats(
+                n,
+                graph.edgeCount(),
+                2.0 * graph.edgeCount() / n,
+                total.degreeHistogram.length - 1,
+                distribution,
+                components,
+                largest,
+                isolated,
+                total.clusteredVertices == 0 ? 0 : total.localClusteringSum / total.clusteredVertices,
+                total.triples == 0 ? 0 : (double) total.closedTriples / total.triples);
+    }
+
+    // Поиск корня с сокращением пути вдвое; безопасен при параллельных объединениях
+    private static int find(AtomicIntegerArray parent, int x) {
+        while (true) {
+            int p = parent.get(x);
+            if (p == x) {
+                return x;
+            }
+            int grandParent = parent.get(p);
+            if (p != grandParent) {
+                parent.compareAndSet(x, p, grandParent);
+            }
+            x = p;
+        }
+    }
+
+    // Корень с большим индексом подвешивается к меньшему, поэтому циклы невозможны
+    private static void union(AtomicIntegerArray parent, int a, int b) {
+        while (true) {
+            int rootA = find(parent, a);
+            int rootB = find(parent, b);
+            if (rootA == rootB) {
+                return;
+            }
+            int high = Math.max(rootA, rootB);
+            int low = Math.min(rootA, rootB);
+            if (parent.compareAndSet(high, high, low)) {
+                return;
+            }
+        }
+    }
+
+    private static final class Partial {
+        private int[] degreeHistogram = new int[0];
+        private double localClusteringSum;
+        private long clusteredVertices;
+        private long closedTriples;
+        private long triples;
+
+        void addDegree(int degree) {
+            if (degree >= degreeHistogram.length) {
+                degreeHistogram = Arrays.copyOf(degreeHistogram, degree + 1);
+            }
+            degreeHistogram[degree]++;
+        }
+
+        Partial merge(Partial other) {
+            if (other.degreeHistogram.length > degreeHistogram.length) {
+                degreeHistogram = Arrays.copyOf(degreeHistogram, other.degreeHistogram.length);
+            }
+            for (int i = 0; i < other.degreeHistogram.length; i++) {
+                degreeHistogram[i] += other.degreeHistogram[i];
+            }
+            localClusteringSum += other.localClusteringSum;
+            clusteredVertices += other.clusteredVertices;
+            closedTriples += other.closedTriples;
+            triples += other.triples;
+            return this;
+        }
+    }
+
+    private static final class VertexTask extends RecursiveTask<Partial> {
+        private final CsrGraph graph;
+        private final AtomicIntegerArray parent;
+        private final int from;
+        private final int to;
+
+        VertexTask(CsrGraph graph, AtomicIntegerArray parent, int from, int to) {
+            this.graph = graph;
+            this.parent = parent;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > PARTITION_SIZE) {
+                int middle = (from + to) >>> 1;
+                VertexTask left = new VertexTask(graph, parent, from, middle);
+                left.fork();
+                Partial right = new VertexTask(graph, parent, middle, to).compute();
+                return left.join().merge(right);
+            }
+            Partial partial = new Partial();
+            for (int v = from; v < to; v++) {
+                int degree = graph.degree(v);
+                partial.addDegree(degree);
+                int first = graph.firstEdge(v);
+                int end = first + degree;
+                for (int e = first; e < end; e++) {
+                    int w = graph.target(e);
+                    if (v < w) {
+                        union(parent, v, w);
+                    }
+                }
+                if (degree < 2) {
+                    continue;
+                }
+                // Связи между соседями v: каждая пара (a, b) с a < b проверяется бинарным поиском в списке a
+                long links = 0;
+                for (int i = first; i < end; i++) {
+                    int a = graph.target(i);
+                    for (int j = i + 1; j < end; j++) {
+                        if (graph.hasEdge(a, graph.target(j))) {
+                            links++;
+                        }
+                    }
+                }
+                long pairs = (long) degree * (degree - 1) / 2;
+                partial.localClusteringSum += (double) links / pairs;
+                partial.clusteredVertices++;
+                partial.closedTriples += links;
+                partial.triples += pairs;
+            }
+            return partial;
+        }
+    }
+
+    private static final class ComponentSizeTask extends RecursiveAction {
+        private final AtomicIntegerArray parent;
+        private final AtomicIntegerArray sizes;
+        private final int from;
+        private final int to;
+
+        ComponentSizeTask(AtomicIntegerArray parent, AtomicIntegerArray sizes, int from, int to) {
+            this.parent = parent;
+            this.sizes = sizes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PARTITION_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ComponentSizeTask(parent, sizes, from, middle),
+                        new ComponentSizeTask(parent, sizes, middle, to));
+                return;
+            }
+            for (int v = from; v < to; v++) {
+                sizes.incrementAndGet(find(parent, v));
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.graph;
+
+import java.util.Arrays;
+
+/**
+ * Кратчайший путь между двумя вершинами CSR-графа двунаправленным поиском в ширину.
+ * На каждом шаге целиком раскрывается уровень меньшего фронта, поэтому
+ * просматривается примерно по «полпути» с каждой стороны вместо всего шара радиуса d.
+ */
+public final class ShortestPath {
+
+    private ShortestPath() {
+    }
+
+    // Вершины пути от source до target включительно или null, если вершины не связаны
+    public static int[] find(CsrGraph graph, int source, int target) {
+        if (source == target) {
+            return new int[]{source};
+        }
+        int n = graph.vertexCount();
+        Side forward = new Side(n, source);
+        Side backward = new Side(n, target);
+        while (forward.size > 0 && backward.size > 0) {
+            Side current = forward.size <= backward.size ? forward : backward;
+            Side other = current == forward ? backward : forward;
+            int meet = current.expand(graph, other);
+            if (meet >= 0) {
+                return join(forward, backward, meet);
+            }
+        }
+        return null;
+    }
+
+    private static int[] join(Side forward, Side backward, int meet) {
+        int[] path = new int[forward.distance[meet] + backward.distance[meet] + 1];
+        int i = forward.distance[meet];
+        for (int v = meet; v >= 0; v = forward.parent[v]) {
+            path[i--] = v;
+        }
+        i = forward.distance[meet];
+        for (int v = meet; v >= 0; v = backward.parent[v]) {
+            path[i++] = v;
+        }
+        return path;
+    }
+
+    private static final class Side {
+        private final int[] distance;
+        private final int[] parent;
+        private int[] frontier;
+        private int size;
+
+        Side(int n, int start) {
+            distance = new int[n];
+            parent = new int[n];
+            Arrays.fill(distance, -1);
+            distance[start] = 0;
+            parent[start] = -1;
+            frontier = new int[]{start};
+            size = 1;
+        }
+
+        // Раскрывает один уровень; возвращает вершину встречи на кратчайшем пути или -1
+        int expand(CsrGraph graph, Side other) {
+            int[] next = new int[Math.max(16, size)];
+            int nextSize = 0;
+            int meet = -1;
+            int best = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                int u = frontier[i];
+                int end = graph.firstEdge(u) + graph.degree(u);
+                for (int e = graph.firstEdge(u); e < end; e++) {
+                    int w = graph.target(e);
+                    if (distance[w] >= 0) {
+                        continue;
+                    }
+                    distance[w] = distance[u] + 1;
+                    parent[w] = u;
+                    if (other.distance[w] >= 0) {
+                        // Уровень дорабатывается до конца: встреча через другую вершину может оказаться короче
+                        int length = distance[w] + other.distance[w];
+                        if (length < best) {
+                            best = length;
+                            meet = w;
+                        }
+                    }
+                    if (nextSize == next.length) {
+                        next = Arrays.copyOf(next, nextSize * 2);
+                    }
+                    next[nextSize++] = w;
+                }
+            }
+            frontier = next;
+            size = nextSize;
+            return meet;
+        }
+    }
+}
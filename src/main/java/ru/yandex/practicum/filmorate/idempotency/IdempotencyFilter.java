@@ -0,0 +1,270 @@
+package ru.yandex.practicum.filmorate.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import ru.yandex.practicum.filmorate.exception.ErrorResponse;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Поддержка заголовка Idempotency-Key у изменяющих запросов.
+ *
+ * <p>Повтор запроса с тем же ключом не выполняется заново, а получает сохранённый ответ первого
+ * с заголовком Idempotent-Replayed. Повтор, пришедший, пока первый ещё выполняется, ждёт его ответ.
+ * Тот же ключ с другим методом, путём или телом — ошибка клиента (422).
+ * Ответы 5xx и 429 не сохраняются: ключ освобождается, и следующий повтор выполнится.
+ * Ключи разных клиентов (пользователь или, без аутентификации, адрес) не пересекаются.
+ * Тело буферизуется для отпечатка, поэтому запросы с телом больше max-body-bytes отклоняются (413).
+ * Запросы к /admin/profiling не обрабатываются: ответ остановки записи JFR слишком велик для хранения.
+ */
+@Slf4j
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String PROFILING_PATH = "/admin/profiling";
+    // Заголовки ответа, которые повторяются вместе с телом
+    private static final List<String> STORED_HEADERS = List.of(HttpHeaders.LOCATION, HttpHeaders.ETAG);
+    // Маркер истёкшего ожидания: первый запрос с ключом всё ещё выполняется
+    private static final IdempotencyStore.StoredResponse STILL_RUNNING =
+            new IdempotencyStore.StoredResponse(0, null, new byte[0], Map.of());
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long waitTimeoutMillis;
+    private final int maxBodyBytes;
+
+    public IdempotencyFilter(IdempotencyStore store, ObjectMapper objectMapper,
+                             @Value("${filmorate.idempotency.enabled:true}") boolean enabled,
+                             @Value("${filmorate.idempotency.wait-timeout-millis:10000}") long waitTimeoutMillis,
+                             @Value("${filmorate.idempotency.max-body-bytes:1048576}") int maxBodyBytes) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !enabled || request.getHeader(KEY_HEADER) == null
+                || "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)
+                || request.getRequestURI().startsWith(request.getContextPath() + PROFILING_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(KEY_HEADER);
+        if (header.isBlank() || header.length() > MAX_KEY_LENGTH) {
+            sendError(response, HttpStatus.BAD_REQUEST,
+                    "Заголовок " + KEY_HEADER + " должен быть непустым и не длиннее " + MAX_KEY_LENGTH + " символов");
+            return;
+        }
+        // Читаем на байт больше предела, чтобы отличить тело ровно предельной длины от более длинного
+        byte[] body = request.getContentLengthLong() > maxBodyBytes
+                ? null : request.getInputStream().readNBytes(maxBodyBytes + 1);
+        if (body == null || body.length > maxBodyBytes) {
+            log.warn("Тело запроса {} {} с ключом идемпотентности больше {} байт",
+                    request.getMethod(), request.getRequestURI(), maxBodyBytes);
+            sendError(response, HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Тело запроса с " + KEY_HEADER + " должно быть не больше " + maxBodyBytes + " байт");
+            return;
+        }
+        BufferedRequest buffered = new BufferedRequest(request, body);
+        String fingerprint = fingerprint(buffered);
+        String key = client(request) + " " + header;
+
+        while (true) {
+            IdempotencyStore.Claim claim = store.claim(key, fingerprint);
+            IdempotencyStore.Slot slot = claim.slot();
+            if (!slot.matches(fingerprint)) {
+                log.warn("Ключ идемпотентности {} повторно использован для другого запроса", key);
+                sendError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Ключ " + KEY_HEADER + " уже использован для другого запроса");
+                return;
+            }
+            if (claim.owner()) {
+                execute(key, slot, buffered, response, chain);
+                return;
+            }
+            IdempotencyStore.StoredResponse stored = await(slot);
+            if (stored == STILL_RUNNING) {
+                sendError(response, HttpStatus.CONFLICT, "Запрос с этим " + KEY_HEADER + " ещё выполняется");
+                return;
+            }
+            if (stored != null) {
+                log.info("Повтор {} {} с ключом {} обслужен сохранённым ответом",
+                        request.getMethod(), request.getRequestURI(), key);
+                replay(stored, response);
+                return;
+            }
+            // Первый запрос не сохранил ответ — пробуем стать владельцем сами
+        }
+    }
+
+    private void execute(String key, IdempotencyStore.Slot slot, BufferedRequest request,
+                         HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            chain.doFilter(request, wrapper);
+            int status = wrapper.getStatus();
+            if (status < HttpStatus.INTERNAL_SERVER_ERROR.value() && status != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                Map<String, String> headers = new HashMap<>();
+                for (String name : STORED_HEADERS) {
+                    String value = wrapper.getHeader(name);
+                    if (value != null) {
+                        headers.put(name, value);
+                    }
+                }
+                store.complete(slot, new IdempotencyStore.StoredResponse(status, wrapper.getContentType(),
+                        wrapper.getContentAsByteArray(), headers));
+                stored = true;
+            }
+        } finally {
+            if (!stored) {
+                store.release(key, slot);
+            }
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private IdempotencyStore.StoredResponse await(IdempotencyStore.Slot slot) throws ServletException {
+        try {
+            return slot.response().get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return STILL_RUNNING;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServletException(e);
+        } catch (ExecutionException e) {
+            throw new ServletException(e.getCause());
+        }
+    }
+
+    private static void replay(IdempotencyStore.StoredResponse stored, HttpServletResponse response)
+            throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        stored.headers().forEach(response::setHeader);
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    // Владелец ключа: аутентифицированный пользователь, иначе адрес клиента
+    private static String client(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal != null ? "user:" + principal.getName() : "addr:" + request.getRemoteAddr();
+    }
+
+    private void sendError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse(message));
+    }
+
+    // Метод, путь с параметрами и SHA-256 тела: повтор обязан совпасть с первым запросом во всём
+    private static String fingerprint(BufferedRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getMethod().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) ' ');
+            digest.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+            if (request.getQueryString() != null) {
+                digest.update((byte) '?');
+                digest.update(request.getQueryString().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) '\n');
+            digest.update(request.body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Запрос с уже прочитанным телом: тело нужно и для отпечатка, и контроллеру
+    private static final class BufferedRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        BufferedRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ответы изменяющих запросов по ключу идемпотентности.
+ *
+ * <p>Первый запрос с ключом становится владельцем записи и выполняется, остальные ждут его ответ
+ * на общем future. Записи живут ttl и не больше maxEntries штук: срок у всех одинаковый,
+ * поэтому очередь добавления совпадает с очередью истечения и старые записи снимаются с её головы.
+ */
+@Component
+public class IdempotencyStore {
+
+    public record StoredResponse(int status, String contentType, byte[] body, Map<String, String> headers) {
+    }
+
+    public static final class Slot {
+        private final String fingerprint;
+        private final long expiresAt;
+        private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+
+        private Slot(String fingerprint, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+
+        public boolean matches(String fingerprint) {
+            return this.fingerprint.equals(fingerprint);
+        }
+
+        // Завершается ответом владельца или null, если владелец не смог выполнить запрос
+        public CompletableFuture<StoredResponse> response() {
+            return response;
+        }
+    }
+
+    // owner = true: запрос первый с этим ключом и должен выполниться сам
+    public record Claim(Slot slot, boolean owner) {
+    }
+
+    private record Added(String key, Slot slot) {
+    }
+
+    private final Clock clock;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final Queue<Added> order = new ConcurrentLinkedQueue<>();
+    // Длина очереди: в ней остаются и освобождённые записи, поэтому ограничивается отдельно от карты
+    private final AtomicInteger queued = new AtomicInteger();
+
+    public IdempotencyStore(Clock clock,
+                            @Value("${filmorate.idempotency.ttl-seconds:86400}") long ttlSeconds,
+                            @Value("${filmorate.idempotency.max-entries:100000}") int maxEntries) {
+        this.clock = clock;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+    }
+
+    public Claim claim(String key, String fingerprint) {
+        long now = clock.millis();
+        expire(now);
+        while (true) {
+            Slot fresh = new Slot(fingerprint, now + ttlMillis);
+            Slot existing = slots.putIfAbsent(key, fresh);
+            if (existing == null) {
+                order.add(new Added(key, fresh));
+                queued.incrementAndGet();
+                evictOverflow();
+                return new Claim(fresh, true);
+            }
+            if (existing.expiresAt > now) {
+                return new Claim(existing, false);
+            }
+            slots.remove(key, existing);
+        }
+    }
+
+    public void complete(Slot slot, StoredResponse response) {
+        slot.response.complete(response);
+    }
+
+    // Ответ не сохраняется: ключ освобождается, ожидающие повторят запрос сами
+    public void release(String key, Slot slot) {
+        slots.remove(key, slot);
+        slot.response.complete(null);
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    private void expire(long now) {
+        Added head;
+        while ((head = order.peek()) != null && head.slot().expiresAt <= now) {
+            if (order.remove(head)) {
+                queued.decrementAndGet();
+                slots.remove(head.key(), head.slot());
+            }
+        }
+    }
+
+    // Вытесняются самые старые записи; ждущие незавершённую запись держат её future и получат ответ
+    private void evictOverflow() {
+        while (slots.size() > maxEntries || queued.get() > maxEntries) {
+            Added oldest = order.poll();
+            if (oldest == null) {
+                return;
+            }
+            queued.decrementAndGet();
+            slots.remove(oldest.key(), oldest.slot());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.List;
+
+/**
+ * Итог пересчёта производных от лайков индексов.
+ *
+ * @param usersDiverged число пользователей, чей обратный индекс лайков расходился с лайками фильмов
+ * @param filmsDiverged число фильмов, чьи счётчики трендов расходились с временами лайков
+ * @param sampleUserIds первые из разошедшихся пользователей, не больше {@code SAMPLE_SIZE}
+ * @param sampleFilmIds первые из разошедшихся фильмов, не больше {@code SAMPLE_SIZE}
+ */
+public record AggregateRebuildReport(int films,
+                                     long likes,
+                                     int users,
+                                     int usersDiverged,
+                                     int filmsDiverged,
+                                     List<Long> sampleUserIds,
+                                     List<Long> sampleFilmIds,
+                                     long durationMillis) {
+
+    public static final int SAMPLE_SIZE = 20;
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+/**
+ * Запись ленты активности: пользователь userId поставил или снял лайк фильму entityId
+ * либо добавил или удалил друга entityId. eventId растёт монотонно и задаёт порядок ленты.
+ */
+public record FeedEvent(long eventId, long timestamp, Long userId, EventType eventType, Operation operation,
+                        Long entityId) {
+
+    public enum EventType {
+        LIKE,
+        FRIEND
+    }
+
+    public enum Operation {
+        ADD,
+        REMOVE
+    }
+}
@@ -1,30 +1,26 @@
 package ru.yandex.practicum.filmorate.model;
 
-import lombok.Data;
+import lombok.Builder;
+import lombok.With;
 import ru.yandex.practicum.filmorate.converters.*;
 import java.time.Duration;
 import java.time.LocalDate;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import jakarta.validation.constraints.*;
 
 /**
- * Film.
+ * Film. Неизменяемый снимок: хранилище заменяет его целиком при обновлении,
+ * поэтому читатели всегда видят согласованное состояние без блокировок.
  */
-@Data
-public class Film {
-    private Long id;
+@With
+@Builder(toBuilder = true)
+public record Film(
+        Long id,
+        String name,
+        String description,
+        LocalDate releaseDate,
 
-    @NotBlank(message = "Название не может быть пустым")
-    private String name;
-
-    @Size(max = 200, message = "Описание не должно превышать 200 символов")
-    private String description;
-
-    @NotNull(message = "Дата релиза обязательна")
-    private LocalDate releaseDate;
-
-    @JsonSerialize(using = DurationSecondsSerializer.class)
-    @JsonDeserialize(using = DurationSecondsDeserializer.class)
-    private Duration duration;
+        @JsonSerialize(using = DurationSecondsSerializer.class)
+        @JsonDeserialize(using = DurationSecondsDeserializer.class)
+        Duration duration) {
 }
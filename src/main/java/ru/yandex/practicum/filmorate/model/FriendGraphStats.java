@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.Map;
+
+/**
+ * Статистика графа дружбы.
+ *
+ * @param degreeDistribution число друзей -> сколько пользователей имеют столько друзей
+ * @param averageClustering  средний локальный коэффициент кластеризации по пользователям с двумя и более друзьями
+ * @param globalClustering   доля замкнутых троек (транзитивность) по всему графу
+ */
+public record FriendGraphStats(int users,
+                               long friendships,
+                               double averageDegree,
+                               int maxDegree,
+                               Map<Integer, Integer> degreeDistribution,
+                               int components,
+                               int largestComponent,
+                               int isolatedUsers,
+                               double averageClustering,
+                               double globalClustering) {
+}
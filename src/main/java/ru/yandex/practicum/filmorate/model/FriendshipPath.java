@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.List;
+
+/**
+ * Кратчайшая цепочка друзей между двумя пользователями: distance рукопожатий, path — ID по порядку.
+ */
+public record FriendshipPath(Long userId, Long otherId, int distance, List<Long> path) {
+}
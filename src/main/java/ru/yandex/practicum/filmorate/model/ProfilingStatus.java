@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.time.Instant;
+
+/**
+ * Состояние записи JFR по запросу: state — RUNNING, STOPPED (истекла длительность) или CLOSED (записи нет).
+ */
+public record ProfilingStatus(String state, Instant startedAt, long durationSeconds, long maxSizeBytes,
+                              long sizeBytes) {
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.With;
+
+/**
+ * Отзыв пользователя на фильм. useful — сумма оценок отзыва: +1 за каждый лайк и -1 за дизлайк;
+ * хранилище заменяет снимок при каждой оценке, клиентское значение при создании игнорируется.
+ */
+@With
+@Builder(toBuilder = true)
+public record Review(
+        Long reviewId,
+        String content,
+        Boolean isPositive,
+        Long userId,
+        Long filmId,
+        int useful) {
+}
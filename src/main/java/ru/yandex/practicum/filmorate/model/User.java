@@ -1,25 +1,25 @@
 package ru.yandex.practicum.filmorate.model;
 
-import lombok.Data;
-import jakarta.validation.constraints.*;
+import lombok.Builder;
+import lombok.With;
 import java.time.LocalDate;
 import java.util.Set;
 
-@Data
-public class User {
-    private Long id;
+/**
+ * Неизменяемый снимок пользователя. Множество друзей копируется при создании,
+ * изменения дружбы порождают новый снимок.
+ */
+@With
+@Builder(toBuilder = true)
+public record User(
+        Long id,
+        String email,
+        String login,
+        String name,
+        LocalDate birthday,
+        Set<Long> friends) {
 
-    @NotBlank(message = "Email не должен быть пустым")
-    @Email(message = "Email должен быть валидным")
-    private String email;
-
-    @NotBlank(message = "Логин не должен быть пустым")
-    @Pattern(regexp = "\\S+", message = "Логин не должен содержать пробелы")
-    private String login;
-    private String name;
-
-    @Past(message = "Дата рождения должна быть в прошлом")
-    private LocalDate birthday;
-
-    private Set<Long> friends;
+    public User {
+        friends = friends == null ? Set.of() : Set.copyOf(friends);
+    }
 }
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Пересечение множеств друзей двух пользователей.
+ */
+@Name("filmorate.CommonFriends")
+@Label("Common Friends")
+@Category({"Filmorate", "Users"})
+@StackTrace(false)
+public class CommonFriendsEvent extends Event {
+
+    @Label("User Id")
+    long userId;
+
+    @Label("Other User Id")
+    long otherId;
+
+    @Label("Friends")
+    int friends;
+
+    @Label("Other Friends")
+    int otherFriends;
+
+    @Label("Common")
+    int common;
+
+    public static CommonFriendsEvent start() {
+        CommonFriendsEvent event = new CommonFriendsEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(long userId, long otherId, int friends, int otherFriends, int common) {
+        if (shouldCommit()) {
+            this.userId = userId;
+            this.otherId = otherId;
+            this.friends = friends;
+            this.otherFriends = otherFriends;
+            this.common = common;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Пакетная операция хранилища: сколько ID запрошено, сколько записей возвращено и сколько шардов затронуто.
+ */
+@Name("filmorate.StorageOperation")
+@Label("Storage Operation")
+@Category({"Filmorate", "Storage"})
+@StackTrace(false)
+public class StorageOperationEvent extends Event {
+
+    @Label("Storage")
+    String storage;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Requested")
+    int requested;
+
+    @Label("Returned")
+    int returned;
+
+    @Label("Shards")
+    @Description("Сколько шардов участвовало; 1 для хранилища без шардов")
+    int shards;
+
+    public static StorageOperationEvent start() {
+        StorageOperationEvent event = new StorageOperationEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String storage, String operation, int requested, int returned, int shards) {
+        if (shouldCommit()) {
+            this.storage = storage;
+            this.operation = operation;
+            this.requested = requested;
+            this.returned = returned;
+            this.shards = shards;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Расчёт /films/popular: режим, размер топа и число фильмов-кандидатов.
+ */
+@Name("filmorate.TopFilms")
+@Label("Top Films")
+@Category({"Filmorate", "Films"})
+@StackTrace(false)
+public class TopFilmsEvent extends Event {
+
+    @Label("Approximate")
+    boolean approximate;
+
+    @Label("Requested")
+    int requested;
+
+    @Label("Candidates")
+    @Description("Фильмы, у которых есть лайки; в приближённом режиме не считаются")
+    int candidates;
+
+    @Label("Returned")
+    int returned;
+
+    public static TopFilmsEvent start() {
+        TopFilmsEvent event = new TopFilmsEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(boolean approximate, int requested, int candidates, int returned) {
+        if (shouldCommit()) {
+            this.approximate = approximate;
+            this.requested = requested;
+            this.candidates = candidates;
+            this.returned = returned;
+            commit();
+        }
+    }
+}
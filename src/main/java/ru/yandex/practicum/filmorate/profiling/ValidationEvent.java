@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Проверка модели набором правил {@link ru.yandex.practicum.filmorate.validation.ModelValidator}.
+ */
+@Name("filmorate.Validation")
+@Label("Model Validation")
+@Category({"Filmorate", "Validation"})
+@StackTrace(false)
+public class ValidationEvent extends Event {
+
+    @Label("Model")
+    String model;
+
+    @Label("Update")
+    boolean update;
+
+    @Label("Rules")
+    int rules;
+
+    @Label("Violations")
+    int violations;
+
+    public static ValidationEvent start() {
+        ValidationEvent event = new ValidationEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(Class<?> model, boolean update, int rules, int violations) {
+        if (shouldCommit()) {
+            this.model = model.getSimpleName();
+            this.update = update;
+            this.rules = rules;
+            this.violations = violations;
+            commit();
+        }
+    }
+}
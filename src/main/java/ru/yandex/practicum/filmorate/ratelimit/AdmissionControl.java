@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Ограничение числа одновременно выполняемых дорогих запросов. Лишние запросы не ждут в очереди,
+ * а сразу получают отказ — так перегрузка не растягивает задержку остальным.
+ */
+public class AdmissionControl {
+
+    private final Semaphore permits;
+
+    public AdmissionControl(int maxConcurrent) {
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    public boolean tryEnter() {
+        return permits.tryAcquire();
+    }
+
+    public void exit() {
+        permits.release();
+    }
+
+    public int available() {
+        return permits.availablePermits();
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.exception.TooManyRequestsException;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение частоты изменяющих запросов по клиенту и маршруту (429)
+ * и ограничение числа одновременных дорогих чтений (503). Оба ответа содержат Retry-After.
+ */
+@Slf4j
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String ADMITTED_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".admitted";
+    // Через сколько секунд предлагаем повторить запрос, отклонённый из-за перегрузки
+    private static final long OVERLOAD_RETRY_AFTER_SECONDS = 1;
+
+    private final TokenBucketLimiter writeLimiter;
+    // "МЕТОД шаблон-маршрута" -> ограничение одновременных запросов
+    private final Map<String, AdmissionControl> admission;
+
+    public RateLimitInterceptor(TokenBucketLimiter writeLimiter, Map<String, AdmissionControl> admission) {
+        this.writeLimiter = writeLimiter;
+        this.admission = Map.copyOf(admission);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null) {
+            return true;
+        }
+        String route = request.getMethod() + " " + pattern;
+        if (isWrite(request.getMethod())) {
+            // Ключ — клиент и шаблон маршрута: лимит на лайки не расходуется запросами на дружбу
+            long waitNanos = writeLimiter.tryAcquire(request.getRemoteAddr() + " " + route, System.nanoTime());
+            if (waitNanos > 0) {
+                log.warn("Клиент {} превысил лимит запросов к {}", request.getRemoteAddr(), route);
+                throw new TooManyRequestsException("Слишком много запросов, повторите позже",
+                        TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1, false);
+            }
+        }
+        AdmissionControl control = admission.get(route);
+        if (control != null) {
+            if (!control.tryEnter()) {
+                log.warn("Превышено число одновременных запросов к {}", route);
+                throw new TooManyRequestsException("Сервис перегружен, повторите позже",
+                        OVERLOAD_RETRY_AFTER_SECONDS, true);
+            }
+            request.setAttribute(ADMITTED_ATTRIBUTE, control);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object control = request.getAttribute(ADMITTED_ATTRIBUTE);
+        if (control != null) {
+            request.removeAttribute(ADMITTED_ATTRIBUTE);
+            ((AdmissionControl) control).exit();
+        }
+    }
+
+    private static boolean isWrite(String method) {
+        return !"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method);
+    }
+}
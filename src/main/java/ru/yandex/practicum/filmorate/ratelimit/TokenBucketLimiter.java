@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket по ключу в форме GCRA: вместо числа токенов на ключ хранится одно «теоретическое время
+ * прибытия» следующего запроса. Пополнение ленивое — вычисляется при обращении, без фоновых таймеров,
+ * а обновление выполняется через CAS без блокировок.
+ */
+public class TokenBucketLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxKeys;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * @param permitsPerSecond скорость пополнения корзины
+     * @param burst            ёмкость корзины — сколько запросов подряд допускается после простоя
+     * @param maxKeys          предел числа корзин в памяти
+     */
+    public TokenBucketLimiter(double permitsPerSecond, int burst, int maxKeys) {
+        if (permitsPerSecond <= 0 || burst <= 0 || maxKeys <= 0) {
+            throw new IllegalArgumentException("Параметры ограничителя должны быть положительными");
+        }
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Пытается взять токен для ключа.
+     *
+     * @return 0, если запрос разрешён, иначе сколько наносекунд ждать до следующего токена
+     */
+    public long tryAcquire(String key, long nowNanos) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                evict(nowNanos);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+        }
+        while (true) {
+            long arrival = bucket.get();
+            long theoretical = Math.max(arrival, nowNanos);
+            long wait = theoretical - nowNanos - burstToleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(arrival, theoretical + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Сначала удаляются полностью пополненные корзины: для них отсутствие записи равносильно полной корзине.
+     * Если все корзины активны, удаляются произвольные — лимит такого клиента начнётся заново,
+     * зато память остаётся ограниченной при любом числе клиентов.
+     */
+    private void evict(long nowNanos) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buckets.values().removeIf(bucket -> bucket.get() <= nowNanos);
+            Iterator<AtomicLong> iterator = buckets.values().iterator();
+            int excess = buckets.size() - maxKeys * 9 / 10;
+            while (excess-- > 0 && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.security.SecureRandom;
+
+/**
+ * ETag с эпохой экземпляра. Счётчики версий в памяти после перезапуска начинаются заново,
+ * и без эпохи сохранённый клиентом ETag мог бы совпасть с другим содержимым.
+ */
+final class Etags {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final String epoch = Long.toString(RANDOM.nextLong() & Long.MAX_VALUE, 36);
+
+    String of(String value) {
+        return epoch + "-" + value;
+    }
+}
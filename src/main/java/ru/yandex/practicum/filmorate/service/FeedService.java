@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.FilmLikesChangedEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.feed.FeedMerge;
+import ru.yandex.practicum.filmorate.feed.FeedRingBuffer;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Лента активности: лайки и изменения дружбы пользователя и его друзей.
+ * Событие всегда пишется в исходящий буфер автора и, если друзей у автора не больше fan-out-limit,
+ * рассылается во входящие буферы друзей. События авторов с большим числом друзей читатель
+ * забирает сам из их исходящих буферов и сливает с остальными при чтении.
+ * Оба буфера кольцевые, поэтому память на пользователя ограничена двумя ёмкостями.
+ */
+@Slf4j
+@Service
+public class FeedService {
+
+    private final UserStorage userStorage;
+    private final Clock clock;
+    private final int capacity;
+    private final int fanOutLimit;
+    private final AtomicLong sequence = new AtomicLong();
+    // События, которые совершил сам пользователь
+    private final Map<Long, FeedRingBuffer> outboxes = new ConcurrentHashMap<>();
+    // События друзей, разосланные при записи
+    private final Map<Long, FeedRingBuffer> inboxes = new ConcurrentHashMap<>();
+    // Авторы, чьи события хотя бы раз не рассылались; метка не снимается, иначе часть их событий пропадёт из лент
+    private final Set<Long> readOnFanIn = ConcurrentHashMap.newKeySet();
+
+    public FeedService(UserStorage userStorage, Clock clock,
+                       @Value("${filmorate.feed.capacity:100}") int capacity,
+                       @Value("${filmorate.feed.fan-out-limit:1000}") int fanOutLimit) {
+        this.userStorage = userStorage;
+        this.clock = clock;
+        this.capacity = capacity;
+        this.fanOutLimit = fanOutLimit;
+    }
+
+    @EventListener
+    public void onFilmLikesChanged(FilmLikesChangedEvent event) {
+        record(event.userId(), FeedEvent.EventType.LIKE,
+                event.delta() > 0 ? FeedEvent.Operation.ADD : FeedEvent.Operation.REMOVE, event.filmId());
+    }
+
+    @EventListener
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        record(event.userId(), FeedEvent.EventType.FRIEND,
+                event.added() ? FeedEvent.Operation.ADD : FeedEvent.Operation.REMOVE, event.friendId());
+    }
+
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        outboxes.remove(event.userId());
+        inboxes.remove(event.userId());
+        readOnFanIn.remove(event.userId());
+    }
+
+    /**
+     * Последние count событий пользователя и его текущих друзей, от новых к старым.
+     * События бывших друзей, оставшиеся во входящем буфере, отбрасываются при чтении.
+     */
+    public List<FeedEvent> getFeed(Long userId, int count) {
+        if (count <= 0) {
+            throw new ValidationException("Количество событий должно быть положительным");
+        }
+        User user = userStorage.getById(userId);
+        if (user == null) {
+            throw new NotFoundException("Пользователь с id=" + userId + " не найден");
+        }
+        Set<Long> friends = user.friends();
+        List<FeedEvent[]> sources = new ArrayList<>();
+        addSource(sources, outboxes.get(userId));
+        addSource(sources, inboxes.get(userId));
+        // Перебираем меньшее из двух множеств: друзей или авторов без рассылки
+        if (friends.size() <= readOnFanIn.size()) {
+            for (Long friendId : friends) {
+                if (readOnFanIn.contains(friendId)) {
+                    addSource(sources, outboxes.get(friendId));
+                }
+            }
+        } else {
+            for (Long authorId : readOnFanIn) {
+                if (friends.contains(authorId)) {
+                    addSource(sources, outboxes.get(authorId));
+                }
+            }
+        }
+        return FeedMerge.newest(sources, count,
+                event -> event.userId().equals(userId) || friends.contains(event.userId()));
+    }
+
+    private void record(Long authorId, FeedEvent.EventType type, FeedEvent.Operation operation, Long entityId) {
+        User author = userStorage.getById(authorId);
+        if (author == null) {
+            // Событие очистки за удалённым пользователем — в ленты не попадает
+            return;
+        }
+        // События, записанные одновременно, могут лечь в буфер не строго по eventId;
+        // слияние это переносит, сдвиг ограничен числом одновременных записей
+        FeedEvent event = new FeedEvent(sequence.incrementAndGet(), clock.millis(), authorId, type, operation,
+                entityId);
+        buffer(outboxes, authorId).append(event);
+        Set<Long> friends = author.friends();
+        if (friends.size() > fanOutLimit) {
+            if (readOnFanIn.add(authorId)) {
+                log.info("У пользователя {} больше {} друзей, его события читаются без рассылки",
+                        authorId, fanOutLimit);
+            }
+            return;
+        }
+        for (Long friendId : friends) {
+            buffer(inboxes, friendId).append(event);
+        }
+    }
+
+    private FeedRingBuffer buffer(Map<Long, FeedRingBuffer> buffers, Long userId) {
+        return buffers.computeIfAbsent(userId, id -> new FeedRingBuffer(capacity));
+    }
+
+    private static void addSource(List<FeedEvent[]> sources, FeedRingBuffer buffer) {
+        if (buffer != null) {
+            sources.add(buffer.newestFirst());
+        }
+    }
+}
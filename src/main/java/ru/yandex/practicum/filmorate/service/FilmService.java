@@ -1,28 +1,83 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.FilmLikesChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.AggregateRebuildReport;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.profiling.TopFilmsEvent;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FilmTrendingCounters;
+import ru.yandex.practicum.filmorate.storage.LikeAggregates;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+import ru.yandex.practicum.filmorate.storage.TrendWindow;
+import ru.yandex.practicum.filmorate.storage.sketch.ApproximatePopularity;
+import ru.yandex.practicum.filmorate.validation.ModelRules;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
-import java.time.LocalDate;
+import java.time.Clock;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class FilmService {
 
+    // Вклад количества лайков в итоговый рейтинг результатов поиска
+    private static final double SEARCH_LIKES_BOOST = 0.25;
+    // Число блокировок, по которым распределяются фильмы при обновлении поискового индекса
+    private static final int INDEX_LOCKS = 64;
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
-    private final Map<Long, Set<Long>> filmLikes = new HashMap<>();
+    private final FilmSearchIndex searchIndex;
+    private final FilmTrendingCounters trendingCounters;
+    private final ApproximatePopularity approximatePopularity;
+    private final Tombstones tombstones;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    // filmId -> (userId -> время лайка в миллисекундах). В приближённом режиме не заполняется:
+    // лайки хранит ApproximatePopularity
+    private final Map<Long, Map<Long, Long>> filmLikes = new ConcurrentHashMap<>();
+    // Обратный индекс userId -> лайкнутые фильмы: удаление пользователя трогает только его лайки.
+    // Подменяется целиком при пересчёте производных индексов
+    private volatile Map<Long, Set<Long>> userLikes = new ConcurrentHashMap<>();
+    // Изменения лайков берут блокировку на чтение и идут параллельно друг другу,
+    // пересчёт производных индексов — на запись. Чтение индексов блокировку не берёт
+    private final ReadWriteLock likesLock = new ReentrantReadWriteLock();
+    // Растёт при каждом изменении лайков, входит в ETag популярных фильмов
+    private final AtomicLong likeEpoch = new AtomicLong();
+    private final Etags etags = new Etags();
+    private final Object[] indexLocks = new Object[INDEX_LOCKS];
 
-    public FilmService(FilmStorage filmStorage, UserStorage userStorage) {
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, FilmSearchIndex searchIndex,
+                       FilmTrendingCounters trendingCounters, ApproximatePopularity approximatePopularity,
+                       Tombstones tombstones, ApplicationEventPublisher eventPublisher, Clock clock) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.searchIndex = searchIndex;
+        this.trendingCounters = trendingCounters;
+        this.approximatePopularity = approximatePopularity;
+        this.tombstones = tombstones;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+        for (int i = 0; i < indexLocks.length; i++) {
+            indexLocks[i] = new Object();
+        }
+        // Хранилище с файлами шардов может стартовать непустым — индексируем уже сохранённые фильмы
+        filmStorage.findAll().forEach(searchIndex::index);
     }
 
     public Collection<Film> findAll() {
@@ -32,59 +87,50 @@ public class FilmService {
 
     public Film create(Film film) {
         validateFilm(film, false);
-        return filmStorage.create(film);
+        Film created = filmStorage.create(film);
+        reindex(created.id());
+        return created;
     }
 
     public Film update(Film film) {
-        if (film.getId() == null) {
+        if (film.id() == null) {
             log.warn("Попытка обновления фильма без указания ID.");
             throw new ValidationException("Id должен быть указан.");
         }
         validateFilm(film, true);
-        return filmStorage.update(film);
+        Film updated = filmStorage.update(film);
+        reindex(updated.id());
+        eventPublisher.publishEvent(new FilmChangedEvent(updated.id()));
+        return updated;
     }
 
-    private void validateFilm(Film film, boolean isUpdate) {
-        // Проверяем название
-        if (!isUpdate || film.getName() != null) {
-            if (film.getName() == null || film.getName().isBlank()) {
-                log.warn("{} фильма с ID: {} пустое название",
-                        isUpdate ? "Обновление" : "Создание", film.getId());
-                throw new ValidationException("Название не может быть пустым");
+    /**
+     * Приводит поисковый индекс фильма к его текущему состоянию в хранилище. Под блокировкой фильма
+     * последним всегда индексируется последнее сохранённое состояние: параллельные обновления
+     * не оставят в индексе старую версию, а опоздавшее обновление не вернёт в поиск удалённый фильм.
+     */
+    private void reindex(Long filmId) {
+        synchronized (indexLocks[Math.floorMod(Long.hashCode(filmId), indexLocks.length)]) {
+            Film current;
+            try {
+                current = filmStorage.getVersion(filmId) == 0 ? null : filmStorage.findById(filmId);
+            } catch (NotFoundException e) {
+                current = null;
             }
-        }
-
-        // Проверяем описание
-        if (!isUpdate || film.getDescription() != null) {
-            if (film.getDescription() == null || film.getDescription().isBlank()) {
-                log.warn("{} фильма с ID: {} пустое описание",
-                        isUpdate ? "Обновление" : "Создание", film.getId());
-                throw new ValidationException("Описание не может быть пустым");
-            }
-            if (film.getDescription().length() > 200) {
-                log.warn("Некорректное описание фильма при {} с ID: {}",
-                        isUpdate ? "обновлении" : "создании", film.getId());
-                throw new ValidationException("Описание фильма не может быть более 200 символов");
-            }
-        }
-
-        // Проверяем дату релиза
-        LocalDate earliestDate = LocalDate.of(1895, 12, 28);
-        if (!isUpdate || film.getReleaseDate() != null) {
-            if (film.getReleaseDate() == null || film.getReleaseDate().isBefore(earliestDate)) {
-                log.warn("Некорректная дата релиза фильма при {} с ID: {}: {}",
-                        isUpdate ? "обновлении" : "создании", film.getId(), film.getReleaseDate());
-                throw new ValidationException("Дата релиза не может быть раньше 28 декабря 1895 года");
+            if (current == null) {
+                searchIndex.remove(filmId);
+            } else {
+                searchIndex.index(current);
             }
         }
+    }
 
-        // Проверяем продолжительность
-        if (!isUpdate || film.getDuration() != null) {
-            if (film.getDuration() == null || film.getDuration().toSeconds() <= 0) {
-                log.warn("Некорректная продолжительность фильма при {} с ID: {}: {}",
-                        isUpdate ? "обновлении" : "создании", film.getId(), film.getDuration());
-                throw new ValidationException("Продолжительность фильма должна быть положительным числом");
-            }
+    private void validateFilm(Film film, boolean isUpdate) {
+        List<String> violations = ModelRules.FILM.validate(film, isUpdate);
+        if (!violations.isEmpty()) {
+            log.warn("{} фильма с ID: {} не прошло проверку: {}",
+                    isUpdate ? "Обновление" : "Создание", film.id(), violations);
+            throw new ValidationException(String.join("; ", violations));
         }
     }
 
@@ -101,32 +147,295 @@ public class FilmService {
             throw new NotFoundException("Пользователь не найден");
         }
 
-        // Добавляем лайк, если его еще нет
-        filmLikes.computeIfAbsent(filmId, k -> new HashSet<>()).add(userId);
+        // Добавляем лайк, если его еще нет, и запоминаем время для трендов.
+        // Событие публикуется после снятия блокировки: рассылка в ленты друзей не должна задерживать пересчёт
+        FilmLikesChangedEvent event = null;
+        likesLock.readLock().lock();
+        try {
+            long likedAt = clock.millis();
+            if (storeLike(filmId, userId, likedAt)) {
+                // Фильм или пользователь могли быть удалены, пока ставился лайк, а их очистка — уже пройти.
+                // Лайк попадает в индексы до проверки, поэтому его увидит либо проверка, либо очистка.
+                if (filmStorage.getVersion(filmId) == 0 || userStorage.getById(userId) == null) {
+                    forgetLike(filmId, userId);
+                    log.warn("Фильм с ID: {} или пользователь с ID: {} удалён", filmId, userId);
+                    throw new NotFoundException("Фильм или пользователь не найден");
+                }
+                likeEpoch.incrementAndGet();
+                trendingCounters.recordLike(filmId, likedAt);
+                event = new FilmLikesChangedEvent(filmId, userId, 1, likesOf(filmId));
+            }
+        } finally {
+            likesLock.readLock().unlock();
+        }
+        if (event != null) {
+            eventPublisher.publishEvent(event);
+        }
         log.info("Пользователь с ID: {} поставил лайк фильму с ID: {}", userId, filmId);
     }
 
     public void removeLike(Long filmId, Long userId) {
-        Set<Long> likes = filmLikes.get(filmId);
-        if (likes == null || !likes.remove(userId)) {
+        // Фильтр Блума отсекает заведомо отсутствующие лайки без обращения к точному хранилищу
+        if (approximatePopularity.isEnabled() && !approximatePopularity.mightHaveLiked(filmId, userId)) {
+            log.warn("Лайк пользователя с ID: {} не найден для фильма с ID: {}", userId, filmId);
+            throw new NotFoundException("Лайк не найден");
+        }
+        List<FilmLikesChangedEvent> events = new ArrayList<>(1);
+        likesLock.readLock().lock();
+        try {
+            unlike(filmId, userId, events);
+        } finally {
+            likesLock.readLock().unlock();
+        }
+        events.forEach(eventPublisher::publishEvent);
+        if (events.isEmpty()) {
             log.warn("Лайк пользователя с ID: {} не найден для фильма с ID: {}", userId, filmId);
             throw new NotFoundException("Лайк не найден");
         }
         log.info("Пользователь с ID: {} убрал лайк у фильма с ID: {}", userId, filmId);
     }
 
+    // Запоминает лайк; false, если он уже был. В приближённом режиме точные карты лайков не заполняются
+    private boolean storeLike(Long filmId, Long userId, long likedAt) {
+        if (approximatePopularity.isEnabled()) {
+            return approximatePopularity.recordLike(filmId, userId, likedAt);
+        }
+        Map<Long, Long> likes = filmLikes.computeIfAbsent(filmId, k -> new ConcurrentHashMap<>());
+        if (likes.putIfAbsent(userId, likedAt) != null) {
+            return false;
+        }
+        userLikes.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(filmId);
+        return true;
+    }
+
+    // Снимает лайк со всеми производными счётчиками; false, если лайка не было. Вызывается под likesLock
+    private boolean unlike(Long filmId, Long userId, List<FilmLikesChangedEvent> events) {
+        Long likedAt;
+        if (approximatePopularity.isEnabled()) {
+            likedAt = approximatePopularity.recordUnlike(filmId, userId);
+        } else {
+            Map<Long, Long> likes = filmLikes.get(filmId);
+            likedAt = likes == null ? null : likes.remove(userId);
+            Set<Long> liked = userLikes.get(userId);
+            if (likedAt != null && liked != null) {
+                liked.remove(filmId);
+            }
+        }
+        if (likedAt == null) {
+            return false;
+        }
+        likeRemoved(filmId, userId, likedAt, events);
+        return true;
+    }
+
+    // Обновляет тренды и копит событие о снятом лайке для публикации после снятия likesLock. Вызывается под ним
+    private void likeRemoved(Long filmId, Long userId, long likedAt, List<FilmLikesChangedEvent> events) {
+        likeEpoch.incrementAndGet();
+        trendingCounters.recordUnlike(filmId, likedAt);
+        events.add(new FilmLikesChangedEvent(filmId, userId, -1, likesOf(filmId)));
+    }
+
+    // Убирает лайк из индексов без событий: он ещё не был учтён в счётчиках
+    private void forgetLike(Long filmId, Long userId) {
+        if (approximatePopularity.isEnabled()) {
+            approximatePopularity.recordUnlike(filmId, userId);
+            return;
+        }
+        Map<Long, Long> likes = filmLikes.get(filmId);
+        if (likes != null) {
+            likes.remove(userId);
+        }
+        Set<Long> liked = userLikes.get(userId);
+        if (liked != null) {
+            liked.remove(filmId);
+        }
+    }
+
+    /**
+     * Удаляет фильм: из хранилища сразу, лайки, тренды и поисковый индекс — в фоновой очистке
+     * по лайкнувшим этот фильм пользователям, без обхода остальных фильмов.
+     */
+    public void deleteFilm(Long filmId) {
+        filmStorage.delete(filmId);
+        eventPublisher.publishEvent(new FilmChangedEvent(filmId));
+        tombstones.buryFilm(filmId, () -> {
+            likesLock.readLock().lock();
+            try {
+                // Приближённый режим заодно освобождает место фильма в Space-Saving
+                Map<Long, Long> likes = approximatePopularity.isEnabled()
+                        ? approximatePopularity.removeFilm(filmId) : filmLikes.remove(filmId);
+                if (likes != null) {
+                    for (Long userId : likes.keySet()) {
+                        Set<Long> liked = userLikes.get(userId);
+                        if (liked != null) {
+                            liked.remove(filmId);
+                        }
+                    }
+                }
+                trendingCounters.remove(filmId);
+            } finally {
+                likesLock.readLock().unlock();
+            }
+            reindex(filmId);
+            likeEpoch.incrementAndGet();
+        });
+        log.info("Фильм с ID: {} удалён, ссылки будут очищены в фоне", filmId);
+    }
+
+    // Лайки удалённого пользователя снимаются по обратному индексу
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        Set<Long> liked;
+        List<FilmLikesChangedEvent> events = new ArrayList<>();
+        likesLock.readLock().lock();
+        try {
+            if (approximatePopularity.isEnabled()) {
+                // Обратного индекса в приближённом режиме нет: множество лайков проходится целиком
+                Map<Long, Long> removed = approximatePopularity.removeUser(event.userId());
+                removed.forEach((filmId, likedAt) -> likeRemoved(filmId, event.userId(), likedAt, events));
+                liked = removed.keySet();
+            } else {
+                liked = userLikes.remove(event.userId());
+                if (liked == null) {
+                    return;
+                }
+                for (Long filmId : liked) {
+                    unlike(filmId, event.userId(), events);
+                }
+            }
+        } finally {
+            likesLock.readLock().unlock();
+        }
+        events.forEach(eventPublisher::publishEvent);
+        log.info("Сняты лайки удалённого пользователя с ID: {} у {} фильмов", event.userId(), liked.size());
+    }
+
+    /**
+     * Пересчитывает с нуля производные от лайков индексы — обратный индекс пользователей и счётчики трендов,
+     * сверяет их с текущими и подменяет пересчитанными. Изменения лайков на время пересчёта ждут,
+     * чтение продолжает работать со старыми индексами до подмены.
+     */
+    public AggregateRebuildReport rebuildAggregates() {
+        if (approximatePopularity.isEnabled()) {
+            throw new ValidationException("Пересчёт индексов лайков недоступен в приближённом режиме");
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        likesLock.writeLock().lock();
+        try {
+            long started = System.nanoTime();
+            LikeAggregates rebuilt = LikeAggregates.build(filmLikes, pool);
+            List<Long> users = rebuilt.divergingUsers(userLikes, pool);
+            List<Long> films = rebuilt.divergingFilms(trendingCounters, clock.millis(), pool);
+            userLikes = rebuilt.userLikes();
+            trendingCounters.replaceWith(rebuilt.trending());
+            AggregateRebuildReport report = new AggregateRebuildReport(rebuilt.films(), rebuilt.likes(),
+                    rebuilt.userLikes().size(), users.size(), films.size(), sample(users), sample(films),
+                    (System.nanoTime() - started) / 1_000_000);
+            if (users.isEmpty() && films.isEmpty()) {
+                log.info("Производные индексы лайков пересчитаны за {} мс, расхождений нет", report.durationMillis());
+            } else {
+                log.warn("Производные индексы лайков расходились и заменены: пользователи {}, фильмы {}",
+                        report.sampleUserIds(), report.sampleFilmIds());
+            }
+            return report;
+        } finally {
+            likesLock.writeLock().unlock();
+        }
+    }
+
+    private static List<Long> sample(List<Long> ids) {
+        return List.copyOf(ids.subList(0, Math.min(ids.size(), AggregateRebuildReport.SAMPLE_SIZE)));
+    }
+
+    // Число лайков фильма; в приближённом режиме — оценка
+    private int likesOf(Long filmId) {
+        if (approximatePopularity.isEnabled()) {
+            return (int) Math.min(Integer.MAX_VALUE, approximatePopularity.estimateLikes(filmId));
+        }
+        return likeCount(filmLikes.get(filmId));
+    }
+
+    // Число лайков без пользователей, удалённых, но ещё не вычищенных
+    private int likeCount(Map<Long, Long> likes) {
+        if (likes == null) {
+            return 0;
+        }
+        if (!tombstones.hasDeletedUsers()) {
+            return likes.size();
+        }
+        int count = 0;
+        for (Long userId : likes.keySet()) {
+            if (!tombstones.isUserDeleted(userId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     public List<Film> getTopFilms(int count) {
-        // Получаем 10 наиболее популярных фильмов по количеству лайков
-        return filmLikes.entrySet().stream()
-                .sorted((e1, e2) -> Integer.compare(e2.getValue().size(), e1.getValue().size())) // Сортируем по количеству лайков
-                .limit(count) // Ограничиваем количество
-                .map(Map.Entry::getKey) // Получаем ID фильмов
-                .map(filmStorage::findById) // Получаем фильмы по ID
-                .filter(Objects::nonNull) // Фильтруем null
-                .collect(Collectors.toList()); // Собираем в список
+        TopFilmsEvent event = TopFilmsEvent.start();
+        if (approximatePopularity.isEnabled()) {
+            List<Film> top = filmStorage.findByIds(
+                    approximatePopularity.top(count, filmId -> filmStorage.getVersion(filmId) != 0));
+            event.finish(true, count, 0, top.size());
+            return top;
+        }
+        // Отбор идёт в хранилище: при шардировании каждый шард выбирает свой топ, затем они сливаются.
+        // Кандидаты — только фильмы с лайками, поэтому фильмы, которые ни разу не лайкали, не перебираются.
+        List<Long> topIds = filmStorage.findTopIds(filmLikes.keySet(), count, filmId -> {
+            Map<Long, Long> likes = filmLikes.get(filmId);
+            return likes == null ? -1 : likeCount(likes);
+        });
+        List<Film> top = filmStorage.findByIds(topIds); // Получаем фильмы за один проход по хранилищу
+        event.finish(false, count, filmLikes.size(), top.size());
+        return top;
+    }
+
+    // Фильмы, набравшие больше всего лайков за последнее окно времени
+    public List<Film> getTrendingFilms(TrendWindow window, int count) {
+        List<Long> filmIds = trendingCounters.top(window, count, clock.millis());
+        log.info("Трендовые фильмы за окно {}: {}", window, filmIds);
+        return filmStorage.findByIds(filmIds);
+    }
+
+    // Поиск фильмов по названию и/или описанию
+    public List<Film> search(String query, Set<FilmSearchIndex.Field> fields) {
+        Map<Long, Double> relevance = searchIndex.search(query, fields);
+        log.info("По запросу '{}' найдено фильмов: {}", query, relevance.size());
+        // Итоговый рейтинг: релевантность, усиленная количеством лайков
+        Map<Long, Double> ranks = new HashMap<>();
+        for (Map.Entry<Long, Double> entry : relevance.entrySet()) {
+            int likeCount = likesOf(entry.getKey());
+            ranks.put(entry.getKey(), entry.getValue() * (1 + SEARCH_LIKES_BOOST * Math.log1p(likeCount)));
+        }
+        return filmStorage.findByIds(ranks.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList()));
     }
 
     public Film getById(Long id) {
         return filmStorage.findById(id);
     }
+
+    // Пакетное получение фильмов: отсутствующие ID не приводят к ошибке, а просто не попадают в ответ
+    public List<Film> getByIds(List<Long> ids) {
+        List<Film> films = filmStorage.findByIds(ids);
+        if (films.size() < ids.size()) {
+            log.info("Из {} запрошенных фильмов найдено {}", ids.size(), films.size());
+        }
+        return films;
+    }
+
+    // ETag фильма по счётчику версий; null, если фильма нет
+    public String getFilmEtag(Long id) {
+        long version = filmStorage.getVersion(id);
+        return version == 0 ? null : etags.of("film-" + id + "-" + version);
+    }
+
+    // Список популярных меняется при изменении лайков или самих фильмов
+    public String getTopFilmsEtag(int count) {
+        return etags.of("popular-" + count + "-" + likeEpoch.get() + "-" + filmStorage.getModificationCount());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.graph.CsrGraph;
+import ru.yandex.practicum.filmorate.graph.GraphStatistics;
+import ru.yandex.practicum.filmorate.graph.ShortestPath;
+import ru.yandex.practicum.filmorate.model.FriendGraphStats;
+import ru.yandex.practicum.filmorate.model.FriendshipPath;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Аналитика графа дружбы. Запросы работают со снимком графа в формате CSR,
+ * который перестраивается, только если с момента построения менялись пользователи.
+ */
+@Slf4j
+@Service
+public class FriendGraphService {
+
+    private final UserStorage userStorage;
+    private volatile Snapshot snapshot;
+    private volatile CachedStats cachedStats;
+
+    public FriendGraphService(UserStorage userStorage) {
+        this.userStorage = userStorage;
+    }
+
+    // Кратчайшая цепочка друзей между пользователями
+    public FriendshipPath getDistance(Long userId, Long otherId) {
+        requireUser(userId);
+        requireUser(otherId);
+        CsrGraph graph = graph().graph();
+        if (graph.indexOf(userId) < 0 || graph.indexOf(otherId) < 0) {
+            // Хранилище добавляет пользователя раньше, чем увеличивает счётчик изменений,
+            // поэтому снимок мог казаться актуальным — перестраиваем его один раз
+            graph = rebuild(userStorage.getModificationCount()).graph();
+        }
+        int source = graph.indexOf(userId);
+        int target = graph.indexOf(otherId);
+        if (source < 0 || target < 0) {
+            throw new NotFoundException("Пользователь с id=" + (source < 0 ? userId : otherId) + " не найден");
+        }
+        int[] path = ShortestPath.find(graph, source, target);
+        if (path == null) {
+            log.info("Пользователи {} и {} не связаны цепочкой друзей", userId, otherId);
+            throw new NotFoundException("Пользователи с id=" + userId + " и id=" + otherId
+                    + " не связаны цепочкой друзей");
+        }
+        List<Long> ids = new ArrayList<>(path.length);
+        for (int vertex : path) {
+            ids.add(graph.idOf(vertex));
+        }
+        return new FriendshipPath(userId, otherId, path.length - 1, ids);
+    }
+
+    public FriendGraphStats getStats() {
+        Snapshot current = graph();
+        CachedStats cached = cachedStats;
+        if (cached != null && cached.version() == current.version()) {
+            return cached.stats();
+        }
+        long started = System.nanoTime();
+        FriendGraphStats stats = GraphStatistics.compute(current.graph(), ForkJoinPool.commonPool());
+        log.info("Статистика графа дружбы ({} пользователей) посчитана за {} мс",
+                stats.users(), (System.nanoTime() - started) / 1_000_000);
+        cachedStats = new CachedStats(current.version(), stats);
+        return stats;
+    }
+
+    private Snapshot graph() {
+        // Счётчик читается до снимка пользователей: если изменения придут во время построения,
+        // следующий запрос увидит новый счётчик и перестроит граф
+        long version = userStorage.getModificationCount();
+        Snapshot current = snapshot;
+        if (current == null || current.version() != version) {
+            current = rebuild(version);
+        }
+        return current;
+    }
+
+    private Snapshot rebuild(long version) {
+        Snapshot current = new Snapshot(version, CsrGraph.build(userStorage.findAll()));
+        snapshot = current;
+        return current;
+    }
+
+    private void requireUser(Long id) {
+        if (userStorage.getById(id) == null) {
+            throw new NotFoundException("Пользователь с id=" + id + " не найден");
+        }
+    }
+
+    private record Snapshot(long version, CsrGraph graph) {
+    }
+
+    private record CachedStats(long version, FriendGraphStats stats) {
+    }
+}
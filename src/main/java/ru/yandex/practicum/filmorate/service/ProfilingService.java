@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.ProfilingStatus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Запись Java Flight Recorder по запросу: одна за раз, с ограничением длительности и размера.
+ * Кроме стандартных событий JVM в запись попадают события приложения из пакета profiling.
+ * Остановка сбрасывает запись во временный файл и отдаёт его содержимое.
+ * Включается свойством filmorate.profiling.enabled.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "filmorate.profiling.enabled", havingValue = "true")
+public class ProfilingService {
+
+    private static final Set<String> SETTINGS = Set.of("default", "profile");
+
+    private final Duration maxDuration;
+    private final long maxSizeBytes;
+    private Recording recording;
+
+    public ProfilingService(@Value("${filmorate.profiling.max-duration-seconds:600}") long maxDurationSeconds,
+                            @Value("${filmorate.profiling.max-size-mb:64}") long maxSizeMb) {
+        this.maxDuration = Duration.ofSeconds(maxDurationSeconds);
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+    }
+
+    /**
+     * Запускает запись. По истечении duration запись останавливается сама, но данные хранятся до вызова
+     * {@link #stop()}; при превышении размера отбрасываются самые старые части.
+     */
+    public synchronized ProfilingStatus start(long durationSeconds, String settings) {
+        if (recording != null) {
+            throw new ValidationException("Запись профиля уже идёт, сначала остановите её");
+        }
+        if (durationSeconds <= 0 || durationSeconds > maxDuration.toSeconds()) {
+            throw new ValidationException("Длительность записи должна быть от 1 до " + maxDuration.toSeconds()
+                    + " секунд");
+        }
+        if (!SETTINGS.contains(settings)) {
+            throw new ValidationException("Неизвестный набор настроек JFR: " + settings);
+        }
+        Recording started;
+        try {
+            started = new Recording(Configuration.getConfiguration(settings));
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Не удалось загрузить настройки JFR " + settings, e);
+        }
+        started.setName("filmorate-on-demand");
+        started.setToDisk(true);
+        started.setMaxSize(maxSizeBytes);
+        started.setDuration(Duration.ofSeconds(durationSeconds));
+        started.start();
+        recording = started;
+        log.info("Запущена запись JFR на {} с, настройки {}", durationSeconds, settings);
+        return status(started);
+    }
+
+    public synchronized ProfilingStatus getStatus() {
+        if (recording == null) {
+            return new ProfilingStatus(RecordingState.CLOSED.name(), null, 0, maxSizeBytes, 0);
+        }
+        return status(recording);
+    }
+
+    // Останавливает запись и возвращает её в формате .jfr
+    public synchronized byte[] stop() {
+        if (recording == null) {
+            throw new NotFoundException("Запись профиля не запущена");
+        }
+        Recording stopped = recording;
+        recording = null;
+        Path file = null;
+        try {
+            if (stopped.getState() == RecordingState.RUNNING) {
+                stopped.stop();
+            }
+            file = Files.createTempFile("filmorate-", ".jfr");
+            stopped.dump(file);
+            byte[] content = Files.readAllBytes(file);
+            log.info("Запись JFR остановлена, {} байт", content.length);
+            return content;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось сохранить запись JFR", e);
+        } finally {
+            stopped.close();
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Не удалось удалить временный файл записи {}", file, e);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private ProfilingStatus status(Recording current) {
+        Duration duration = current.getDuration();
+        return new ProfilingStatus(current.getState().name(), current.getStartTime(),
+                duration == null ? 0 : duration.toSeconds(), maxSizeBytes, current.getSize());
+    }
+}
@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.ReviewStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.validation.ModelRules;
+
+import java.util.List;
+
+@Slf4j
+@Service
+public class ReviewService {
+
+    private static final int LIKE = 1;
+    private static final int DISLIKE = -1;
+
+    private final ReviewStorage reviewStorage;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+
+    public ReviewService(ReviewStorage reviewStorage, FilmStorage filmStorage, UserStorage userStorage) {
+        this.reviewStorage = reviewStorage;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+    }
+
+    public Review create(Review review) {
+        validateReview(review, false);
+        requireUser(review.userId());
+        filmStorage.findById(review.filmId());
+        Review created = reviewStorage.create(review);
+        // Фильм или автор могли быть удалены после проверки, а очистка их отзывов — уже пройти.
+        // Отзыв сохраняется до повторной проверки, поэтому его увидит либо проверка, либо очистка.
+        if (filmStorage.getVersion(created.filmId()) == 0 || userStorage.getById(created.userId()) == null) {
+            try {
+                reviewStorage.delete(created.reviewId());
+            } catch (NotFoundException e) {
+                // Отзыв уже снят очисткой
+            }
+            log.warn("Фильм с ID: {} или пользователь с ID: {} удалён", created.filmId(), created.userId());
+            throw new NotFoundException("Фильм или пользователь не найден");
+        }
+        log.info("Пользователь {} оставил отзыв {} на фильм {}", created.userId(), created.reviewId(),
+                created.filmId());
+        return created;
+    }
+
+    public Review update(Review review) {
+        if (review.reviewId() == null) {
+            log.warn("Не указан ID отзыва");
+            throw new ValidationException("Id должен быть указан");
+        }
+        validateReview(review, true);
+        Review updated = reviewStorage.update(review);
+        log.info("Отзыв с ID {} обновлён", updated.reviewId());
+        return updated;
+    }
+
+    public void delete(Long reviewId) {
+        reviewStorage.delete(reviewId);
+        log.info("Отзыв с ID {} удалён", reviewId);
+    }
+
+    public Review getById(Long reviewId) {
+        Review review = reviewStorage.getById(reviewId);
+        if (review == null) {
+            throw new NotFoundException("Отзыв с id=" + reviewId + " не найден");
+        }
+        return review;
+    }
+
+    // Самые полезные отзывы фильма или, если filmId не указан, всех фильмов
+    public List<Review> getReviews(Long filmId, int count) {
+        if (count <= 0) {
+            throw new ValidationException("Количество отзывов должно быть положительным");
+        }
+        return reviewStorage.findTop(filmId, count);
+    }
+
+    public void addLike(Long reviewId, Long userId) {
+        vote(reviewId, userId, LIKE);
+    }
+
+    public void addDislike(Long reviewId, Long userId) {
+        vote(reviewId, userId, DISLIKE);
+    }
+
+    public void removeLike(Long reviewId, Long userId) {
+        removeVote(reviewId, userId, LIKE);
+    }
+
+    public void removeDislike(Long reviewId, Long userId) {
+        removeVote(reviewId, userId, DISLIKE);
+    }
+
+    // Удалённый фильм публикует то же событие, что и изменённый; отзывы снимаются, если фильма больше нет
+    @EventListener
+    public void onFilmChanged(FilmChangedEvent event) {
+        if (filmStorage.getVersion(event.filmId()) == 0) {
+            int deleted = reviewStorage.deleteByFilm(event.filmId());
+            log.info("Удалено {} отзывов удалённого фильма с ID {}", deleted, event.filmId());
+        }
+    }
+
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        int deleted = reviewStorage.deleteByUser(event.userId());
+        log.info("Удалено {} отзывов удалённого пользователя с ID {}, его оценки сняты", deleted, event.userId());
+    }
+
+    private void vote(Long reviewId, Long userId, int value) {
+        requireUser(userId);
+        Review review = reviewStorage.vote(reviewId, userId, value);
+        log.info("Пользователь {} оценил отзыв {}, полезность {}", userId, reviewId, review.useful());
+    }
+
+    private void removeVote(Long reviewId, Long userId, int value) {
+        requireUser(userId);
+        Review review = reviewStorage.removeVote(reviewId, userId, value);
+        log.info("Пользователь {} снял оценку отзыва {}, полезность {}", userId, reviewId, review.useful());
+    }
+
+    private void requireUser(Long userId) {
+        if (userStorage.getById(userId) == null) {
+            throw new NotFoundException("Пользователь с id=" + userId + " не найден");
+        }
+    }
+
+    private void validateReview(Review review, boolean isUpdate) {
+        List<String> violations = ModelRules.REVIEW.validate(review, isUpdate);
+        if (!violations.isEmpty()) {
+            log.warn("{} отзыва с ID: {} не прошло проверку: {}",
+                    isUpdate ? "Обновление" : "Создание", review.reviewId(), violations);
+            throw new ValidationException(String.join("; ", violations));
+        }
+    }
+}
@@ -1,132 +1,137 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.profiling.CommonFriendsEvent;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.validation.ModelRules;
 
 import java.util.*;
-import java.time.LocalDate;
 
 @Slf4j
 @Service
 public class UserService {
 
-
     private final UserStorage userStorage;
+    private final Tombstones tombstones;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Etags etags = new Etags();
 
-    public UserService(UserStorage userStorage) {
+    public UserService(UserStorage userStorage, Tombstones tombstones, ApplicationEventPublisher eventPublisher) {
         this.userStorage = userStorage;
+        this.tombstones = tombstones;
+        this.eventPublisher = eventPublisher;
     }
 
     public Collection<User> findAllUsers() {
-        return userStorage.findAll();
+        Collection<User> users = userStorage.findAll();
+        return tombstones.hasDeletedUsers() ? users.stream().map(this::withoutDeletedFriends).toList() : users;
     }
 
     public User createUser(User user) {
         validateUser(user, false);
 
-        if (user.getName() == null || user.getName().isBlank()) {
-            user.setName(user.getLogin());
+        if (user.name() == null || user.name().isBlank()) {
+            user = user.withName(user.login());
             log.info("Имя пользователя не указано, установлено имя = логин");
         }
 
-        if (user.getFriends() == null) {
-            user.setFriends(new HashSet<>());
-        }
-
         return userStorage.create(user);
     }
 
     public User updateUser(User user) {
         // Проверяем, указан ли ID пользователя
-        if (user.getId() == null) {
+        if (user.id() == null) {
             log.warn("Не указан ID пользователя");
             throw new ValidationException("Id должен быть указан");
         }
 
         // Проверяем, существует ли пользователь с указанным ID
-        User existingUser = getUserById(user.getId());
+        getUserById(user.id());
 
         // Валидация пользователя
         validateUser(user, true);
 
-        // Обновляем поля пользователя, если они не равны null
-        if (user.getEmail() != null) {
-            existingUser.setEmail(user.getEmail());
-        }
-        if (user.getLogin() != null) {
-            existingUser.setLogin(user.getLogin());
-        }
-        if (user.getBirthday() != null) {
-            existingUser.setBirthday(user.getBirthday());
-        }
-        if (user.getName() == null || user.getName().isBlank()) {
-            existingUser.setName(existingUser.getLogin());
-        } else {
-            existingUser.setName(user.getName());
-        }
+        // Собираем новый снимок из полей, которые не равны null, и атомарно заменяем им текущий
+        User updated = userStorage.update(user.id(), existingUser -> {
+            User.UserBuilder builder = existingUser.toBuilder();
+            if (user.email() != null) {
+                builder.email(user.email());
+            }
+            if (user.login() != null) {
+                builder.login(user.login());
+            }
+            if (user.birthday() != null) {
+                builder.birthday(user.birthday());
+            }
+            if (user.name() == null || user.name().isBlank()) {
+                builder.name(user.login() != null ? user.login() : existingUser.login());
+            } else {
+                builder.name(user.name());
+            }
+            return builder.build();
+        });
 
-        log.info("Пользователь с id {} обновлен", user.getId());
-        return userStorage.update(existingUser);
+        log.info("Пользователь с id {} обновлен", user.id());
+        return withoutDeletedFriends(updated);
     }
 
     private void validateUser(User user, boolean isUpdate) {
-        // Проверяем E-mail
-        if (!isUpdate || user.getEmail() != null) {
-            if (user.getEmail() == null || user.getEmail().isBlank() || !user.getEmail().contains("@")) {
-                log.warn("{} Введен некорректный E-mail: '{}' ", isUpdate ? "Обновление" : "Создание", user.getEmail());
-                throw new ValidationException("E-mail должен быть указан и содержать символ '@'");
-            }
-            boolean emailUsed = false;
-            for (User u : userStorage.findAll()) {
-                if ((!isUpdate || !u.getId().equals(user.getId())) && u.getEmail().equalsIgnoreCase(user.getEmail())) {
-                    emailUsed = true;
-                    break;
-                }
-            }
-            if (emailUsed) {
-                log.warn("{} Введен E-mail, который уже используется: '{}' ", isUpdate ? "Обновление" : "Создание", user.getEmail());
-                throw new ValidationException("Этот E-mail уже используется");
-            }
+        List<String> violations = ModelRules.USER.validate(user, isUpdate);
+        if (!violations.isEmpty()) {
+            log.warn("{} пользователя с ID: {} не прошло проверку: {}",
+                    isUpdate ? "Обновление" : "Создание", user.id(), violations);
+            throw new ValidationException(String.join("; ", violations));
         }
 
-        // Проверяем логин
-        if (!isUpdate || user.getLogin() != null) {
-            if (user.getLogin() == null || user.getLogin().isBlank() || user.getLogin().contains(" ")) {
-                log.warn("Введен некорректный логин: '{}' при {} ", isUpdate ? "обновлении" : "создании", user.getLogin());
-                throw new ValidationException("Логин не может быть пустым и не должен содержать пробелы");
+        // Проверяем, что E-mail не занят другим пользователем
+        if (user.email() != null) {
+            for (User u : userStorage.findAll()) {
+                if ((!isUpdate || !u.id().equals(user.id())) && u.email().equalsIgnoreCase(user.email())) {
+                    log.warn("{} Введен E-mail, который уже используется: '{}' ",
+                            isUpdate ? "Обновление" : "Создание", user.email());
+                    throw new ValidationException("Этот E-mail уже используется");
+                }
             }
         }
-
-        // Проверяем дату рождения
-        if (user.getBirthday() != null && user.getBirthday().isAfter(LocalDate.now())) {
-            log.warn("Введена дата рождения в будущем: '{}' при {} ", isUpdate ? "обновлении" : "создании", user.getBirthday());
-            throw new ValidationException("Дата рождения не может быть в будущем");
-        }
     }
 
     // Добавление друга
     public void addFriend(Long userId, Long friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-
-        if (user.getFriends() == null) {
-            user.setFriends(new HashSet<>());
+        getUserById(userId);
+        getUserById(friendId);
+
+        boolean[] added = new boolean[2];
+        userStorage.update(userId, user -> {
+            added[0] = !user.friends().contains(friendId);
+            return added[0] ? user.withFriends(with(user.friends(), friendId)) : user;
+        });
+        try {
+            userStorage.update(friendId, friend -> {
+                added[1] = !friend.friends().contains(userId);
+                return added[1] ? friend.withFriends(with(friend.friends(), userId)) : friend;
+            });
+        } catch (NotFoundException e) {
+            dropFriend(userId, friendId);
+            throw e;
         }
-        if (friend.getFriends() == null) {
-            friend.setFriends(new HashSet<>());
+        // Если один из пользователей удалён между двумя изменениями, его очистка могла не увидеть новую дружбу
+        if (userStorage.getById(userId) == null || userStorage.getById(friendId) == null) {
+            dropFriend(userId, friendId);
+            dropFriend(friendId, userId);
+            throw new NotFoundException("Пользователь не найден");
         }
 
-        boolean addedToUser = user.getFriends().add(friendId);
-        boolean addedToFriend = friend.getFriends().add(userId);
-
-        if (addedToUser && addedToFriend) {
+        if (added[0] && added[1]) {
             log.info("Пользователи {} и {} теперь друзья", userId, friendId);
-            userStorage.update(user);
-            userStorage.update(friend);
+            eventPublisher.publishEvent(new FriendshipChangedEvent(userId, friendId, true));
         } else {
             log.info("Пользователи {} и {} уже являются друзьями", userId, friendId);
         }
@@ -134,48 +139,92 @@ public class UserService {
 
     // Удаление из друзей
     public void removeFriend(Long userId, Long friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-
-        boolean removedFromUser = false;
-        boolean removedFromFriend = false;
-
-        if (user.getFriends() != null) {
-            removedFromUser = user.getFriends().remove(friendId);
-        }
-        if (friend.getFriends() != null) {
-            removedFromFriend = friend.getFriends().remove(userId);
-        }
-
-        if (removedFromUser || removedFromFriend) {
+        getUserById(userId);
+        getUserById(friendId);
+
+        boolean[] removed = new boolean[2];
+        userStorage.update(userId, user -> {
+            removed[0] = user.friends().contains(friendId);
+            return removed[0] ? user.withFriends(without(user.friends(), friendId)) : user;
+        });
+        userStorage.update(friendId, friend -> {
+            removed[1] = friend.friends().contains(userId);
+            return removed[1] ? friend.withFriends(without(friend.friends(), userId)) : friend;
+        });
+
+        if (removed[0] || removed[1]) {
             log.info("Пользователи {} и {} больше не друзья", userId, friendId);
-            userStorage.update(user);
-            userStorage.update(friend);
+            eventPublisher.publishEvent(new FriendshipChangedEvent(userId, friendId, false));
         } else {
             log.info("Пользователи {} и {} не были друзьями", userId, friendId);
         }
     }
 
+    /**
+     * Удаляет пользователя. Из хранилища он пропадает сразу, а из списков друзей убирается в фоне:
+     * снимок удалённого пользователя содержит его друзей, поэтому другие пользователи не перебираются.
+     * Лайки удалённого пользователя снимают слушатели {@link UserDeletedEvent}.
+     */
+    public void deleteUser(Long userId) {
+        User deleted = userStorage.delete(userId);
+        tombstones.buryUser(userId, () -> {
+            for (Long friendId : deleted.friends()) {
+                if (dropFriend(friendId, userId)) {
+                    eventPublisher.publishEvent(new FriendshipChangedEvent(friendId, userId, false));
+                }
+            }
+            eventPublisher.publishEvent(new UserDeletedEvent(userId));
+        });
+        log.info("Пользователь с ID {} удалён, ссылки будут очищены в фоне", userId);
+    }
+
+    // Убирает friendId из друзей userId, если userId ещё существует; true, если дружба была
+    private boolean dropFriend(Long userId, Long friendId) {
+        boolean[] removed = new boolean[1];
+        try {
+            userStorage.update(userId, user -> {
+                removed[0] = user.friends().contains(friendId);
+                return removed[0] ? user.withFriends(without(user.friends(), friendId)) : user;
+            });
+        } catch (NotFoundException e) {
+            return false;
+        }
+        return removed[0];
+    }
+
+    private static Set<Long> with(Set<Long> ids, Long id) {
+        Set<Long> copy = new HashSet<>(ids);
+        copy.add(id);
+        return copy;
+    }
+
+    private static Set<Long> without(Set<Long> ids, Long id) {
+        Set<Long> copy = new HashSet<>(ids);
+        copy.remove(id);
+        return copy;
+    }
+
     // Получение общего списка друзей двух пользователей
     public List<User> getCommonFriends(Long userId1, Long userId2) {
+        CommonFriendsEvent event = CommonFriendsEvent.start();
         User user1 = getUserById(userId1);
         User user2 = getUserById(userId2);
 
-        Set<Long> friends1 = (user1.getFriends() != null) ? user1.getFriends() : new HashSet<>();
-        Set<Long> friends2 = (user2.getFriends() != null) ? user2.getFriends() : new HashSet<>();
+        Set<Long> commonIds = new HashSet<>(user1.friends());
+        commonIds.retainAll(user2.friends());
 
-        Set<Long> commonIds = new HashSet<>(friends1);
-        commonIds.retainAll(friends2);
-
-        List<User> commonUsers = new ArrayList<>();
+        List<User> common = withoutDeletedFriends(userStorage.findByIds(commonIds));
+        event.finish(userId1, userId2, user1.friends().size(), user2.friends().size(), common.size());
+        return common;
+    }
 
-        for (Long id : commonIds) {
-            User u = getUserById(id);
-            if (u != null) {
-                commonUsers.add(u);
-            }
+    // Пакетное получение пользователей: отсутствующие ID не приводят к ошибке, а просто не попадают в ответ
+    public List<User> getUsersByIds(List<Long> ids) {
+        List<User> users = withoutDeletedFriends(userStorage.findByIds(ids));
+        if (users.size() < ids.size()) {
+            log.info("Из {} запрошенных пользователей найдено {}", ids.size(), users.size());
         }
-        return commonUsers;
+        return users;
     }
 
     public User getUserById(Long id) {
@@ -183,23 +232,38 @@ public class UserService {
         if (u == null) {
             throw new NotFoundException("Пользователь с id=" + id + " не найден");
         }
-        return u;
+        return withoutDeletedFriends(u);
+    }
+
+    // Список друзей зависит и от самих друзей, поэтому учитываем общий счётчик изменений пользователей
+    public String getFriendsEtag(Long userId) {
+        if (userStorage.getVersion(userId) == 0) {
+            return null;
+        }
+        return etags.of("friends-" + userId + "-" + userStorage.getModificationCount());
     }
 
     public List<User> getFriends(Long userId) {
         User user = getUserById(userId);
-        Set<Long> friendIds = user.getFriends();
-        if (friendIds == null || friendIds.isEmpty()) {
+        Set<Long> friendIds = user.friends();
+        if (friendIds.isEmpty()) {
             return Collections.emptyList();
         }
-        List<User> friends = new ArrayList<>();
-        for (Long id : friendIds) {
-            try {
-                friends.add(getUserById(id));
-            } catch (NotFoundException e) {
-                log.warn("Пользователь с id={} не найден: {}", id, e.getMessage());
-            }
+        // Отсутствующие друзья пропускаются хранилищем без исключений
+        return withoutDeletedFriends(userStorage.findByIds(friendIds));
+    }
+
+    // Пока фоновая очистка не убрала удалённых пользователей из списков друзей, скрываем их при чтении
+    private User withoutDeletedFriends(User user) {
+        if (!tombstones.hasDeletedUsers() || user.friends().stream().noneMatch(tombstones::isUserDeleted)) {
+            return user;
         }
-        return friends;
+        Set<Long> friends = new HashSet<>(user.friends());
+        friends.removeIf(tombstones::isUserDeleted);
+        return user.withFriends(friends);
+    }
+
+    private List<User> withoutDeletedFriends(List<User> users) {
+        return tombstones.hasDeletedUsers() ? users.stream().map(this::withoutDeletedFriends).toList() : users;
     }
 }
@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс по названию и описанию фильмов.
+ * Обновляется инкрементально при создании и обновлении фильма,
+ * поддерживает префиксный поиск для подсказок при вводе.
+ */
+@Component
+public class FilmSearchIndex {
+
+    public enum Field {
+        TITLE(2.0),
+        DESCRIPTION(1.0);
+
+        private final double weight;
+
+        Field(double weight) {
+            this.weight = weight;
+        }
+    }
+
+    // Вес совпадения по префиксу относительно точного совпадения термина
+    private static final double PREFIX_MATCH_FACTOR = 0.5;
+
+    // term -> (filmId -> частота термина) для каждого поля
+    private final Map<Field, TreeMap<String, Map<Long, Integer>>> postings = new HashMap<>();
+    // filmId -> проиндексированные термины, нужны для удаления старых записей при обновлении
+    private final Map<Field, Map<Long, Map<String, Integer>>> filmTerms = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public FilmSearchIndex() {
+        for (Field field : Field.values()) {
+            postings.put(field, new TreeMap<>());
+            filmTerms.put(field, new HashMap<>());
+        }
+    }
+
+    public void index(Film film) {
+        lock.writeLock().lock();
+        try {
+            indexField(Field.TITLE, film.id(), film.name());
+            indexField(Field.DESCRIPTION, film.id(), film.description());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long filmId) {
+        lock.writeLock().lock();
+        try {
+            for (Field field : Field.values()) {
+                indexField(field, filmId, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает релевантность фильмов, содержащих все термины запроса.
+     * Каждый термин ищется как префикс, точное совпадение весит больше.
+     */
+    public Map<Long, Double> search(String query, Set<Field> fields) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || fields.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> result = null;
+            for (String term : terms) {
+                Map<Long, Double> termScores = scoreTerm(term, fields);
+                if (result == null) {
+                    result = termScores;
+                } else {
+                    // Пересечение: фильм должен содержать все термины запроса
+                    result.keySet().retainAll(termScores.keySet());
+                    result.replaceAll((filmId, score) -> score + termScores.get(filmId));
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> scoreTerm(String term, Set<Field> fields) {
+        Map<Long, Double> scores = new HashMap<>();
+        for (Field field : fields) {
+            SortedMap<String, Map<Long, Integer>> matches = postings.get(field)
+                    .subMap(term, term + Character.MAX_VALUE);
+            for (Map.Entry<String, Map<Long, Integer>> entry : matches.entrySet()) {
+                double factor = entry.getKey().length() == term.length() ? 1.0 : PREFIX_MATCH_FACTOR;
+                for (Map.Entry<Long, Integer> posting : entry.getValue().entrySet()) {
+                    scores.merge(posting.getKey(), field.weight * factor * posting.getValue(), Double::sum);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private void indexField(Field field, Long filmId, String text) {
+        TreeMap<String, Map<Long, Integer>> fieldPostings = postings.get(field);
+        Map<String, Integer> oldTerms = filmTerms.get(field).remove(filmId);
+        if (oldTerms != null) {
+            for (String term : oldTerms.keySet()) {
+                Map<Long, Integer> films = fieldPostings.get(term);
+                films.remove(filmId);
+                if (films.isEmpty()) {
+                    fieldPostings.remove(term);
+                }
+            }
+        }
+
+        Map<String, Integer> newTerms = new HashMap<>();
+        for (String term : tokenize(text)) {
+            newTerms.merge(term, 1, Integer::sum);
+        }
+        if (newTerms.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : newTerms.entrySet()) {
+            fieldPostings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(filmId, entry.getValue());
+        }
+        filmTerms.get(field).put(filmId, newTerms);
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(normalize(c));
+            } else if (!current.isEmpty()) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (!current.isEmpty()) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    // Приводит символ к нижнему регистру, заменяет «ё» на «е» и убирает диакритику у латиницы.
+    // Кириллицу не раскладываем: иначе «й» превратится в «и».
+    private static char normalize(char c) {
+        char lower = Character.toLowerCase(c);
+        if (lower == 'ё') {
+            return 'е';
+        }
+        if (lower >= 'À' && lower <= 'ɏ') {
+            return Normalizer.normalize(String.valueOf(lower), Normalizer.Form.NFD).charAt(0);
+        }
+        return lower;
+    }
+}
@@ -3,6 +3,8 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.ToLongFunction;
 
 public interface FilmStorage {
     Film create(Film film);
@@ -12,4 +14,20 @@ public interface FilmStorage {
     Collection<Film> findAll();
 
     Film findById(Long filmId);
+
+    // Удаляет фильм и возвращает его последний снимок; NotFoundException, если фильма нет
+    Film delete(Long filmId);
+
+    // Фильмы с указанными ID в порядке запроса; отсутствующие ID пропускаются
+    List<Film> findByIds(Collection<Long> filmIds);
+
+    // ID count фильмов из candidates с наибольшей оценкой score по убыванию;
+    // отсутствующие в хранилище фильмы и фильмы с отрицательной оценкой не участвуют
+    List<Long> findTopIds(Collection<Long> candidates, int count, ToLongFunction<Long> score);
+
+    // Версия фильма, растёт при каждом изменении; 0 — фильма нет
+    long getVersion(Long filmId);
+
+    // Общий счётчик изменений всех фильмов
+    long getModificationCount();
 }
\ No newline at end of file
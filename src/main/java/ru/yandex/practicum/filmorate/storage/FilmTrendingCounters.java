@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Счётчики лайков фильмов в скользящих окнах 1h/24h/7d.
+ * Для каждого фильма хранятся два кольцевых буфера корзин (минутные и часовые),
+ * поэтому память на фильм фиксирована и не зависит от количества лайков.
+ */
+@Component
+public class FilmTrendingCounters {
+
+    private static final long MINUTE_MILLIS = 60_000L;
+    private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+    private static final int MINUTE_BUCKETS = 60;
+    private static final int HOUR_BUCKETS = 7 * 24;
+
+    // Подменяется целиком при пересчёте, см. replaceWith
+    private volatile Map<Long, WindowCounter> counters = new ConcurrentHashMap<>();
+
+    public void recordLike(Long filmId, long likedAtMillis) {
+        counters.computeIfAbsent(filmId, id -> new WindowCounter()).add(likedAtMillis, 1);
+    }
+
+    // Отмена лайка уменьшает ту корзину, в которую он был записан, если она ещё не вытеснена
+    public void recordUnlike(Long filmId, long likedAtMillis) {
+        WindowCounter counter = counters.get(filmId);
+        if (counter != null) {
+            counter.add(likedAtMillis, -1);
+        }
+    }
+
+    public void remove(Long filmId) {
+        counters.remove(filmId);
+    }
+
+    // Лайки фильма за окно; 0, если счётчика нет
+    public long likes(Long filmId, TrendWindow window, long nowMillis) {
+        WindowCounter counter = counters.get(filmId);
+        return counter == null ? 0 : counter.sum(window, nowMillis);
+    }
+
+    public Set<Long> filmIds() {
+        return counters.keySet();
+    }
+
+    /**
+     * Заменяет счётчики пересчитанными одной записью ссылки. Читатели, уже начавшие обход,
+     * дорабатывают со старой картой; изменения после подмены попадают в новую.
+     */
+    public void replaceWith(FilmTrendingCounters rebuilt) {
+        counters = rebuilt.counters;
+    }
+
+    /**
+     * Возвращает ID фильмов с наибольшим числом лайков за окно, по убыванию.
+     * Отбор идёт через кучу размера count, сумма по фильму считается за число корзин окна.
+     */
+    public List<Long> top(TrendWindow window, int count, long nowMillis) {
+        if (count <= 0) {
+            return List.of();
+        }
+        Comparator<long[]> byLikes = Comparator.<long[]>comparingLong(e -> e[1])
+                .thenComparingLong(e -> -e[0]);
+        Map<Long, WindowCounter> current = counters;
+        // Куча не больше числа фильмов со счётчиками, как бы велик ни был count
+        PriorityQueue<long[]> heap = new PriorityQueue<>(Math.min(count, current.size()) + 1, byLikes);
+        for (Map.Entry<Long, WindowCounter> entry : current.entrySet()) {
+            long likes = entry.getValue().sum(window, nowMillis);
+            if (likes <= 0) {
+                continue;
+            }
+            heap.offer(new long[]{entry.getKey(), likes});
+            if (heap.size() > count) {
+                heap.poll();
+            }
+        }
+        List<Long> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll()[0]);
+        }
+        return result.reversed();
+    }
+
+    private static final class WindowCounter {
+        // В stamps хранится номер минуты/часа, к которому относится корзина;
+        // несовпадение означает, что корзина устарела и её нужно обнулить.
+        private final int[] minuteCounts = new int[MINUTE_BUCKETS];
+        private final long[] minuteStamps = new long[MINUTE_BUCKETS];
+        private final int[] hourCounts = new int[HOUR_BUCKETS];
+        private final long[] hourStamps = new long[HOUR_BUCKETS];
+
+        WindowCounter() {
+            Arrays.fill(minuteStamps, -1);
+            Arrays.fill(hourStamps, -1);
+        }
+
+        synchronized void add(long timestampMillis, int delta) {
+            addToBucket(minuteCounts, minuteStamps, timestampMillis / MINUTE_MILLIS, delta);
+            addToBucket(hourCounts, hourStamps, timestampMillis / HOUR_MILLIS, delta);
+        }
+
+        synchronized long sum(TrendWindow window, long nowMillis) {
+            return switch (window) {
+                case HOUR -> sumBuckets(minuteCounts, minuteStamps, nowMillis / MINUTE_MILLIS, MINUTE_BUCKETS);
+                case DAY -> sumBuckets(hourCounts, hourStamps, nowMillis / HOUR_MILLIS, 24);
+                case WEEK -> sumBuckets(hourCounts, hourStamps, nowMillis / HOUR_MILLIS, HOUR_BUCKETS);
+            };
+        }
+
+        private static void addToBucket(int[] counts, long[] stamps, long slot, int delta) {
+            int index = (int) (slot % counts.length);
+            if (stamps[index] != slot) {
+                if (delta < 0 || stamps[index] > slot) {
+                    // Корзина уже перезаписана более свежим временем — отменять нечего
+                    return;
+                }
+                stamps[index] = slot;
+                counts[index] = 0;
+            }
+            counts[index] = Math.max(0, counts[index] + delta);
+        }
+
+        private static long sumBuckets(int[] counts, long[] stamps, long currentSlot, int span) {
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                long slot = stamps[i];
+                if (slot > currentSlot - span && slot <= currentSlot) {
+                    total += counts[i];
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -1,41 +1,54 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.profiling.StorageOperationEvent;
 
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
 
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "filmorate.storage.mode", havingValue = "memory", matchIfMissing = true)
 public class InMemoryFilmStorage implements FilmStorage {
 
-    private final Map<Long, Film> films = new HashMap<>();
+    // Снимки фильмов неизменяемы и заменяются целиком, поэтому чтение не требует блокировок
+    private final Map<Long, Film> films = new ConcurrentHashMap<>();
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    private final AtomicLong modificationCount = new AtomicLong();
+    private final AtomicLong lastId = new AtomicLong();
 
     @Override
     public Film create(Film film) {
-        film.setId(getNextId());
-        films.put(film.getId(), film);
-        log.info("Фильм успешно добавлен: id={}, name={}", film.getId(), film.getName());
-        return film;
+        Film created = film.withId(lastId.incrementAndGet());
+        films.put(created.id(), created);
+        bumpVersion(created.id());
+        log.info("Фильм успешно добавлен: id={}, name={}", created.id(), created.name());
+        return created;
     }
 
     @Override
     public Film update(Film film) {
-        if (!films.containsKey(film.getId())) {
-            throw new NotFoundException("Фильм с id = " + film.getId() + " не найден");
+        if (film.id() == null || films.replace(film.id(), film) == null) {
+            throw new NotFoundException("Фильм с id = " + film.id() + " не найден");
         }
-        films.put(film.getId(), film);
-        log.info("Фильм с ID {} успешно обновлён", film.getId());
+        bumpVersion(film.id());
+        log.info("Фильм с ID {} успешно обновлён", film.id());
         return film;
     }
 
     @Override
     public Collection<Film> findAll() {
-        return films.values();
+        return Collections.unmodifiableCollection(films.values());
     }
 
     @Override
@@ -47,11 +60,53 @@ public class InMemoryFilmStorage implements FilmStorage {
         return film;
     }
 
-    private long getNextId() {
-        return films.keySet()
-                .stream()
-                .mapToLong(Long::longValue)
-                .max()
-                .orElse(0) + 1;
+    @Override
+    public Film delete(Long filmId) {
+        Film removed = films.remove(filmId);
+        if (removed == null) {
+            throw new NotFoundException("Фильм с id = " + filmId + " не найден");
+        }
+        versions.remove(filmId);
+        modificationCount.incrementAndGet();
+        log.info("Фильм с ID {} удалён", filmId);
+        return removed;
+    }
+
+    @Override
+    public List<Film> findByIds(Collection<Long> filmIds) {
+        StorageOperationEvent event = StorageOperationEvent.start();
+        List<Film> result = new ArrayList<>(filmIds.size());
+        for (Long id : filmIds) {
+            Film found = films.get(id);
+            if (found != null) {
+                result.add(found);
+            }
+        }
+        event.finish("films", "findByIds", filmIds.size(), result.size(), 1);
+        return result;
+    }
+
+    @Override
+    public List<Long> findTopIds(Collection<Long> candidates, int count, ToLongFunction<Long> score) {
+        StorageOperationEvent event = StorageOperationEvent.start();
+        List<Long> top = TopIds.select(candidates, count, id -> films.containsKey(id) ? score.applyAsLong(id) : -1)
+                .stream().map(TopIds.Scored::id).toList();
+        event.finish("films", "findTopIds", count, top.size(), 1);
+        return top;
+    }
+
+    @Override
+    public long getVersion(Long filmId) {
+        return versions.getOrDefault(filmId, 0L);
+    }
+
+    @Override
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    private void bumpVersion(Long filmId) {
+        versions.merge(filmId, 1L, Long::sum);
+        modificationCount.incrementAndGet();
     }
-}
\ No newline at end of file
+}
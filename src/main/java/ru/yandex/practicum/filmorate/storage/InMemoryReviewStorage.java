@@ -0,0 +1,250 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Review;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Отзывы в памяти с индексами по полезности: общим и отдельным для каждого фильма.
+ *
+ * <p>Индекс — skip-list ключей (полезность, ID), поэтому оценка переставляет отзыв за O(log n),
+ * а чтение первых N идёт по индексу без сортировки. Оценки одного отзыва сериализуются на его записи,
+ * перестановки разных отзывов идут параллельно под общей блокировкой чтения.
+ * Чтение проходит индекс без блокировки и проверяет, что за это время не началось ни одной перестановки:
+ * иначе отзыв, переставленный за курсор или через него, мог бы попасть в ответ дважды или пропасть.
+ * Если перестановка была, проход повторяется под исключительной блокировкой.
+ */
+@Component
+public class InMemoryReviewStorage implements ReviewStorage {
+
+    private static final Comparator<RankKey> BY_USEFULNESS = Comparator.comparingInt(RankKey::useful).reversed()
+            .thenComparingLong(RankKey::reviewId);
+
+    private record RankKey(int useful, long reviewId) {
+    }
+
+    private static final class Entry {
+        private volatile Review review;
+        private volatile RankKey key;
+        // userId -> +1 или -1; меняется только под монитором записи
+        private final Map<Long, Integer> votes = new HashMap<>();
+        private boolean deleted;
+
+        Entry(Review review) {
+            this.review = review;
+            this.key = new RankKey(review.useful(), review.reviewId());
+        }
+    }
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final NavigableSet<RankKey> allReviews = new ConcurrentSkipListSet<>(BY_USEFULNESS);
+    private final Map<Long, NavigableSet<RankKey>> byFilm = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+    private final ReadWriteLock moveLock = new ReentrantReadWriteLock();
+    private final AtomicLong movesStarted = new AtomicLong();
+    private final AtomicLong movesFinished = new AtomicLong();
+
+    @Override
+    public Review create(Review review) {
+        Entry entry = new Entry(review.toBuilder().reviewId(lastId.incrementAndGet()).useful(0).build());
+        entries.put(entry.review.reviewId(), entry);
+        filmIndex(entry.review.filmId()).add(entry.key);
+        allReviews.add(entry.key);
+        return entry.review;
+    }
+
+    @Override
+    public Review update(Review review) {
+        Entry entry = entry(review.reviewId());
+        synchronized (entry) {
+            checkNotDeleted(entry);
+            Review current = entry.review;
+            entry.review = current.toBuilder()
+                    .content(review.content() != null ? review.content() : current.content())
+                    .isPositive(review.isPositive() != null ? review.isPositive() : current.isPositive())
+                    .build();
+            return entry.review;
+        }
+    }
+
+    @Override
+    public Review getById(Long id) {
+        Entry entry = entries.get(id);
+        return entry != null ? entry.review : null;
+    }
+
+    @Override
+    public Review delete(Long id) {
+        Entry entry = entry(id);
+        synchronized (entry) {
+            checkNotDeleted(entry);
+            remove(entry);
+            return entry.review;
+        }
+    }
+
+    @Override
+    public List<Review> findTop(Long filmId, int count) {
+        NavigableSet<RankKey> index = filmId == null ? allReviews : byFilm.get(filmId);
+        if (index == null || count <= 0) {
+            return List.of();
+        }
+        // Все перестановки, начатые к концу прохода, завершились до его начала — значит, ни одна в него не попала
+        long finished = movesFinished.get();
+        List<Review> result = top(index, count);
+        if (movesStarted.get() == finished) {
+            return result;
+        }
+        moveLock.writeLock().lock();
+        try {
+            return top(index, count);
+        } finally {
+            moveLock.writeLock().unlock();
+        }
+    }
+
+    private List<Review> top(NavigableSet<RankKey> index, int count) {
+        List<Review> result = new ArrayList<>(Math.min(count, 64));
+        for (RankKey key : index) {
+            Entry entry = entries.get(key.reviewId());
+            // Ключ удаляемого отзыва, которого уже нет в записях, пропускается
+            if (entry != null && entry.key == key) {
+                result.add(entry.review);
+                if (result.size() == count) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Review vote(Long reviewId, Long userId, int value) {
+        Entry entry = entry(reviewId);
+        synchronized (entry) {
+            checkNotDeleted(entry);
+            Integer previous = entry.votes.put(userId, value);
+            return reposition(entry, value - (previous == null ? 0 : previous));
+        }
+    }
+
+    @Override
+    public Review removeVote(Long reviewId, Long userId, int value) {
+        Entry entry = entry(reviewId);
+        synchronized (entry) {
+            checkNotDeleted(entry);
+            return entry.votes.remove(userId, value) ? reposition(entry, -value) : entry.review;
+        }
+    }
+
+    @Override
+    public int deleteByFilm(Long filmId) {
+        NavigableSet<RankKey> index = byFilm.get(filmId);
+        if (index == null) {
+            return 0;
+        }
+        int deleted = 0;
+        for (RankKey key : index) {
+            Entry entry = entries.get(key.reviewId());
+            if (entry == null) {
+                continue;
+            }
+            synchronized (entry) {
+                if (!entry.deleted) {
+                    remove(entry);
+                    deleted++;
+                }
+            }
+        }
+        byFilm.remove(filmId, index);
+        return deleted;
+    }
+
+    @Override
+    public int deleteByUser(Long userId) {
+        int deleted = 0;
+        for (Entry entry : entries.values()) {
+            synchronized (entry) {
+                if (entry.deleted) {
+                    continue;
+                }
+                if (userId.equals(entry.review.userId())) {
+                    remove(entry);
+                    deleted++;
+                } else {
+                    Integer vote = entry.votes.remove(userId);
+                    if (vote != null) {
+                        reposition(entry, -vote);
+                    }
+                }
+            }
+        }
+        return deleted;
+    }
+
+    // Вызывается под монитором записи
+    private Review reposition(Entry entry, int delta) {
+        if (delta == 0) {
+            return entry.review;
+        }
+        Review updated = entry.review.withUseful(entry.review.useful() + delta);
+        RankKey oldKey = entry.key;
+        RankKey newKey = new RankKey(updated.useful(), updated.reviewId());
+        NavigableSet<RankKey> filmIndex = filmIndex(updated.filmId());
+        moveLock.readLock().lock();
+        movesStarted.incrementAndGet();
+        try {
+            filmIndex.add(newKey);
+            allReviews.add(newKey);
+            entry.review = updated;
+            entry.key = newKey;
+            filmIndex.remove(oldKey);
+            allReviews.remove(oldKey);
+        } finally {
+            movesFinished.incrementAndGet();
+            moveLock.readLock().unlock();
+        }
+        return updated;
+    }
+
+    // Вызывается под монитором записи
+    private void remove(Entry entry) {
+        entry.deleted = true;
+        entries.remove(entry.review.reviewId(), entry);
+        NavigableSet<RankKey> filmIndex = byFilm.get(entry.review.filmId());
+        if (filmIndex != null) {
+            filmIndex.remove(entry.key);
+        }
+        allReviews.remove(entry.key);
+    }
+
+    private NavigableSet<RankKey> filmIndex(Long filmId) {
+        return byFilm.computeIfAbsent(filmId, id -> new ConcurrentSkipListSet<>(BY_USEFULNESS));
+    }
+
+    private Entry entry(Long id) {
+        Entry entry = id == null ? null : entries.get(id);
+        if (entry == null) {
+            throw new NotFoundException("Отзыв с id = " + id + " не найден");
+        }
+        return entry;
+    }
+
+    private static void checkNotDeleted(Entry entry) {
+        if (entry.deleted) {
+            throw new NotFoundException("Отзыв с id = " + entry.review.reviewId() + " не найден");
+        }
+    }
+}
@@ -1,39 +1,63 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.profiling.StorageOperationEvent;
 
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
 
 @Slf4j
 @Component
+// В режиме tiered на диск вытесняются только фильмы, пользователи остаются в памяти
+@ConditionalOnExpression("'${filmorate.storage.mode:memory}'.matches('memory|tiered')")
 public class InMemoryUserStorage implements UserStorage {
 
-    private final Map<Long, User> users = new HashMap<>();
+    // Снимки пользователей неизменяемы и заменяются целиком, поэтому чтение не требует блокировок
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    private final AtomicLong modificationCount = new AtomicLong();
+    private final AtomicLong lastId = new AtomicLong();
 
     @Override
     public User create(User user) {
-        user.setId(getNextId());
-        users.put(user.getId(), user);
-        return user;
+        User created = user.withId(lastId.incrementAndGet());
+        users.put(created.id(), created);
+        bumpVersion(created.id());
+        return created;
     }
 
     @Override
     public User update(User user) {
-        if (!users.containsKey(user.getId())) {
-            throw new NotFoundException("Пользователь с id = " + user.getId() + " не найден");
+        if (user.id() == null || users.replace(user.id(), user) == null) {
+            throw new NotFoundException("Пользователь с id = " + user.id() + " не найден");
         }
-        users.put(user.getId(), user);
+        bumpVersion(user.id());
         return user;
     }
 
+    @Override
+    public User update(Long id, UnaryOperator<User> mutation) {
+        User updated = users.computeIfPresent(id, (key, current) -> mutation.apply(current));
+        if (updated == null) {
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+        bumpVersion(id);
+        return updated;
+    }
+
     @Override
     public Collection<User> findAll() {
-        return users.values();
+        return Collections.unmodifiableCollection(users.values());
     }
 
     @Override
@@ -41,11 +65,43 @@ public class InMemoryUserStorage implements UserStorage {
         return users.get(id);
     }
 
-    private long getNextId() {
-        return users.keySet()
-                .stream()
-                .mapToLong(Long::longValue)
-                .max()
-                .orElse(0) + 1;
+    @Override
+    public User delete(Long id) {
+        User removed = users.remove(id);
+        if (removed == null) {
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+        versions.remove(id);
+        modificationCount.incrementAndGet();
+        return removed;
+    }
+
+    @Override
+    public List<User> findByIds(Collection<Long> ids) {
+        StorageOperationEvent event = StorageOperationEvent.start();
+        List<User> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User found = users.get(id);
+            if (found != null) {
+                result.add(found);
+            }
+        }
+        event.finish("users", "findByIds", ids.size(), result.size(), 1);
+        return result;
+    }
+
+    @Override
+    public long getVersion(Long id) {
+        return versions.getOrDefault(id, 0L);
+    }
+
+    @Override
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    private void bumpVersion(Long id) {
+        versions.merge(id, 1L, Long::sum);
+        modificationCount.incrementAndGet();
     }
 }
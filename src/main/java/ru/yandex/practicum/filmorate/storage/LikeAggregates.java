@@ -0,0 +1,162 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongPredicate;
+
+/**
+ * Производные от лайков индексы, пересчитанные с нуля: обратный индекс пользователь -> фильмы
+ * и счётчики трендов. Фильмы, а при сверке — ID, делятся на диапазоны, которые обрабатываются задачами fork-join.
+ */
+public final class LikeAggregates {
+
+    // Диапазон, который задача обрабатывает сама, не разделяя дальше
+    private static final int PARTITION_SIZE = 1024;
+
+    private final Map<Long, Set<Long>> userLikes;
+    private final FilmTrendingCounters trending;
+    private final int films;
+    private final long likes;
+
+    private LikeAggregates(Map<Long, Set<Long>> userLikes, FilmTrendingCounters trending, int films, long likes) {
+        this.userLikes = userLikes;
+        this.trending = trending;
+        this.films = films;
+        this.likes = likes;
+    }
+
+    // filmLikes: filmId -> (userId -> время лайка); на время пересчёта карта не должна меняться
+    public static LikeAggregates build(Map<Long, Map<Long, Long>> filmLikes, ForkJoinPool pool) {
+        List<Map.Entry<Long, Map<Long, Long>>> entries = new ArrayList<>(filmLikes.entrySet());
+        Map<Long, Set<Long>> userLikes = new ConcurrentHashMap<>();
+        FilmTrendingCounters trending = new FilmTrendingCounters();
+        long likes = pool.invoke(new BuildTask(entries, userLikes, trending, 0, entries.size()));
+        return new LikeAggregates(userLikes, trending, entries.size(), likes);
+    }
+
+    public Map<Long, Set<Long>> userLikes() {
+        return userLikes;
+    }
+
+    public FilmTrendingCounters trending() {
+        return trending;
+    }
+
+    public int films() {
+        return films;
+    }
+
+    public long likes() {
+        return likes;
+    }
+
+    // Пользователи, у которых множество лайкнутых фильмов в live отличается от пересчитанного; пустое = отсутствующее
+    public List<Long> divergingUsers(Map<Long, Set<Long>> live, ForkJoinPool pool) {
+        return diverging(live.keySet(), userLikes.keySet(), pool, userId -> {
+            Set<Long> actual = live.getOrDefault(userId, Set.of());
+            Set<Long> expected = userLikes.getOrDefault(userId, Set.of());
+            return !actual.equals(expected);
+        });
+    }
+
+    // Фильмы, у которых число лайков хотя бы в одном окне трендов отличается от пересчитанного
+    public List<Long> divergingFilms(FilmTrendingCounters live, long nowMillis, ForkJoinPool pool) {
+        return diverging(live.filmIds(), trending.filmIds(), pool, filmId -> {
+            for (TrendWindow window : TrendWindow.values()) {
+                if (live.likes(filmId, window, nowMillis) != trending.likes(filmId, window, nowMillis)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    // ID из объединения двух множеств, для которых differs истинно, по возрастанию
+    private static List<Long> diverging(Collection<Long> left, Collection<Long> right, ForkJoinPool pool,
+                                        LongPredicate differs) {
+        Set<Long> union = new HashSet<>(left);
+        union.addAll(right);
+        long[] ids = union.stream().mapToLong(Long::longValue).toArray();
+        long[] found = pool.invoke(new CompareTask(ids, differs, 0, ids.length));
+        Arrays.sort(found);
+        return Arrays.stream(found).boxed().toList();
+    }
+
+    private static final class BuildTask extends RecursiveTask<Long> {
+        private final List<Map.Entry<Long, Map<Long, Long>>> entries;
+        private final Map<Long, Set<Long>> userLikes;
+        private final FilmTrendingCounters trending;
+        private final int from;
+        private final int to;
+
+        BuildTask(List<Map.Entry<Long, Map<Long, Long>>> entries, Map<Long, Set<Long>> userLikes,
+                  FilmTrendingCounters trending, int from, int to) {
+            this.entries = entries;
+            this.userLikes = userLikes;
+            this.trending = trending;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > PARTITION_SIZE) {
+                int middle = (from + to) >>> 1;
+                BuildTask left = new BuildTask(entries, userLikes, trending, from, middle);
+                left.fork();
+                long right = new BuildTask(entries, userLikes, trending, middle, to).compute();
+                return left.join() + right;
+            }
+            long likes = 0;
+            for (int i = from; i < to; i++) {
+                Long filmId = entries.get(i).getKey();
+                for (Map.Entry<Long, Long> like : entries.get(i).getValue().entrySet()) {
+                    userLikes.computeIfAbsent(like.getKey(), k -> ConcurrentHashMap.newKeySet()).add(filmId);
+                    trending.recordLike(filmId, like.getValue());
+                    likes++;
+                }
+            }
+            return likes;
+        }
+    }
+
+    private static final class CompareTask extends RecursiveTask<long[]> {
+        private final long[] ids;
+        private final LongPredicate differs;
+        private final int from;
+        private final int to;
+
+        CompareTask(long[] ids, LongPredicate differs, int from, int to) {
+            this.ids = ids;
+            this.differs = differs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > PARTITION_SIZE) {
+                int middle = (from + to) >>> 1;
+                CompareTask left = new CompareTask(ids, differs, from, middle);
+                left.fork();
+                long[] right = new CompareTask(ids, differs, middle, to).compute();
+                long[] merged = left.join();
+                if (right.length == 0) {
+                    return merged;
+                }
+                merged = Arrays.copyOf(merged, merged.length + right.length);
+                System.arraycopy(right, 0, merged, merged.length - right.length, right.length);
+                return merged;
+            }
+            return Arrays.stream(ids, from, to).filter(differs).toArray();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Review;
+
+import java.util.List;
+
+public interface ReviewStorage {
+    Review create(Review review);
+
+    // Меняет текст и оценку фильма; автор и фильм отзыва не меняются. NotFoundException, если отзыва нет
+    Review update(Review review);
+
+    Review getById(Long id);
+
+    // Удаляет отзыв и возвращает его последний снимок; NotFoundException, если отзыва нет
+    Review delete(Long id);
+
+    // До count самых полезных отзывов фильма, при равной полезности — более ранние; filmId = null — по всем фильмам
+    List<Review> findTop(Long filmId, int count);
+
+    // Ставит оценку пользователя (+1 лайк, -1 дизлайк), заменяя его прежнюю оценку этого отзыва
+    Review vote(Long reviewId, Long userId, int value);
+
+    // Снимает оценку пользователя, только если она равна value
+    Review removeVote(Long reviewId, Long userId, int value);
+
+    // Удаляет все отзывы фильма
+    int deleteByFilm(Long filmId);
+
+    // Удаляет отзывы пользователя и снимает его оценки с остальных отзывов
+    int deleteByUser(Long userId);
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.profiling.StorageOperationEvent;
+import ru.yandex.practicum.filmorate.storage.shard.Shard;
+import ru.yandex.practicum.filmorate.storage.shard.ShardRouter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Хранилище фильмов, разбитое на шарды по ID. Включается свойством filmorate.storage.mode=sharded.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.mode", havingValue = "sharded")
+public class ShardedFilmStorage implements FilmStorage {
+
+    private final ShardRouter<Film> router;
+    private final AtomicLong modificationCount = new AtomicLong();
+    private final AtomicLong lastId;
+
+    public ShardedFilmStorage(@Value("${filmorate.storage.shards:4}") int shardCount,
+                              @Value("${filmorate.storage.data-dir:}") String dataDir,
+                              ObjectMapper objectMapper) {
+        this.router = new ShardRouter<>(shardCount, dataDir.isBlank() ? null : Path.of(dataDir),
+                "films", objectMapper, Film.class, Film::id);
+        // После загрузки из файлов новые ID продолжают последовательность
+        this.lastId = new AtomicLong(router.scatter(Shard::maxId).stream().mapToLong(Long::longValue).max().orElse(0));
+    }
+
+    @Override
+    public Film create(Film film) {
+        Film created = film.withId(lastId.incrementAndGet());
+        router.shardFor(created.id()).put(created.id(), created);
+        modificationCount.incrementAndGet();
+        log.info("Фильм успешно добавлен: id={}, name={}", created.id(), created.name());
+        return created;
+    }
+
+    @Override
+    public Film update(Film film) {
+        if (film.id() == null || router.shardFor(film.id()).replace(film.id(), film) == null) {
+            throw new NotFoundException("Фильм с id = " + film.id() + " не найден");
+        }
+        modificationCount.incrementAndGet();
+        log.info("Фильм с ID {} успешно обновлён", film.id());
+        return film;
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        List<Film> all = new ArrayList<>();
+        router.scatter(Shard::snapshot).forEach(all::addAll);
+        all.sort(Comparator.comparing(Film::id));
+        return all;
+    }
+
+    @Override
+    public Film findById(Long filmId) {
+        Film film = router.shardFor(filmId).get(filmId);
+        if (film == null) {
+            throw new NotFoundException("Фильм с id = " + filmId + " не найден");
+        }
+        return film;
+    }
+
+    @Override
+    public Film delete(Long filmId) {
+        Film removed = router.shardFor(filmId).remove(filmId);
+        if (removed == null) {
+            throw new NotFoundException("Фильм с id = " + filmId + " не найден");
+        }
+        modificationCount.incrementAndGet();
+        log.info("Фильм с ID {} удалён", filmId);
+        return removed;
+    }
+
+    @Override
+    public List<Film> findByIds(Collection<Long> filmIds) {
+        StorageOperationEvent event = StorageOperationEvent.start();
+        Map<Shard<Film>, List<Long>> groups = router.partition(filmIds);
+        Map<Long, Film> found = new HashMap<>();
+        router.gather(groups.keySet(), shard -> shard.getAll(groups.get(shard))).forEach(found::putAll);
+        List<Film> result = new ArrayList<>(found.size());
+        for (Long id : filmIds) {
+            Film film = found.get(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        event.finish("films", "findByIds", filmIds.size(), result.size(), groups.size());
+        return result;
+    }
+
+    // Каждый шард отбирает топ из своих кандидатов, общий топ собирается из count лучших с каждого шарда
+    @Override
+    public List<Long> findTopIds(Collection<Long> candidates, int count, ToLongFunction<Long> score) {
+        StorageOperationEvent event = StorageOperationEvent.start();
+        Map<Shard<Film>, List<Long>> groups = router.partition(candidates);
+        List<Long> top = TopIds.merge(router.gather(groups.keySet(),
+                shard -> shard.top(groups.get(shard), count, score)), count);
+        event.finish("films", "findTopIds", count, top.size(), groups.size());
+        return top;
+    }
+
+    @Override
+    public long getVersion(Long filmId) {
+        return router.shardFor(filmId).version(filmId);
+    }
+
+    @Override
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    @PreDestroy
+    public void close() {
+        router.close();
+    }
+}
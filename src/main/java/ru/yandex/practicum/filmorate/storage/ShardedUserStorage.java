@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.profiling.StorageOperationEvent;
+import ru.yandex.practicum.filmorate.storage.shard.Shard;
+import ru.yandex.practicum.filmorate.storage.shard.ShardRouter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Хранилище пользователей, разбитое на шарды по ID. Включается свойством filmorate.storage.mode=sharded.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.mode", havingValue = "sharded")
+public class ShardedUserStorage implements UserStorage {
+
+    private final ShardRouter<User> router;
+    private final AtomicLong modificationCount = new AtomicLong();
+    private final AtomicLong lastId;
+
+    public ShardedUserStorage(@Value("${filmorate.storage.shards:4}") int shardCount,
+                              @Value("${filmorate.storage.data-dir:}") String dataDir,
+                              ObjectMapper objectMapper) {
+        this.router = new ShardRouter<>(shardCount, dataDir.isBlank() ? null : Path.of(dataDir),
+                "users", objectMapper, User.class, User::id);
+        // После загрузки из файлов новые ID продолжают последовательность
+        this.lastId = new AtomicLong(router.scatter(Shard::maxId).stream().mapToLong(Long::longValue).max().orElse(0));
+    }
+
+    @Override
+    public User create(User user) {
+        User created = user.withId(lastId.incrementAndGet());
+        router.shardFor(created.id()).put(created.id(), created);
+        modificationCount.incrementAndGet();
+        return created;
+    }
+
+    @Override
+    public User update(User user) {
+        if (user.id() == null || router.shardFor(user.id()).replace(user.id(), user) == null) {
+            throw new NotFoundException("Пользователь с id = " + user.id() + " не найден");
+        }
+        modificationCount.incrementAndGet();
+        return user;
+    }
+
+    // Изменение затрагивает один шард и выполняется под его блокировкой записи
+    @Override
+    public User update(Long id, UnaryOperator<User> mutation) {
+        User updated = router.shardFor(id).update(id, mutation);
+        if (updated == null) {
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+        modificationCount.incrementAndGet();
+        return updated;
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        List<User> all = new ArrayList<>();
+        router.scatter(Shard::snapshot).forEach(all::addAll);
+        all.sort(Comparator.comparing(User::id));
+        return all;
+    }
+
+    @Override
+    public User getById(Long id) {
+        return router.shardFor(id).get(id);
+    }
+
+    @Override
+    public User delete(Long id) {
+        User removed = router.shardFor(id).remove(id);
+        if (removed == null) {
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+        modificationCount.incrementAndGet();
+        return removed;
+    }
+
+    // Друзья и общие друзья могут лежать в разных шардах: запрашиваем нужные шарды параллельно
+    @Override
+    public List<User> findByIds(Collection<Long> ids) {
+        StorageOperationEvent event = StorageOperationEvent.start();
+        Map<Shard<User>, List<Long>> groups = router.partition(ids);
+        Map<Long, User> found = new HashMap<>();
+        router.gather(groups.keySet(), shard -> shard.getAll(groups.get(shard))).forEach(found::putAll);
+        List<User> result = new ArrayList<>(found.size());
+        for (Long id : ids) {
+            User user = found.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        event.finish("users", "findByIds", ids.size(), result.size(), groups.size());
+        return result;
+    }
+
+    @Override
+    public long getVersion(Long id) {
+        return router.shardFor(id).version(id);
+    }
+
+    @Override
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    @PreDestroy
+    public void close() {
+        router.close();
+    }
+}
@@ -0,0 +1,383 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.profiling.StorageOperationEvent;
+import ru.yandex.practicum.filmorate.storage.tiered.FilmSegment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * Хранилище фильмов в два уровня: часто читаемые фильмы лежат в куче, остальные вытесняются
+ * в файл {@link FilmSegment} и прозрачно подгружаются при чтении. Объём кучи ограничен оценкой
+ * filmorate.storage.tiered.heap-budget-mb. Включается свойством filmorate.storage.mode=tiered.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.mode", havingValue = "tiered")
+public class TieredFilmStorage implements FilmStorage {
+
+    // Сколько горячих фильмов сравнивается при выборе вытесняемого
+    private static final int EVICTION_SAMPLE = 8;
+    // Оценка фильма в куче без строк: запись, LocalDate, Duration, заголовки строк, узел карты и счётчик
+    private static final int FILM_OVERHEAD_BYTES = 200;
+
+    private final long heapBudgetBytes;
+    private final FilmSegment segment;
+    // В карте versions есть все фильмы; горячие — ещё и в hot, вытесненные и часть горячих — в сегменте
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    private final Map<Long, Hot> hot = new ConcurrentHashMap<>();
+    private final AtomicLong modificationCount = new AtomicLong();
+    private final AtomicLong lastId = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    // Изменения и перемещения между уровнями; чтение горячих фильмов его не берёт
+    private final ReentrantLock lock = new ReentrantLock();
+    private final HotIds hotIds = new HotIds();
+    private long hotBytes;
+
+    public TieredFilmStorage(@Value("${filmorate.storage.tiered.heap-budget-mb:64}") long heapBudgetMb,
+                             @Value("${filmorate.storage.tiered.segment-dir:}") String segmentDir) {
+        this.heapBudgetBytes = heapBudgetMb * 1024 * 1024;
+        this.segment = new FilmSegment(segmentFile(segmentDir));
+        log.info("Многоуровневое хранилище фильмов: бюджет кучи {} МБ", heapBudgetMb);
+    }
+
+    @Override
+    public Film create(Film film) {
+        lock.lock();
+        try {
+            Film created = film.withId(lastId.incrementAndGet());
+            admit(created, 1);
+            bumpVersion(created.id());
+            log.info("Фильм успешно добавлен: id={}, name={}", created.id(), created.name());
+            return created;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Обновлённый фильм становится горячим, устаревшая копия в сегменте удаляется
+    @Override
+    public Film update(Film film) {
+        lock.lock();
+        try {
+            if (film.id() == null || !versions.containsKey(film.id())) {
+                throw new NotFoundException("Фильм с id = " + film.id() + " не найден");
+            }
+            Hot previous = hot.get(film.id());
+            admit(film, previous == null ? 1 : previous.hits);
+            segment.remove(film.id());
+            bumpVersion(film.id());
+            log.info("Фильм с ID {} успешно обновлён", film.id());
+            return film;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Холодные фильмы читаются из сегмента без переноса в кучу и без учёта обращений
+    @Override
+    public Collection<Film> findAll() {
+        List<Film> all = new ArrayList<>(versions.size());
+        for (Long id : versions.keySet()) {
+            Film film = lookup(id, false);
+            if (film != null) {
+                all.add(film);
+            }
+        }
+        return all;
+    }
+
+    @Override
+    public Film findById(Long filmId) {
+        Film film = lookup(filmId, true);
+        if (film == null) {
+            throw new NotFoundException("Фильм с id = " + filmId + " не найден");
+        }
+        return film;
+    }
+
+    @Override
+    public Film delete(Long filmId) {
+        lock.lock();
+        try {
+            Film removed = lookup(filmId, false);
+            if (removed == null) {
+                throw new NotFoundException("Фильм с id = " + filmId + " не найден");
+            }
+            versions.remove(filmId);
+            Hot entry = hot.remove(filmId);
+            if (entry != null) {
+                hotIds.remove(filmId);
+                hotBytes -= entry.bytes;
+            }
+            segment.remove(filmId);
+            modificationCount.incrementAndGet();
+            log.info("Фильм с ID {} удалён", filmId);
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Film> findByIds(Collection<Long> filmIds) {
+        StorageOperationEvent event = StorageOperationEvent.start();
+        List<Film> result = new ArrayList<>(filmIds.size());
+        for (Long id : filmIds) {
+            Film found = lookup(id, true);
+            if (found != null) {
+                result.add(found);
+            }
+        }
+        event.finish("films", "findByIds", filmIds.size(), result.size(), 1);
+        return result;
+    }
+
+    @Override
+    public List<Long> findTopIds(Collection<Long> candidates, int count, ToLongFunction<Long> score) {
+        StorageOperationEvent event = StorageOperationEvent.start();
+        List<Long> top = TopIds.select(candidates, count, id -> versions.containsKey(id) ? score.applyAsLong(id) : -1)
+                .stream().map(TopIds.Scored::id).toList();
+        event.finish("films", "findTopIds", count, top.size(), 1);
+        return top;
+    }
+
+    @Override
+    public long getVersion(Long filmId) {
+        return versions.getOrDefault(filmId, 0L);
+    }
+
+    @Override
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    public int getHotCount() {
+        return hot.size();
+    }
+
+    public long getHotBytes() {
+        lock.lock();
+        try {
+            return hotBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSegmentBytes() {
+        return segment.fileBytes();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @PreDestroy
+    public void close() {
+        segment.close();
+    }
+
+    /**
+     * Фильм из кучи или из сегмента; null, если фильма нет. При access обращение учитывается,
+     * а прочитанный из сегмента фильм переносится в кучу, если блокировка свободна.
+     */
+    private Film lookup(Long filmId, boolean access) {
+        while (true) {
+            Hot entry = hot.get(filmId);
+            if (entry != null) {
+                if (access) {
+                    entry.touch();
+                }
+                return entry.film;
+            }
+            // Версия читается до сегмента: по ней потом проверяем, что фильм не изменился
+            Long version = versions.get(filmId);
+            if (version == null) {
+                return null;
+            }
+            Film cold = segment.read(filmId);
+            if (cold != null) {
+                if (access) {
+                    promote(cold, version);
+                }
+                return cold;
+            }
+            // Фильм обновили между проверкой кучи и чтением сегмента — он уже в куче
+        }
+    }
+
+    // Не ждём блокировку: при конкуренции фильм просто останется холодным до следующего чтения
+    private void promote(Film film, long version) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            if (version == versions.getOrDefault(film.id(), 0L) && !hot.containsKey(film.id())) {
+                admit(film, 1);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Вызывается под блокировкой
+    private void admit(Film film, int hits) {
+        Hot entry = new Hot(film, estimateBytes(film), hits);
+        Hot previous = hot.put(film.id(), entry);
+        if (previous == null) {
+            hotIds.add(film.id());
+        } else {
+            hotBytes -= previous.bytes;
+        }
+        hotBytes += entry.bytes;
+        evictIfNeeded(film.id());
+    }
+
+    /**
+     * Приближённое LFU: из случайной выборки горячих фильмов вытесняется наименее читаемый,
+     * у остальных счётчик делится пополам, чтобы давно популярные фильмы со временем остывали.
+     * Фильм, у которого в сегменте уже лежит актуальная копия, просто удаляется из кучи.
+     */
+    private void evictIfNeeded(long keep) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (hotBytes > heapBudgetBytes && hotIds.size() > 1) {
+            long victim = keep;
+            Hot victimEntry = null;
+            for (int i = 0; i < EVICTION_SAMPLE; i++) {
+                long candidate = hotIds.get(random.nextInt(hotIds.size()));
+                if (candidate == keep || candidate == victim) {
+                    continue;
+                }
+                Hot entry = hot.get(candidate);
+                if (victimEntry == null || entry.hits < victimEntry.hits) {
+                    if (victimEntry != null) {
+                        victimEntry.age();
+                    }
+                    victim = candidate;
+                    victimEntry = entry;
+                } else {
+                    entry.age();
+                }
+            }
+            if (victimEntry == null) {
+                continue;
+            }
+            if (!segment.contains(victim)) {
+                segment.write(victimEntry.film);
+            }
+            hot.remove(victim);
+            hotIds.remove(victim);
+            hotBytes -= victimEntry.bytes;
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void bumpVersion(Long filmId) {
+        versions.merge(filmId, 1L, Long::sum);
+        modificationCount.incrementAndGet();
+    }
+
+    // Строки считаются по два байта на символ — с запасом для латиницы
+    private static int estimateBytes(Film film) {
+        return FILM_OVERHEAD_BYTES + 2 * (length(film.name()) + length(film.description()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static Path segmentFile(String segmentDir) {
+        try {
+            if (segmentDir.isBlank()) {
+                return Files.createTempFile("filmorate-films-", ".seg");
+            }
+            return Path.of(segmentDir).resolve("films.seg");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать файл сегмента фильмов", e);
+        }
+    }
+
+    /**
+     * Горячий фильм со счётчиком обращений. Счётчик увеличивается без синхронизации:
+     * потерянные при гонке инкременты для оценки частоты несущественны.
+     */
+    private static final class Hot {
+        private final Film film;
+        private final int bytes;
+        private volatile int hits;
+
+        private Hot(Film film, int bytes, int hits) {
+            this.film = film;
+            this.bytes = bytes;
+            this.hits = hits;
+        }
+
+        private void touch() {
+            int current = hits;
+            if (current < Integer.MAX_VALUE) {
+                hits = current + 1;
+            }
+        }
+
+        private void age() {
+            hits = hits >>> 1;
+        }
+    }
+
+    // ID горячих фильмов в массиве для случайной выборки за O(1); изменяется только под блокировкой
+    private static final class HotIds {
+        private final Map<Long, Integer> positions = new HashMap<>();
+        private long[] ids = new long[1024];
+        private int size;
+
+        private void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            positions.put(id, size);
+            ids[size++] = id;
+        }
+
+        // На место удалённого переносится последний ID
+        private void remove(long id) {
+            Integer position = positions.remove(id);
+            if (position == null) {
+                return;
+            }
+            long last = ids[--size];
+            if (position != size) {
+                ids[position] = last;
+                positions.put(last, position);
+            }
+        }
+
+        private long get(int index) {
+            return ids[index];
+        }
+
+        private int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Метки удалённых фильмов и пользователей, чьи ссылки ещё не вычищены.
+ * DELETE удаляет сущность из хранилища, ставит метку и сразу отвечает; каскадная очистка лайков
+ * и дружбы идёт в фоне. Сама удалённая сущность в выдачу уже не попадает, а помеченные ID пользователей
+ * до окончания очистки не учитываются в числе лайков и скрываются из списков друзей в ответах UserService.
+ * Если очистка упала, метка остаётся: ID продолжают скрываться, а ошибка видна в логе.
+ */
+@Slf4j
+@Component
+public class Tombstones {
+
+    private final Set<Long> films = ConcurrentHashMap.newKeySet();
+    private final Set<Long> users = ConcurrentHashMap.newKeySet();
+    // Одна очередь очистки: задачи не конкурируют между собой за одни и те же записи
+    private final ExecutorService cleaner = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("tombstone-cleanup").daemon().factory());
+
+    public void buryFilm(Long filmId, Runnable cleanup) {
+        bury(films, filmId, cleanup, "фильма");
+    }
+
+    public void buryUser(Long userId, Runnable cleanup) {
+        bury(users, userId, cleanup, "пользователя");
+    }
+
+    public boolean isFilmDeleted(Long filmId) {
+        return films.contains(filmId);
+    }
+
+    public boolean isUserDeleted(Long userId) {
+        return users.contains(userId);
+    }
+
+    // Быстрая проверка для горячих путей: пока очистки нет, фильтровать ничего не нужно
+    public boolean hasDeletedUsers() {
+        return !users.isEmpty();
+    }
+
+    // Дожидается окончания всех поставленных очисток
+    public void awaitCleanup(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        try {
+            cleaner.submit(() -> { }).get(timeout, unit);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdown();
+    }
+
+    private void bury(Set<Long> tombstones, Long id, Runnable cleanup, String kind) {
+        tombstones.add(id);
+        cleaner.execute(() -> {
+            long started = System.nanoTime();
+            try {
+                cleanup.run();
+                tombstones.remove(id);
+                log.info("Ссылки удалённого {} с ID {} очищены за {} мс", kind, id,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            } catch (RuntimeException e) {
+                log.error("Ошибка очистки ссылок удалённого {} с ID {}", kind, id, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToLongFunction;
+
+/**
+ * Отбор count идентификаторов с наибольшей оценкой через кучу ограниченного размера.
+ * Результаты нескольких разделов сливаются через merge.
+ */
+public final class TopIds {
+
+    // По убыванию оценки, при равенстве — по возрастанию ID
+    private static final Comparator<Scored> BEST_FIRST = Comparator.comparingLong(Scored::score).reversed()
+            .thenComparing(Scored::id);
+
+    private TopIds() {
+    }
+
+    // Идентификаторы с отрицательной оценкой не участвуют в отборе
+    public static List<Scored> select(Collection<Long> ids, int count, ToLongFunction<Long> score) {
+        if (count <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Scored> heap = new PriorityQueue<>(Math.min(count, ids.size()) + 1, BEST_FIRST.reversed());
+        for (Long id : ids) {
+            long value = score.applyAsLong(id);
+            if (value < 0) {
+                continue;
+            }
+            heap.offer(new Scored(id, value));
+            if (heap.size() > count) {
+                heap.poll();
+            }
+        }
+        List<Scored> result = new ArrayList<>(heap);
+        result.sort(BEST_FIRST);
+        return result;
+    }
+
+    public static List<Long> merge(Collection<List<Scored>> parts, int count) {
+        List<Scored> all = new ArrayList<>();
+        for (List<Scored> part : parts) {
+            all.addAll(part);
+        }
+        all.sort(BEST_FIRST);
+        return all.stream().limit(count).map(Scored::id).toList();
+    }
+
+    public record Scored(Long id, long score) {
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+/**
+ * Окно, за которое считаются лайки для трендовых фильмов.
+ */
+public enum TrendWindow {
+    HOUR("1h"),
+    DAY("24h"),
+    WEEK("7d");
+
+    private final String param;
+
+    TrendWindow(String param) {
+        this.param = param;
+    }
+
+    public static TrendWindow fromParam(String value) {
+        for (TrendWindow window : values()) {
+            if (window.param.equalsIgnoreCase(value)) {
+                return window;
+            }
+        }
+        throw new ValidationException("Неизвестное окно трендов: " + value + ". Допустимо: 1h, 24h, 7d");
+    }
+}
@@ -3,13 +3,30 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.UnaryOperator;
 
 public interface UserStorage {
     User create(User user);
 
     User update(User user);
 
+    // Атомарно заменяет снимок пользователя результатом mutation
+    User update(Long id, UnaryOperator<User> mutation);
+
     Collection<User> findAll();
 
     User getById(Long id);
+
+    // Удаляет пользователя и возвращает его последний снимок; NotFoundException, если пользователя нет
+    User delete(Long id);
+
+    // Пользователи с указанными ID в порядке запроса; отсутствующие ID пропускаются
+    List<User> findByIds(Collection<Long> ids);
+
+    // Версия пользователя, растёт при каждом изменении; 0 — пользователя нет
+    long getVersion(Long id);
+
+    // Общий счётчик изменений всех пользователей
+    long getModificationCount();
 }
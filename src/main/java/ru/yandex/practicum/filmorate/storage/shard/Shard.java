@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.storage.shard;
+
+import ru.yandex.practicum.filmorate.storage.TopIds;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Один раздел хранилища со своей блокировкой и, при необходимости, своим файлом.
+ * Всё взаимодействие с шардом идёт через эти методы, поэтому позже его можно вынести в отдельный узел.
+ */
+public class Shard<T> {
+
+    private final Map<Long, T> entries = new HashMap<>();
+    private final Map<Long, Long> versions = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ShardJournal<T> journal;
+
+    Shard(Function<T, Long> idOf, ShardJournal<T> journal) {
+        this.journal = journal;
+        if (journal != null) {
+            entries.putAll(journal.load(idOf));
+            for (Long id : entries.keySet()) {
+                versions.put(id, 1L);
+            }
+            journal.compact(entries.values());
+        }
+    }
+
+    public T get(Long id) {
+        lock.readLock().lock();
+        try {
+            return entries.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Найденные записи по ID; отсутствующие пропускаются
+    public Map<Long, T> getAll(Collection<Long> ids) {
+        Map<Long, T> found = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Long id : ids) {
+                T record = entries.get(id);
+                if (record != null) {
+                    found.put(id, record);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found;
+    }
+
+    public List<T> snapshot() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(entries.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(Long id, T record) {
+        lock.writeLock().lock();
+        try {
+            write(id, record);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Заменяет существующую запись; null, если записи нет
+    public T replace(Long id, T record) {
+        lock.writeLock().lock();
+        try {
+            if (!entries.containsKey(id)) {
+                return null;
+            }
+            write(id, record);
+            return record;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Атомарно заменяет запись результатом mutation; null, если записи нет
+    public T update(Long id, UnaryOperator<T> mutation) {
+        lock.writeLock().lock();
+        try {
+            T current = entries.get(id);
+            if (current == null) {
+                return null;
+            }
+            T updated = mutation.apply(current);
+            write(id, updated);
+            return updated;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Удаляет запись; null, если записи нет
+    public T remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            T removed = entries.remove(id);
+            if (removed != null) {
+                if (journal != null) {
+                    journal.appendRemoval(id);
+                }
+                versions.remove(id);
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long version(Long id) {
+        lock.readLock().lock();
+        try {
+            return versions.getOrDefault(id, 0L);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long maxId() {
+        lock.readLock().lock();
+        try {
+            return entries.keySet().stream().mapToLong(Long::longValue).max().orElse(0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Лучшие из ids, которые есть в шарде
+    public List<TopIds.Scored> top(Collection<Long> ids, int count, ToLongFunction<Long> score) {
+        lock.readLock().lock();
+        try {
+            return TopIds.select(ids, count, id -> entries.containsKey(id) ? score.applyAsLong(id) : -1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private void write(Long id, T record) {
+        if (journal != null) {
+            journal.append(record);
+        }
+        entries.put(id, record);
+        versions.merge(id, 1L, Long::sum);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.storage.shard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Файл шарда: журнал JSON-строк, по одной записи на каждое изменение.
+ * Удаление записывается строкой вида {@code -<id>}.
+ * При старте журнал читается целиком (последняя запись побеждает) и переписывается компактно.
+ */
+class ShardJournal<T> {
+
+    private static final String REMOVAL_PREFIX = "-";
+
+    private final Path file;
+    private final ObjectMapper mapper;
+    private final Class<T> type;
+    private BufferedWriter writer;
+
+    ShardJournal(Path file, ObjectMapper mapper, Class<T> type) {
+        this.file = file;
+        this.mapper = mapper;
+        this.type = type;
+    }
+
+    Map<Long, T> load(Function<T, Long> idOf) {
+        Map<Long, T> records = new LinkedHashMap<>();
+        if (!Files.exists(file)) {
+            return records;
+        }
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (line.startsWith(REMOVAL_PREFIX)) {
+                    records.remove(Long.valueOf(line.substring(REMOVAL_PREFIX.length())));
+                } else if (!line.isBlank()) {
+                    T record = mapper.readValue(line, type);
+                    records.put(idOf.apply(record), record);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать файл шарда " + file, e);
+        }
+        return records;
+    }
+
+    // Переписывает журнал текущим состоянием шарда и открывает его на дозапись
+    void compact(Collection<T> snapshot) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (T record : snapshot) {
+                    out.write(mapper.writeValueAsString(record));
+                    out.newLine();
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать файл шарда " + file, e);
+        }
+    }
+
+    void append(T record) {
+        try {
+            writeLine(mapper.writeValueAsString(record));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать файл шарда " + file, e);
+        }
+    }
+
+    void appendRemoval(Long id) {
+        try {
+            writeLine(REMOVAL_PREFIX + id);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать файл шарда " + file, e);
+        }
+    }
+
+    private void writeLine(String line) throws IOException {
+        writer.write(line);
+        writer.newLine();
+        writer.flush();
+    }
+
+    void close() {
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось закрыть файл шарда " + file, e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.storage.shard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Распределяет записи по шардам по хешу ID и выполняет запросы ко всем шардам параллельно (scatter-gather).
+ * Шарды вызываются только через свой публичный API, поэтому локальный шард можно заменить удалённым.
+ */
+@Slf4j
+public class ShardRouter<T> implements AutoCloseable {
+
+    private final List<Shard<T>> shards;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param dataDir каталог файлов шардов; null — шарды живут только в памяти
+     */
+    public ShardRouter(int shardCount, Path dataDir, String name, ObjectMapper mapper, Class<T> type,
+                       Function<T, Long> idOf) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Количество шардов должно быть положительным: " + shardCount);
+        }
+        List<Shard<T>> created = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            ShardJournal<T> journal = dataDir == null
+                    ? null
+                    : new ShardJournal<>(dataDir.resolve(name + "-" + i + ".jsonl"), mapper, type);
+            created.add(new Shard<>(idOf, journal));
+        }
+        this.shards = List.copyOf(created);
+        log.info("Хранилище {}: {} шардов, файлы: {}", name, shardCount, dataDir == null ? "нет" : dataDir);
+    }
+
+    public Shard<T> shardFor(Long id) {
+        return shards.get(Math.floorMod(Long.hashCode(id), shards.size()));
+    }
+
+    // Группирует ID по шардам, сохраняя порядок внутри группы
+    public Map<Shard<T>, List<Long>> partition(Collection<Long> ids) {
+        Map<Shard<T>, List<Long>> groups = new LinkedHashMap<>();
+        for (Long id : ids) {
+            groups.computeIfAbsent(shardFor(id), shard -> new ArrayList<>()).add(id);
+        }
+        return groups;
+    }
+
+    // Выполняет запрос на всех шардах параллельно и возвращает ответы в порядке шардов
+    public <R> List<R> scatter(Function<Shard<T>, R> query) {
+        return gather(shards, query);
+    }
+
+    // Выполняет запрос только на переданных шардах
+    public <R> List<R> gather(Collection<Shard<T>> targets, Function<Shard<T>, R> query) {
+        if (targets.size() == 1) {
+            return List.of(query.apply(targets.iterator().next()));
+        }
+        List<CompletableFuture<R>> futures = new ArrayList<>(targets.size());
+        for (Shard<T> shard : targets) {
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard), workers));
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+        shards.forEach(Shard::close);
+    }
+}
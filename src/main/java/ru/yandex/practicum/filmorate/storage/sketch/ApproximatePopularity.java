@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.storage.sketch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Приближённый режим популярных фильмов для очень больших каталогов.
+ * В этом режиме лайки хранятся здесь вместо карт FilmService: точное компактное множество пар
+ * (фильм, пользователь) нужно для повторных лайков и снятия лайка, а число лайков и топ берутся
+ * из Count-Min Sketch и Space-Saving. Фильтр Блума отсекает заведомо отсутствующие лайки
+ * без поиска в множестве. Включается свойством filmorate.popular.approximate.enabled.
+ */
+@Slf4j
+@Component
+public class ApproximatePopularity {
+
+    // Сколько кандидатов из Space-Saving берём на каждое место в итоговом топе
+    private static final int CANDIDATES_PER_SLOT = 2;
+
+    private final boolean enabled;
+    private final int capacity;
+    private final CountMinSketch sketch;
+    private final SpaceSavingTopK topK;
+    private final BloomFilter likes;
+    private final LikePairSet pairs;
+
+    public ApproximatePopularity(
+            @Value("${filmorate.popular.approximate.enabled:false}") boolean enabled,
+            @Value("${filmorate.popular.approximate.epsilon:0.0001}") double epsilon,
+            @Value("${filmorate.popular.approximate.delta:0.01}") double delta,
+            @Value("${filmorate.popular.approximate.capacity:1000}") int capacity,
+            @Value("${filmorate.popular.approximate.expected-likes:1000000}") long expectedLikes,
+            @Value("${filmorate.popular.approximate.bloom-fpp:0.01}") double bloomFpp) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        if (enabled) {
+            this.sketch = new CountMinSketch(epsilon, delta);
+            this.topK = new SpaceSavingTopK(capacity);
+            this.likes = new BloomFilter(expectedLikes, bloomFpp);
+            this.pairs = new LikePairSet();
+            log.info("Включён приближённый режим популярных фильмов: CMS {}x{}, Space-Saving на {} фильмов",
+                    sketch.depth(), sketch.width(), capacity);
+        } else {
+            this.sketch = null;
+            this.topK = null;
+            this.likes = null;
+            this.pairs = null;
+        }
+    }
+
+    public static ApproximatePopularity disabled() {
+        return new ApproximatePopularity(false, 0, 0, 0, 0, 0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // false, если пользователь уже ставил лайк этому фильму
+    public synchronized boolean recordLike(long filmId, long userId, long likedAt) {
+        if (!pairs.add(filmId, userId, likedAt)) {
+            return false;
+        }
+        sketch.add(filmId, 1);
+        topK.increment(filmId);
+        likes.put(filmId, userId);
+        return true;
+    }
+
+    // Время снятого лайка или null, если лайка не было
+    public synchronized Long recordUnlike(long filmId, long userId) {
+        if (!likes.mightContain(filmId, userId)) {
+            return null;
+        }
+        Long likedAt = pairs.remove(filmId, userId);
+        if (likedAt != null) {
+            sketch.add(filmId, -1);
+            topK.decrement(filmId);
+        }
+        return likedAt;
+    }
+
+    // Снимает все лайки удалённого пользователя: filmId -> время лайка
+    public synchronized Map<Long, Long> removeUser(long userId) {
+        Map<Long, Long> removed = pairs.removeUser(userId);
+        for (Long filmId : removed.keySet()) {
+            sketch.add(filmId, -1);
+            topK.decrement(filmId);
+        }
+        return removed;
+    }
+
+    // Снимает лайки удалённого фильма и освобождает его место в Space-Saving; возвращает userId -> время лайка
+    public synchronized Map<Long, Long> removeFilm(long filmId) {
+        Map<Long, Long> removed = pairs.removeFilm(filmId);
+        sketch.add(filmId, -removed.size());
+        topK.remove(filmId);
+        return removed;
+    }
+
+    public synchronized int likeCount() {
+        return pairs.size();
+    }
+
+    // false означает, что пользователь точно не ставил лайк этому фильму
+    public synchronized boolean mightHaveLiked(long filmId, long userId) {
+        return likes.mightContain(filmId, userId);
+    }
+
+    public synchronized long estimateLikes(long filmId) {
+        return Math.min(sketch.estimate(filmId), topK.upperBound(filmId));
+    }
+
+    // Кандидаты из Space-Saving упорядочиваются по более точной из двух оценок;
+    // фильмы, для которых present ложно (удалены, но ещё не вычищены), пропускаются
+    public synchronized List<Long> top(int count, LongPredicate present) {
+        if (count <= 0) {
+            return List.of();
+        }
+        // Space-Saving не отслеживает больше capacity фильмов, поэтому больший запрос кандидатов бессмыслен
+        return topK.top(Math.min(count, capacity) * CANDIDATES_PER_SLOT).stream()
+                .filter(present::test)
+                .sorted(Comparator.comparingLong(this::estimateLikes).reversed())
+                .limit(count)
+                .toList();
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.storage.sketch;
+
+/**
+ * Count-Min Sketch для оценки частот.
+ * С вероятностью не меньше 1 - delta оценка превышает точное значение
+ * не более чем на epsilon * (сумма всех счётчиков).
+ */
+public class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final long[][] table;
+    private final long[] seeds;
+
+    public CountMinSketch(double epsilon, double delta) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("epsilon и delta должны быть в интервале (0, 1)");
+        }
+        this.width = (int) Math.ceil(Math.E / epsilon);
+        this.depth = (int) Math.ceil(Math.log(1 / delta));
+        this.table = new long[depth][width];
+        this.seeds = new long[depth];
+        for (int i = 0; i < depth; i++) {
+            seeds[i] = Hashing.mix(0x9E3779B97F4A7C15L * (i + 1));
+        }
+    }
+
+    // delta может быть отрицательной: лайки можно снимать
+    public void add(long item, long delta) {
+        for (int i = 0; i < depth; i++) {
+            table[i][bucket(item, i)] += delta;
+        }
+    }
+
+    public long estimate(long item) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, table[i][bucket(item, i)]);
+        }
+        return Math.max(0, min);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    private int bucket(long item, int row) {
+        return (int) Long.remainderUnsigned(Hashing.mix(item ^ seeds[row]), width);
+    }
+}
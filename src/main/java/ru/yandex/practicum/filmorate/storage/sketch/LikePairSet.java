@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage.sketch;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Точное множество лайков (фильм, пользователь) со временем лайка в примитивных массивах
+ * с открытой адресацией: около 32 байт на лайк вместо узлов двух вложенных хеш-таблиц.
+ * Обратного индекса нет — удаление пользователя или фильма проходит весь массив.
+ * Не потокобезопасно: вызывающий синхронизирует доступ.
+ */
+class LikePairSet {
+
+    // ID фильмов положительны, поэтому 0 помечает пустую ячейку
+    private static final long EMPTY = 0;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] films;
+    private long[] users;
+    private long[] times;
+    private int size;
+
+    LikePairSet() {
+        allocate(MIN_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    // false, если лайк уже есть
+    boolean add(long filmId, long userId, long likedAt) {
+        if ((size + 1) * 4L > films.length * 3L) {
+            resize(films.length * 2);
+        }
+        int slot = find(filmId, userId);
+        if (films[slot] != EMPTY) {
+            return false;
+        }
+        films[slot] = filmId;
+        users[slot] = userId;
+        times[slot] = likedAt;
+        size++;
+        return true;
+    }
+
+    // Время снятого лайка или null, если лайка не было
+    Long remove(long filmId, long userId) {
+        int slot = find(filmId, userId);
+        if (films[slot] == EMPTY) {
+            return null;
+        }
+        long likedAt = times[slot];
+        delete(slot);
+        return likedAt;
+    }
+
+    // Снимает все лайки пользователя: filmId -> время лайка
+    Map<Long, Long> removeUser(long userId) {
+        Map<Long, Long> removed = new LinkedHashMap<>();
+        for (int i = 0; i < films.length; i++) {
+            if (films[i] != EMPTY && users[i] == userId) {
+                removed.put(films[i], times[i]);
+            }
+        }
+        removed.keySet().forEach(filmId -> remove(filmId, userId));
+        return removed;
+    }
+
+    // Снимает все лайки фильма: userId -> время лайка
+    Map<Long, Long> removeFilm(long filmId) {
+        Map<Long, Long> removed = new LinkedHashMap<>();
+        for (int i = 0; i < films.length; i++) {
+            if (films[i] == filmId) {
+                removed.put(users[i], times[i]);
+            }
+        }
+        removed.keySet().forEach(userId -> remove(filmId, userId));
+        return removed;
+    }
+
+    // Ячейка с парой или первая пустая ячейка на её пути
+    private int find(long filmId, long userId) {
+        int mask = films.length - 1;
+        int slot = slot(filmId, userId, mask);
+        while (films[slot] != EMPTY && (films[slot] != filmId || users[slot] != userId)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Удаление со сдвигом назад: следующие элементы цепочки встают ближе к своим ячейкам, меток удаления нет
+    private void delete(int slot) {
+        int mask = films.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (films[next] != EMPTY) {
+            int home = slot(films[next], users[next], mask);
+            // Элемент можно перенести в дыру, если его исходная ячейка не лежит между дырой и им самим
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                films[hole] = films[next];
+                users[hole] = users[next];
+                times[hole] = times[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        films[hole] = EMPTY;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        long[] oldFilms = films;
+        long[] oldUsers = users;
+        long[] oldTimes = times;
+        allocate(capacity);
+        for (int i = 0; i < oldFilms.length; i++) {
+            if (oldFilms[i] != EMPTY) {
+                int slot = find(oldFilms[i], oldUsers[i]);
+                films[slot] = oldFilms[i];
+                users[slot] = oldUsers[i];
+                times[slot] = oldTimes[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        films = new long[capacity];
+        users = new long[capacity];
+        times = new long[capacity];
+    }
+
+    private static int slot(long filmId, long userId, int mask) {
+        return (int) Hashing.mix(filmId * 31 + userId) & mask;
+    }
+}
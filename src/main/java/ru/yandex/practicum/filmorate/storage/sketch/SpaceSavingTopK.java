@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.storage.sketch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Алгоритм Space-Saving: отслеживает не более capacity самых частых элементов.
+ * Любой элемент с частотой больше N / capacity гарантированно находится среди отслеживаемых.
+ */
+public class SpaceSavingTopK {
+
+    private static final Comparator<Counter> BY_COUNT = Comparator.<Counter>comparingLong(c -> c.count)
+            .thenComparingLong(c -> c.item);
+
+    private final int capacity;
+    private final Map<Long, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> ordered = new TreeSet<>(BY_COUNT);
+
+    public SpaceSavingTopK(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ёмкость должна быть положительной");
+        }
+        this.capacity = capacity;
+    }
+
+    public void increment(long item) {
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            reorder(counter, counter.count + 1);
+            return;
+        }
+        if (counters.size() < capacity) {
+            counter = new Counter(item, 1);
+        } else {
+            // Вытесняем элемент с минимальным счётчиком, новый наследует его значение
+            Counter min = ordered.pollFirst();
+            counters.remove(min.item);
+            counter = new Counter(item, min.count + 1);
+        }
+        counters.put(item, counter);
+        ordered.add(counter);
+    }
+
+    public void decrement(long item) {
+        Counter counter = counters.get(item);
+        if (counter != null && counter.count > 0) {
+            reorder(counter, counter.count - 1);
+        }
+    }
+
+    // Освобождает место элемента, который больше не должен попадать в топ
+    public void remove(long item) {
+        Counter counter = counters.remove(item);
+        if (counter != null) {
+            ordered.remove(counter);
+        }
+    }
+
+    // Счётчик Space-Saving не меньше точной частоты элемента
+    public long upperBound(long item) {
+        Counter counter = counters.get(item);
+        return counter == null ? 0 : counter.count;
+    }
+
+    // Элементы по убыванию счётчика
+    public List<Long> top(int k) {
+        List<Long> result = new ArrayList<>(Math.min(k, counters.size()));
+        Iterator<Counter> iterator = ordered.descendingIterator();
+        while (iterator.hasNext() && result.size() < k) {
+            Counter counter = iterator.next();
+            if (counter.count > 0) {
+                result.add(counter.item);
+            }
+        }
+        return result;
+    }
+
+    private void reorder(Counter counter, long newCount) {
+        ordered.remove(counter);
+        counter.count = newCount;
+        ordered.add(counter);
+    }
+
+    private static final class Counter {
+        private final long item;
+        private long count;
+
+        Counter(long item, long count) {
+            this.item = item;
+            this.count = count;
+        }
+    }
+}
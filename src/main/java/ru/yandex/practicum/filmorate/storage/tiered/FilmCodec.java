@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage.tiered;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Компактная двоичная запись фильма для сегмента: ID, строки в UTF-8 с длиной, дата днями эпохи,
+ * продолжительность секундами. Отсутствующее поле кодируется длиной -1 или {@link Long#MIN_VALUE}.
+ */
+final class FilmCodec {
+
+    private static final long ABSENT = Long.MIN_VALUE;
+
+    private FilmCodec() {
+    }
+
+    static byte[] encode(Film film) {
+        byte[] name = utf8(film.name());
+        byte[] description = utf8(film.description());
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES * 3 + stringSize(name) + stringSize(description));
+        buffer.putLong(film.id());
+        putString(buffer, name);
+        putString(buffer, description);
+        buffer.putLong(film.releaseDate() == null ? ABSENT : film.releaseDate().toEpochDay());
+        buffer.putLong(film.duration() == null ? ABSENT : film.duration().getSeconds());
+        return buffer.array();
+    }
+
+    static Film decode(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        String name = getString(buffer);
+        String description = getString(buffer);
+        long releaseDate = buffer.getLong();
+        long duration = buffer.getLong();
+        return new Film(id, name, description,
+                releaseDate == ABSENT ? null : LocalDate.ofEpochDay(releaseDate),
+                duration == ABSENT ? null : Duration.ofSeconds(duration));
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(byte[] bytes) {
+        return Integer.BYTES + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
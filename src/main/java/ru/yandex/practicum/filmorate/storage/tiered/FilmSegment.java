@@ -0,0 +1,203 @@
+package ru.yandex.practicum.filmorate.storage.tiered;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Файл холодных фильмов: записи {@link FilmCodec} подряд, в памяти — только ID и положение записи,
+ * упакованные в один long. Перезапись и удаление оставляют в файле мёртвые байты;
+ * когда их становится больше живых, файл переписывается. Сегмент — область вытеснения, а не
+ * долговременное хранилище: при открытии файл очищается, при закрытии удаляется.
+ */
+@Slf4j
+public final class FilmSegment implements Closeable {
+
+    private static final int LENGTH_BITS = 24;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    // Не переписываем маленький файл: выигрыш не окупит копирование
+    private static final long MIN_COMPACT_BYTES = 1 << 20;
+
+    private static final StandardOpenOption[] OPEN_OPTIONS = {
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+
+    private final Path file;
+    private final Map<Long, Long> locations = new ConcurrentHashMap<>();
+    // Чтения берут блокировку на чтение: переписывание файла меняет и канал, и положения записей
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private long end;
+    private long deadBytes;
+
+    public FilmSegment(Path file) {
+        this.file = file;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть сегмент фильмов " + file, e);
+        }
+    }
+
+    public boolean contains(Long filmId) {
+        return locations.containsKey(filmId);
+    }
+
+    public void write(Film film) {
+        byte[] record = FilmCodec.encode(film);
+        if (record.length > LENGTH_MASK) {
+            throw new IllegalArgumentException("Запись фильма " + film.id() + " слишком велика для сегмента");
+        }
+        lock.writeLock().lock();
+        try {
+            writeFully(channel, ByteBuffer.wrap(record), end);
+            Long previous = locations.put(film.id(), pack(end, record.length));
+            end += record.length;
+            if (previous != null) {
+                deadBytes += length(previous);
+            }
+            compactIfNeeded();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать фильм " + film.id() + " в сегмент " + file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Фильм из сегмента или null, если его там нет
+    public Film read(Long filmId) {
+        lock.readLock().lock();
+        try {
+            Long location = locations.get(filmId);
+            if (location == null) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(length(location));
+            readFully(channel, buffer, offset(location));
+            buffer.flip();
+            return FilmCodec.decode(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать фильм " + filmId + " из сегмента " + file, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void remove(Long filmId) {
+        lock.writeLock().lock();
+        try {
+            Long previous = locations.remove(filmId);
+            if (previous != null) {
+                deadBytes += length(previous);
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        return locations.size();
+    }
+
+    public long fileBytes() {
+        lock.readLock().lock();
+        try {
+            return end;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить сегмент фильмов {}", file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Вызывается под блокировкой на запись
+    private void compactIfNeeded() {
+        if (deadBytes < MIN_COMPACT_BYTES || deadBytes <= end - deadBytes) {
+            return;
+        }
+        long before = end;
+        Path next = file.resolveSibling(file.getFileName() + ".compact");
+        Map<Long, Long> moved = new HashMap<>(locations.size() * 2);
+        long position = 0;
+        try (FileChannel target = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Map.Entry<Long, Long> entry : locations.entrySet()) {
+                long location = entry.getValue();
+                ByteBuffer buffer = ByteBuffer.allocate(length(location));
+                readFully(channel, buffer, offset(location));
+                buffer.flip();
+                writeFully(target, buffer, position);
+                moved.put(entry.getKey(), pack(position, length(location)));
+                position += length(location);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось переписать сегмент фильмов " + file, e);
+        }
+        try {
+            channel.close();
+            Files.move(next, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file, OPEN_OPTIONS);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось заменить сегмент фильмов " + file, e);
+        }
+        locations.putAll(moved);
+        end = position;
+        deadBytes = 0;
+        log.info("Сегмент фильмов переписан: {} -> {} байт, {} записей", before, end, moved.size());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Запись обрывается на позиции " + position);
+            }
+            position += read;
+        }
+    }
+
+    private static long pack(long offset, int length) {
+        return offset << LENGTH_BITS | length;
+    }
+
+    private static long offset(long location) {
+        return location >>> LENGTH_BITS;
+    }
+
+    private static int length(long location) {
+        return (int) (location & LENGTH_MASK);
+    }
+}
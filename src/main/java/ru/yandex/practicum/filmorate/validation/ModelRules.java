@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.validation;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * Правила проверки фильмов, пользователей и отзывов.
+ */
+public final class ModelRules {
+
+    public static final int MAX_DESCRIPTION_LENGTH = 200;
+    public static final LocalDate EARLIEST_RELEASE_DATE = LocalDate.of(1895, 12, 28);
+
+    private static final Today TODAY = new Today(Clock.systemDefaultZone());
+
+    public static final ModelValidator<Film> FILM = ModelValidator.<Film>builder()
+            .rule(Film::name, true, name -> !name.isBlank(),
+                    "Название не может быть пустым")
+            .rule(Film::description, true, description -> !description.isBlank(),
+                    "Описание не может быть пустым")
+            .rule(Film::description, false, description -> description.length() <= MAX_DESCRIPTION_LENGTH,
+                    "Описание фильма не может быть более 200 символов")
+            .rule(Film::releaseDate, true, date -> !date.isBefore(EARLIEST_RELEASE_DATE),
+                    "Дата релиза не может быть раньше 28 декабря 1895 года")
+            .rule(Film::duration, true, duration -> duration.getSeconds() > 0,
+                    "Продолжительность фильма должна быть положительным числом")
+            .build();
+
+    public static final ModelValidator<User> USER = ModelValidator.<User>builder()
+            .rule(User::email, true, email -> !email.isBlank() && email.indexOf('@') >= 0,
+                    "E-mail должен быть указан и содержать символ '@'")
+            .rule(User::login, true, login -> !login.isBlank() && login.indexOf(' ') < 0,
+                    "Логин не может быть пустым и не должен содержать пробелы")
+            .rule(User::birthday, false, birthday -> birthday.toEpochDay() <= TODAY.epochDay(),
+                    "Дата рождения не может быть в будущем")
+            .build();
+
+    public static final ModelValidator<Review> REVIEW = ModelValidator.<Review>builder()
+            .rule(Review::content, true, content -> !content.isBlank(),
+                    "Текст отзыва не может быть пустым")
+            .rule(Review::isPositive, true, isPositive -> true,
+                    "Нужно указать, положительный ли отзыв")
+            .rule(Review::userId, true, userId -> true,
+                    "Нужно указать автора отзыва")
+            .rule(Review::filmId, true, filmId -> true,
+                    "Нужно указать фильм")
+            .build();
+
+    private ModelRules() {
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.validation;
+
+import ru.yandex.practicum.filmorate.profiling.ValidationEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Набор правил проверки модели, собранный один раз при старте.
+ * Проверка успешной модели не выделяет память: список нарушений создаётся только при первой ошибке.
+ *
+ * @param <T> тип проверяемой модели
+ */
+public final class ModelValidator<T> {
+
+    private final Rule<T, ?>[] rules;
+
+    private ModelValidator(List<Rule<T, ?>> rules) {
+        @SuppressWarnings("unchecked")
+        Rule<T, ?>[] compiled = rules.toArray(new Rule[0]);
+        this.rules = compiled;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Возвращает все нарушения сразу. При обновлении поля, равные null, не проверяются:
+     * они означают, что поле не меняется.
+     */
+    public List<String> validate(T target, boolean isUpdate) {
+        ValidationEvent event = ValidationEvent.start();
+        List<String> violations = null;
+        for (Rule<T, ?> rule : rules) {
+            String violation = rule.check(target, isUpdate);
+            if (violation != null) {
+                if (violations == null) {
+                    violations = new ArrayList<>(rules.length);
+                }
+                violations.add(violation);
+            }
+        }
+        event.finish(target.getClass(), isUpdate, rules.length, violations == null ? 0 : violations.size());
+        return violations == null ? Collections.emptyList() : violations;
+    }
+
+    public static final class Builder<T> {
+        private final List<Rule<T, ?>> rules = new ArrayList<>();
+
+        /**
+         * Добавляет правило для поля. Отсутствующее (null) поле при создании считается нарушением,
+         * если required = true.
+         */
+        public <V> Builder<T> rule(Function<T, V> field, boolean required, Predicate<V> valid, String message) {
+            rules.add(new Rule<>(field, required, valid, message));
+            return this;
+        }
+
+        public ModelValidator<T> build() {
+            return new ModelValidator<>(rules);
+        }
+    }
+
+    private record Rule<T, V>(Function<T, V> field, boolean required, Predicate<V> valid, String message) {
+
+        String check(T target, boolean isUpdate) {
+            V value = field.apply(target);
+            if (value == null) {
+                return required && !isUpdate ? message : null;
+            }
+            return valid.test(value) ? null : message;
+        }
+    }
+}
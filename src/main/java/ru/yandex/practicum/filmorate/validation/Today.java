@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.validation;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Текущая дата, пересчитываемая только после полуночи,
+ * чтобы не вызывать LocalDate.now() на каждую проверку.
+ */
+final class Today {
+
+    private final Clock clock;
+    private final ZoneId zone;
+    private volatile State state;
+
+    Today(Clock clock) {
+        this.clock = clock;
+        this.zone = clock.getZone();
+        this.state = compute();
+    }
+
+    long epochDay() {
+        State current = state;
+        if (clock.millis() >= current.nextMidnightMillis) {
+            current = compute();
+            state = current;
+        }
+        return current.epochDay;
+    }
+
+    private State compute() {
+        LocalDate today = LocalDate.now(clock);
+        long nextMidnight = today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        return new State(today.toEpochDay(), nextMidnight);
+    }
+
+    private record State(long epochDay, long nextMidnightMillis) {
+    }
+}
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FilmLikesChangedEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FeedService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.FilmTrendingCounters;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.sketch.ApproximatePopularity;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+class ActivityFeedTest {
+
+    private UserStorage userStorage;
+    private UserService userService;
+    private FeedService feed;
+
+    private void setUp(int capacity, int fanOutLimit) {
+        userStorage = new InMemoryUserStorage();
+        feed = new FeedService(userStorage, Clock.systemUTC(), capacity, fanOutLimit);
+        userService = new UserService(userStorage, new Tombstones(), event -> {
+            if (event instanceof FriendshipChangedEvent friendship) {
+                feed.onFriendshipChanged(friendship);
+            } else if (event instanceof UserDeletedEvent deleted) {
+                feed.onUserDeleted(deleted);
+            }
+        });
+    }
+
+    @Test
+    void feed_containsOwnAndFriendsEventsNewestFirst() {
+        setUp(100, 1000);
+        User user = userService.createUser(user("user"));
+        User friend = userService.createUser(user("friend"));
+        User stranger = userService.createUser(user("stranger"));
+
+        userService.addFriend(user.id(), friend.id());
+        like(friend.id(), 10L);
+        like(stranger.id(), 11L);
+        like(user.id(), 12L);
+
+        List<FeedEvent> events = feed.getFeed(user.id(), 10);
+        assertEquals(List.of(12L, 10L, friend.id()), events.stream().map(FeedEvent::entityId).toList());
+        assertEquals(FeedEvent.EventType.FRIEND, events.get(2).eventType());
+        assertEquals(FeedEvent.Operation.ADD, events.get(2).operation());
+
+        // После разрыва дружбы события бывшего друга из ленты пропадают
+        userService.removeFriend(user.id(), friend.id());
+        List<FeedEvent> afterRemoval = feed.getFeed(user.id(), 10);
+        assertTrue(afterRemoval.stream().allMatch(event -> event.userId().equals(user.id())));
+        assertEquals(FeedEvent.Operation.REMOVE, afterRemoval.getFirst().operation());
+
+        assertThrows(NotFoundException.class, () -> feed.getFeed(999L, 10));
+    }
+
+    @Test
+    void highDegreeAuthor_isMergedOnReadWithoutDuplicates() {
+        setUp(100, 1);
+        User author = userService.createUser(user("author"));
+        User first = userService.createUser(user("first"));
+        User second = userService.createUser(user("second"));
+
+        userService.addFriend(author.id(), first.id());
+        like(author.id(), 1L);
+        // Второй друг переводит автора на чтение без рассылки; первое событие уже лежит у first во входящих
+        userService.addFriend(author.id(), second.id());
+        like(author.id(), 2L);
+
+        List<Long> firstFeed = feed.getFeed(first.id(), 10).stream().map(FeedEvent::entityId).toList();
+        assertEquals(List.of(2L, second.id(), 1L, first.id()), firstFeed);
+        List<Long> secondFeed = feed.getFeed(second.id(), 10).stream().map(FeedEvent::entityId).toList();
+        assertEquals(List.of(2L, second.id(), 1L, first.id()), secondFeed);
+    }
+
+    @Test
+    void buffers_keepOnlyLatestEvents() {
+        setUp(3, 1000);
+        User user = userService.createUser(user("user"));
+        User friend = userService.createUser(user("friend"));
+        userService.addFriend(user.id(), friend.id());
+        for (long filmId = 101; filmId <= 105; filmId++) {
+            like(friend.id(), filmId);
+        }
+
+        // Во входящем буфере остались три последних лайка друга, в исходящем — своё добавление в друзья
+        List<Long> events = feed.getFeed(user.id(), 10).stream().map(FeedEvent::entityId).toList();
+        assertEquals(List.of(105L, 104L, 103L, friend.id()), events);
+        assertEquals(List.of(105L, 104L), feed.getFeed(user.id(), 2).stream().map(FeedEvent::entityId).toList());
+    }
+
+    @Test
+    void likeEvents_arePublishedAfterLikesLockIsReleased() throws Exception {
+        setUp(100, 1000);
+        User user = userService.createUser(user("user"));
+        User friend = userService.createUser(user("friend"));
+        userService.addFriend(user.id(), friend.id());
+        AtomicReference<FilmService> films = new AtomicReference<>();
+        films.set(new FilmService(new InMemoryFilmStorage(), userStorage, new FilmSearchIndex(),
+                new FilmTrendingCounters(), ApproximatePopularity.disabled(), new Tombstones(), event -> {
+                    if (event instanceof FilmLikesChangedEvent likes) {
+                        // Пересчёт берёт likesLock на запись и не дождётся его, если событие пришло под блокировкой
+                        assertDoesNotThrow(() -> CompletableFuture.supplyAsync(() -> films.get().rebuildAggregates())
+                                .get(5, TimeUnit.SECONDS));
+                        feed.onFilmLikesChanged(likes);
+                    }
+                }, Clock.systemUTC()));
+        Film film = films.get().create(film("Фильм"));
+
+        films.get().addLike(film.id(), friend.id());
+        films.get().removeLike(film.id(), friend.id());
+
+        List<FeedEvent> events = feed.getFeed(user.id(), 2);
+        assertEquals(List.of(FeedEvent.Operation.REMOVE, FeedEvent.Operation.ADD),
+                events.stream().map(FeedEvent::operation).toList());
+        assertTrue(events.stream().allMatch(event -> event.entityId().equals(film.id())));
+    }
+
+    private void like(Long userId, Long filmId) {
+        feed.onFilmLikesChanged(new FilmLikesChangedEvent(filmId, userId, 1, 1));
+    }
+}
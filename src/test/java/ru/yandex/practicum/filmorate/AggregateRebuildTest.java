@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.AggregateRebuildReport;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.FilmTrendingCounters;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+import ru.yandex.practicum.filmorate.storage.TrendWindow;
+import ru.yandex.practicum.filmorate.storage.sketch.ApproximatePopularity;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregateRebuildTest {
+
+    private final Clock clock = Clock.fixed(Instant.parse("2025-01-01T12:00:00Z"), ZoneOffset.UTC);
+    private InMemoryUserStorage userStorage;
+    private InMemoryFilmStorage filmStorage;
+    private FilmTrendingCounters trendingCounters;
+    private FilmService service;
+
+    @BeforeEach
+    void setUp() {
+        userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage();
+        trendingCounters = new FilmTrendingCounters();
+        service = new FilmService(filmStorage, userStorage, new FilmSearchIndex(), trendingCounters,
+                ApproximatePopularity.disabled(), new Tombstones(), event -> { }, clock);
+    }
+
+    @Test
+    void rebuild_withoutDrift_reportsNoDivergence() {
+        List<Film> films = createFilms(3);
+        List<User> users = createUsers(4);
+        for (int i = 0; i < users.size(); i++) {
+            for (int j = 0; j <= i % films.size(); j++) {
+                service.addLike(films.get(j).id(), users.get(i).id());
+            }
+        }
+        List<Film> top = service.getTopFilms(10);
+
+        AggregateRebuildReport report = service.rebuildAggregates();
+
+        assertEquals(3, report.films());
+        assertEquals(7, report.likes());
+        assertEquals(4, report.users());
+        assertEquals(0, report.usersDiverged());
+        assertEquals(0, report.filmsDiverged());
+        assertEquals(top, service.getTopFilms(10));
+        assertEquals(top, service.getTrendingFilms(TrendWindow.HOUR, 10));
+    }
+
+    @Test
+    void rebuild_replacesDriftedTrendingCounters() {
+        List<Film> films = createFilms(2);
+        User user = createUsers(1).getFirst();
+        service.addLike(films.get(1).id(), user.id());
+        // Счётчики разошлись с лайками: лишний лайк у фильма и счётчик фильма без лайков
+        trendingCounters.recordLike(films.get(0).id(), clock.millis());
+        trendingCounters.recordLike(films.get(0).id(), clock.millis());
+        trendingCounters.recordLike(999L, clock.millis());
+        assertEquals(films.get(0).id(), service.getTrendingFilms(TrendWindow.HOUR, 10).getFirst().id());
+
+        AggregateRebuildReport report = service.rebuildAggregates();
+
+        assertEquals(2, report.filmsDiverged());
+        assertEquals(List.of(films.get(0).id(), 999L), report.sampleFilmIds());
+        assertEquals(0, report.usersDiverged());
+        assertEquals(List.of(films.get(1)), service.getTrendingFilms(TrendWindow.DAY, 10));
+        assertEquals(0, trendingCounters.likes(999L, TrendWindow.WEEK, clock.millis()));
+        assertEquals(0, service.rebuildAggregates().filmsDiverged());
+    }
+
+    @Test
+    void rebuild_concurrentWithLikes_leavesConsistentIndexes() throws Exception {
+        List<Film> films = createFilms(20);
+        List<User> users = createUsers(20);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                writers.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 5000; i++) {
+                        Long filmId = films.get(random.nextInt(films.size())).id();
+                        Long userId = users.get(random.nextInt(users.size())).id();
+                        if (random.nextBoolean()) {
+                            service.addLike(filmId, userId);
+                        } else {
+                            try {
+                                service.removeLike(filmId, userId);
+                            } catch (NotFoundException ignored) {
+                                // Лайка не было
+                            }
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < 5; i++) {
+                service.rebuildAggregates();
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        service.rebuildAggregates();
+        AggregateRebuildReport report = service.rebuildAggregates();
+        assertEquals(0, report.usersDiverged());
+        assertEquals(0, report.filmsDiverged());
+
+        // Обратный индекс полон: удаление всех пользователей снимает все лайки
+        for (User user : users) {
+            service.onUserDeleted(new UserDeletedEvent(user.id()));
+        }
+        assertEquals(0, service.rebuildAggregates().likes());
+        assertTrue(service.getTrendingFilms(TrendWindow.HOUR, 100).isEmpty());
+    }
+
+    private List<Film> createFilms(int count) {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            films.add(service.create(Film.builder()
+                    .name("Фильм " + i)
+                    .description("Описание")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(Duration.ofMinutes(90))
+                    .build()));
+        }
+        return films;
+    }
+
+    private List<User> createUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(userStorage.create(User.builder()
+                    .email("user" + i + "@example.ru")
+                    .login("user" + i)
+                    .name("user" + i)
+                    .birthday(LocalDate.of(2000, 1, 1))
+                    .build()));
+        }
+        return users;
+    }
+}
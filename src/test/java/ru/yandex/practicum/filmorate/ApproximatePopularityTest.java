@@ -0,0 +1,220 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FilmLikesChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.FilmTrendingCounters;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+import ru.yandex.practicum.filmorate.storage.sketch.ApproximatePopularity;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+class ApproximatePopularityTest {
+
+    private static final int FILMS = 5_000;
+    private static final int LIKES = 200_000;
+
+    @Test
+    void approximateTopMatchesExactTopOnZipfianLikes() {
+        ApproximatePopularity approximate = new ApproximatePopularity(true, 0.0001, 0.01, 500, LIKES, 0.01);
+        Map<Long, Long> exact = new HashMap<>();
+        double[] cumulative = zipfCumulative(FILMS, 1.1);
+        Random random = new Random(42);
+
+        for (long userId = 1; userId <= LIKES; userId++) {
+            long filmId = sampleZipf(cumulative, random);
+            approximate.recordLike(filmId, userId, 0);
+            exact.merge(filmId, 1L, Long::sum);
+        }
+
+        List<Long> exactTop = exact.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(10)
+                .map(Map.Entry::getKey)
+                .toList();
+        List<Long> approximateTop = approximate.top(10, id -> true);
+
+        assertEquals(exactTop.subList(0, 3), approximateTop.subList(0, 3));
+        Set<Long> overlap = new HashSet<>(exactTop);
+        overlap.retainAll(approximateTop);
+        assertTrue(overlap.size() >= 9, "Пересечение с точным топом: " + overlap.size());
+        for (Long filmId : approximateTop) {
+            long error = approximate.estimateLikes(filmId) - exact.get(filmId);
+            assertTrue(error >= 0 && error <= 0.0001 * LIKES * 2, "Ошибка оценки: " + error);
+        }
+    }
+
+    @Test
+    void unlikeLowersFilmInApproximateTop() {
+        ApproximatePopularity approximate = new ApproximatePopularity(true, 0.001, 0.01, 10, 1000, 0.01);
+        approximate.recordLike(1, 1, 0);
+        approximate.recordLike(1, 2, 0);
+        approximate.recordLike(2, 1, 0);
+
+        assertEquals(List.of(1L, 2L), approximate.top(2, id -> true));
+        assertEquals(0L, approximate.recordUnlike(1, 1));
+        assertEquals(0L, approximate.recordUnlike(1, 2));
+        assertNull(approximate.recordUnlike(1, 2));
+        assertEquals(List.of(2L), approximate.top(2, id -> true).subList(0, 1));
+    }
+
+    @Test
+    void hugeCountDoesNotOverflowCandidateCount() {
+        ApproximatePopularity approximate = new ApproximatePopularity(true, 0.001, 0.01, 10, 1000, 0.01);
+        approximate.recordLike(1, 1, 0);
+        approximate.recordLike(2, 1, 0);
+        approximate.recordLike(2, 2, 0);
+
+        assertEquals(List.of(2L, 1L), approximate.top(Integer.MAX_VALUE, id -> true));
+        assertTrue(approximate.top(0, id -> true).isEmpty());
+    }
+
+    @Test
+    void likePairsMatchExactSetUnderRandomLikesAndUnlikes() {
+        ApproximatePopularity approximate = new ApproximatePopularity(true, 0.001, 0.01, 50, 10_000, 0.01);
+        Map<List<Long>, Long> exact = new HashMap<>();
+        Random random = new Random(11);
+
+        for (int i = 0; i < 50_000; i++) {
+            long filmId = 1 + random.nextInt(50);
+            long userId = 1 + random.nextInt(200);
+            List<Long> pair = List.of(filmId, userId);
+            if (random.nextInt(3) > 0) {
+                assertEquals(!exact.containsKey(pair), approximate.recordLike(filmId, userId, i));
+                exact.putIfAbsent(pair, (long) i);
+            } else {
+                assertEquals(exact.remove(pair), approximate.recordUnlike(filmId, userId));
+            }
+        }
+        assertEquals(exact.size(), approximate.likeCount());
+
+        Map<Long, Long> expected = new HashMap<>();
+        exact.forEach((pair, likedAt) -> {
+            if (pair.get(1) == 7L) {
+                expected.put(pair.get(0), likedAt);
+            }
+        });
+        assertEquals(expected, approximate.removeUser(7));
+        assertEquals(exact.size() - expected.size(), approximate.likeCount());
+    }
+
+    @Test
+    void removedFilmLeavesSpaceSavingAndSkipsAbsentFilms() {
+        ApproximatePopularity approximate = new ApproximatePopularity(true, 0.001, 0.01, 10, 1000, 0.01);
+        for (long userId = 1; userId <= 3; userId++) {
+            approximate.recordLike(1, userId, 0);
+        }
+        approximate.recordLike(2, 1, 0);
+        approximate.recordLike(3, 1, 0);
+
+        // Фильм 2 удалён, но ещё не вычищен — место в топе достаётся следующему
+        assertEquals(List.of(1L, 3L), approximate.top(2, id -> id != 2));
+        assertEquals(3, approximate.removeFilm(1).size());
+        assertEquals(2, approximate.likeCount());
+        assertEquals(Set.of(2L, 3L), Set.copyOf(approximate.top(10, id -> true)));
+        assertNull(approximate.recordUnlike(1, 1));
+    }
+
+    @Test
+    void approximateModeServesLikesAndPopularWithoutExactIndexes() throws Exception {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        Tombstones tombstones = new Tombstones();
+        List<FilmLikesChangedEvent> events = new ArrayList<>();
+        FilmService service = new FilmService(new InMemoryFilmStorage(), userStorage, new FilmSearchIndex(),
+                new FilmTrendingCounters(), new ApproximatePopularity(true, 0.001, 0.01, 10, 1000, 0.01),
+                tombstones, event -> {
+                    if (event instanceof FilmLikesChangedEvent likes) {
+                        events.add(likes);
+                    }
+                }, Clock.systemUTC());
+        List<Long> films = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            films.add(service.create(film("Фильм " + i)).id());
+        }
+        List<Long> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(userStorage.create(user("user" + i)).id());
+        }
+        // Фильм i получает i лайков
+        for (int i = 1; i < films.size(); i++) {
+            for (int u = 0; u < i; u++) {
+                service.addLike(films.get(i), users.get(u));
+            }
+        }
+        service.addLike(films.get(1), users.get(0));
+        assertEquals(6, events.size());
+        assertEquals(3, events.getLast().likes());
+
+        service.removeLike(films.get(3), users.get(2));
+        assertThrows(NotFoundException.class, () -> service.removeLike(films.get(3), users.get(2)));
+        service.addLike(films.get(3), users.get(2));
+
+        // Удалённый фильм не занимает место в топе ни до, ни после фоновой очистки
+        service.deleteFilm(films.get(3));
+        assertEquals(List.of(films.get(2), films.get(1)), service.getTopFilms(2).stream().map(Film::id).toList());
+        tombstones.awaitCleanup(5, TimeUnit.SECONDS);
+        assertEquals(List.of(films.get(2), films.get(1)), service.getTopFilms(2).stream().map(Film::id).toList());
+
+        service.onUserDeleted(new UserDeletedEvent(users.get(1)));
+        assertEquals(List.of(films.get(2), films.get(1)), service.getTopFilms(2).stream().map(Film::id).toList());
+        assertEquals(1, events.getLast().likes());
+        assertThrows(ValidationException.class, service::rebuildAggregates);
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegatives() {
+        ApproximatePopularity approximate = new ApproximatePopularity(true, 0.001, 0.01, 10, 10_000, 0.01);
+        for (long userId = 1; userId <= 10_000; userId++) {
+            approximate.recordLike(userId % 100 + 1, userId, 0);
+        }
+        for (long userId = 1; userId <= 10_000; userId++) {
+            assertTrue(approximate.mightHaveLiked(userId % 100 + 1, userId));
+        }
+        int falsePositives = 0;
+        for (long userId = 10_001; userId <= 20_000; userId++) {
+            if (approximate.mightHaveLiked(userId % 100 + 1, userId)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "Ложных срабатываний: " + falsePositives);
+    }
+
+    private static double[] zipfCumulative(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static long sampleZipf(double[] cumulative, Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return (index >= 0 ? index : -index - 1) + 1L;
+    }
+}
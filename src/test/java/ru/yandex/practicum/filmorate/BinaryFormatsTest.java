@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Выбор формата по Accept / Content-Type на настоящем контексте: Smile и CBOR для фильмов и пользователей,
+ * JSON по умолчанию.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class BinaryFormatsTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+
+    private final ObjectMapper smile = new ObjectMapper(new SmileFactory());
+    private final ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+    private final ObjectMapper json = new ObjectMapper();
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void film_roundTripsInSmileAndCbor() throws Exception {
+        for (Map.Entry<MediaType, ObjectMapper> format : Map.of(SMILE, smile, CBOR, cbor).entrySet()) {
+            MediaType type = format.getKey();
+            ObjectMapper mapper = format.getValue();
+            byte[] request = mapper.writeValueAsBytes(Map.of(
+                    "name", "Фильм " + type.getSubtype(),
+                    "description", "Описание",
+                    "releaseDate", "2000-01-01",
+                    "duration", 5400));
+
+            JsonNode created = read(mvc.perform(post("/films").contentType(type).accept(type).content(request))
+                    .andReturn(), type, mapper);
+            assertEquals("Фильм " + type.getSubtype(), created.get("name").asText());
+            // Продолжительность и в двоичных форматах — число секунд, а не строка ISO-8601
+            assertTrue(created.get("duration").isIntegralNumber(), type + ": " + created);
+            assertEquals(5400, created.get("duration").asLong());
+
+            // Сначала JSON попадает в кэш ответов — двоичный запрос не должен получить его байты
+            mvc.perform(get("/films/" + created.get("id").asLong())).andReturn();
+            JsonNode loaded = read(mvc.perform(get("/films/" + created.get("id").asLong()).accept(type))
+                    .andReturn(), type, mapper);
+            assertEquals(created, loaded);
+            assertEquals("2000-01-01", loaded.get("releaseDate").asText());
+            assertTrue(mvc.perform(get("/films/" + created.get("id").asLong()).accept(type)).andReturn()
+                    .getResponse().getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT));
+        }
+    }
+
+    @Test
+    void user_roundTripsInSmileAndCbor() throws Exception {
+        for (Map.Entry<MediaType, ObjectMapper> format : Map.of(SMILE, smile, CBOR, cbor).entrySet()) {
+            MediaType type = format.getKey();
+            ObjectMapper mapper = format.getValue();
+            String login = "binary" + type.getSubtype().replaceAll("[^a-z]", "");
+            byte[] request = mapper.writeValueAsBytes(Map.of(
+                    "email", login + "@example.ru",
+                    "login", login,
+                    "birthday", "1990-05-17"));
+
+            JsonNode created = read(mvc.perform(post("/users").contentType(type).accept(type).content(request))
+                    .andReturn(), type, mapper);
+            assertEquals(login, created.get("name").asText());
+
+            JsonNode loaded = read(mvc.perform(get("/users/" + created.get("id").asLong()).accept(type))
+                    .andReturn(), type, mapper);
+            assertEquals(created, loaded);
+            assertEquals("1990-05-17", loaded.get("birthday").asText());
+        }
+    }
+
+    @Test
+    void withoutAccept_jsonIsDefault() throws Exception {
+        MvcResult created = mvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"JSON\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90}"))
+                .andReturn();
+        JsonNode film = read(created, MediaType.APPLICATION_JSON, json);
+        assertEquals(90, film.get("duration").asLong());
+
+        MvcResult loaded = mvc.perform(get("/films/" + film.get("id").asLong())).andReturn();
+        assertEquals(film, read(loaded, MediaType.APPLICATION_JSON, json));
+    }
+
+    private static JsonNode read(MvcResult result, MediaType expected, ObjectMapper mapper) throws Exception {
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        String contentType = result.getResponse().getHeader(HttpHeaders.CONTENT_TYPE);
+        assertNotNull(contentType);
+        assertTrue(expected.isCompatibleWith(MediaType.parseMediaType(contentType)), contentType);
+        return mapper.readTree(result.getResponse().getContentAsByteArray());
+    }
+}
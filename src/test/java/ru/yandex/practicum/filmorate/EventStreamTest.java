@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.yandex.practicum.filmorate.controller.EventController;
+import ru.yandex.practicum.filmorate.event.EventStreamHub;
+import ru.yandex.practicum.filmorate.event.FilmLikesChangedEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.FilmTrendingCounters;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+import ru.yandex.practicum.filmorate.storage.sketch.ApproximatePopularity;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+class EventStreamTest {
+
+    private static final int MAX_PENDING_EVENTS = 2;
+
+    private EventStreamHub hub;
+    private FilmService filmService;
+    private UserService userService;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        hub = new EventStreamHub(60_000, MAX_PENDING_EVENTS);
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        Tombstones tombstones = new Tombstones();
+        // События доставляются в хаб синхронно, как через ApplicationEventPublisher
+        userService = new UserService(userStorage, tombstones, event -> {
+            if (event instanceof FriendshipChangedEvent friendship) {
+                hub.onFriendshipChanged(friendship);
+            }
+        });
+        filmService = new FilmService(new InMemoryFilmStorage(), userStorage, new FilmSearchIndex(),
+                new FilmTrendingCounters(), ApproximatePopularity.disabled(), tombstones, event -> {
+                    if (event instanceof FilmLikesChangedEvent likes) {
+                        hub.onFilmLikesChanged(likes);
+                    }
+                }, Clock.systemUTC());
+        mvc = MockMvcBuilders.standaloneSetup(new EventController(hub, userService)).build();
+        filmService.create(film("Фильм"));
+        for (int i = 1; i <= 4; i++) {
+            userService.createUser(user("user" + i));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void likesOfOneFilm_coalescedIntoOneEventPerTick() throws Exception {
+        MvcResult stream = mvc.perform(get("/events").param("filmIds", "1")).andReturn();
+
+        filmService.addLike(1L, 1L);
+        filmService.addLike(1L, 2L);
+        filmService.addLike(1L, 3L);
+        hub.flush();
+        String body = awaitBody(stream, content -> content.contains("\"likes\":3}"));
+
+        assertEquals(1, occurrences(body, "event:likes"));
+        assertTrue(body.contains("\"delta\":3"), body);
+
+        filmService.removeLike(1L, 2L);
+        hub.flush();
+        body = awaitBody(stream, content -> content.contains("\"likes\":2}"));
+        assertEquals(2, occurrences(body, "event:likes"));
+        assertTrue(body.contains("\"delta\":-1"), body);
+    }
+
+    @Test
+    void friendshipChanges_fannedOutToBothUsers() throws Exception {
+        MvcResult first = mvc.perform(get("/events").param("userId", "1")).andReturn();
+        MvcResult second = mvc.perform(get("/events").param("userId", "2")).andReturn();
+        MvcResult unrelated = mvc.perform(get("/events").param("userId", "3")).andReturn();
+
+        userService.addFriend(1L, 2L);
+        hub.flush();
+
+        assertTrue(awaitBody(first, content -> content.contains("\"added\":true}")).contains("event:friends"));
+        assertTrue(awaitBody(second, content -> content.contains("\"added\":true}")).contains("\"friendId\":2"));
+        assertFalse(unrelated.getResponse().getContentAsString().contains("event:friends"));
+    }
+
+    @Test
+    void slowSubscriber_droppedAfterMaxPendingEvents() throws Exception {
+        MvcResult stream = mvc.perform(get("/events").param("userId", "1")).andReturn();
+        assertEquals(1, hub.getSubscribedIdCount());
+
+        // Без тактов отправки события копятся; третье превышает предел
+        userService.addFriend(1L, 2L);
+        userService.addFriend(1L, 3L);
+        userService.addFriend(1L, 4L);
+
+        assertEquals(0, hub.getSubscribedIdCount());
+        hub.flush();
+        Thread.sleep(100);
+        assertFalse(stream.getResponse().getContentAsString().contains("event:friends"));
+    }
+
+    @Test
+    void closedSubscription_removesEmptySubscriberSets() throws Exception {
+        MvcResult stream = mvc.perform(get("/events").param("filmIds", "1").param("userId", "1")).andReturn();
+        MvcResult other = mvc.perform(get("/events").param("filmIds", "1")).andReturn();
+        assertEquals(2, hub.getSubscribedIdCount());
+
+        stream.getRequest().getAsyncContext().complete();
+        assertEquals(1, hub.getSubscribedIdCount());
+
+        other.getRequest().getAsyncContext().complete();
+        assertEquals(0, hub.getSubscribedIdCount());
+    }
+
+    // Отправка идёт в виртуальном потоке, поэтому ждём появления события в ответе. Такт, пришедший во время
+    // предыдущей отправки, откладывает изменения на следующий — такты повторяются, как у планировщика.
+    private String awaitBody(MvcResult result, Predicate<String> condition) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        String content = result.getResponse().getContentAsString();
+        while (!condition.test(content) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            hub.flush();
+            content = result.getResponse().getContentAsString();
+        }
+        assertTrue(condition.test(content), content);
+        return content;
+    }
+
+    private static int occurrences(String text, String fragment) {
+        int count = 0;
+        for (int i = text.indexOf(fragment); i >= 0; i = text.indexOf(fragment, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -4,18 +4,42 @@ import ru.yandex.practicum.filmorate.controller.*;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.yandex.practicum.filmorate.event.FilmLikesChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FilmTrendingCounters;
 import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.sketch.ApproximatePopularity;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+import ru.yandex.practicum.filmorate.storage.TrendWindow;
 
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.film;
 
 class FilmControllerTest {
 
@@ -23,35 +47,44 @@ class FilmControllerTest {
     private FilmService service;
     private FilmStorage filmStorage;
     private UserStorage userStorage;
+    private MutableClock clock;
+    private List<Object> publishedEvents;
+    private Tombstones tombstones;
 
     @BeforeEach
     void setUp() {
         filmStorage = new InMemoryFilmStorage();
         userStorage = new InMemoryUserStorage();
-        service = new FilmService(filmStorage, userStorage);
+        clock = new MutableClock(Instant.parse("2025-01-01T12:00:00Z"));
+        publishedEvents = new ArrayList<>();
+        tombstones = new Tombstones();
+        service = new FilmService(filmStorage, userStorage, new FilmSearchIndex(), new FilmTrendingCounters(),
+                ApproximatePopularity.disabled(), tombstones, publishedEvents::add, clock);
         controller = new FilmController(service);
     }
 
     @Test
     void createFilm_withEarliestReleaseDate() {
-        Film film = new Film();
-        film.setName("Фильм");
-        film.setDescription("Описание");
-        film.setReleaseDate(LocalDate.of(1895, 12, 28));
-        film.setDuration(Duration.ofMinutes(90));
+        Film film = Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(1895, 12, 28))
+                .duration(Duration.ofMinutes(90))
+                .build();
 
         Film created = controller.create(film);
-        assertNotNull(created.getId());
-        assertEquals(LocalDate.of(1895, 12, 28), created.getReleaseDate());
+        assertNotNull(created.id());
+        assertEquals(LocalDate.of(1895, 12, 28), created.releaseDate());
     }
 
     @Test
     void createFilm_withReleaseDateBeforeEarliest() {
-        Film film = new Film();
-        film.setName("Фильм");
-        film.setDescription("Описание");
-        film.setReleaseDate(LocalDate.of(1895, 12, 27));
-        film.setDuration(Duration.ofMinutes(90));
+        Film film = Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(1895, 12, 27))
+                .duration(Duration.ofMinutes(90))
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.create(film));
         assertTrue(ex.getMessage().contains("Дата релиза не может быть раньше 28 декабря 1895 года"));
@@ -59,23 +92,25 @@ class FilmControllerTest {
 
     @Test
     void createFilm_withDescription200Chars() {
-        Film film = new Film();
-        film.setName("Фильм");
-        film.setDescription("Описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание оп");
-        film.setReleaseDate(LocalDate.now());
-        film.setDuration(Duration.ofMinutes(90));
+        Film film = Film.builder()
+                .name("Фильм")
+                .description("Описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание оп")
+                .releaseDate(LocalDate.now())
+                .duration(Duration.ofMinutes(90))
+                .build();
 
         Film created = controller.create(film);
-        assertEquals(200, created.getDescription().length());
+        assertEquals(200, created.description().length());
     }
 
     @Test
     void createFilm_withDescription201Chars() {
-        Film film = new Film();
-        film.setName("Фильм");
-        film.setDescription("Описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание опи");
-        film.setReleaseDate(LocalDate.now());
-        film.setDuration(Duration.ofMinutes(90));
+        Film film = Film.builder()
+                .name("Фильм")
+                .description("Описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание опи")
+                .releaseDate(LocalDate.now())
+                .duration(Duration.ofMinutes(90))
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.create(film));
         assertTrue(ex.getMessage().contains("Описание фильма не может быть более 200 символов"));
@@ -83,11 +118,12 @@ class FilmControllerTest {
 
     @Test
     void createFilm_withZeroDuration() {
-        Film film = new Film();
-        film.setName("Фильм");
-        film.setDescription("Описание");
-        film.setReleaseDate(LocalDate.now());
-        film.setDuration(Duration.ZERO);
+        Film film = Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.now())
+                .duration(Duration.ZERO)
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.create(film));
         assertTrue(ex.getMessage().contains("Продолжительность фильма должна быть положительным числом"));
@@ -95,56 +131,77 @@ class FilmControllerTest {
 
     @Test
     void createFilm_withNegativeDuration() {
-        Film film = new Film();
-        film.setName("Фильм");
-        film.setDescription("Описание");
-        film.setReleaseDate(LocalDate.now());
-        film.setDuration(Duration.ofSeconds(-10));
+        Film film = Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.now())
+                .duration(Duration.ofSeconds(-10))
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.create(film));
         assertTrue(ex.getMessage().contains("Продолжительность фильма должна быть положительным числом"));
     }
 
+    @Test
+    void createFilm_reportsAllViolationsAtOnce() {
+        Film film = Film.builder()
+                .name(" ")
+                .description("a".repeat(201))
+                .releaseDate(LocalDate.of(1800, 1, 1))
+                .duration(Duration.ZERO)
+                .build();
+
+        ValidationException ex = assertThrows(ValidationException.class, () -> controller.create(film));
+        assertTrue(ex.getMessage().contains("Название не может быть пустым"));
+        assertTrue(ex.getMessage().contains("Описание фильма не может быть более 200 символов"));
+        assertTrue(ex.getMessage().contains("Дата релиза не может быть раньше 28 декабря 1895 года"));
+        assertTrue(ex.getMessage().contains("Продолжительность фильма должна быть положительным числом"));
+    }
+
     @Test
     void updateFilm_withValidData() {
         // Сначала создаём фильм
-        Film film = new Film();
-        film.setName("Фильм");
-        film.setDescription("Описание");
-        film.setReleaseDate(LocalDate.of(2025, 1, 1));
-        film.setDuration(Duration.ofMinutes(100));
+        Film film = Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2025, 1, 1))
+                .duration(Duration.ofMinutes(100))
+                .build();
         Film created = controller.create(film);
 
         // Обновляем фильм с граничными значениями
-        Film update = new Film();
-        update.setId(created.getId());
-        update.setName("Обновлённый фильм");
-        update.setDescription("a".repeat(200));
-        update.setReleaseDate(LocalDate.of(1895, 12, 28));
-        update.setDuration(Duration.ofSeconds(1));
+        Film update = Film.builder()
+                .id(created.id())
+                .name("Обновлённый фильм")
+                .description("a".repeat(200))
+                .releaseDate(LocalDate.of(1895, 12, 28))
+                .duration(Duration.ofSeconds(1))
+                .build();
 
         Film updated = controller.update(update);
-        assertEquals("Обновлённый фильм", updated.getName());
-        assertEquals(200, updated.getDescription().length());
-        assertEquals(LocalDate.of(1895, 12, 28), updated.getReleaseDate());
-        assertEquals(Duration.ofSeconds(1), updated.getDuration());
+        assertEquals("Обновлённый фильм", updated.name());
+        assertEquals(200, updated.description().length());
+        assertEquals(LocalDate.of(1895, 12, 28), updated.releaseDate());
+        assertEquals(Duration.ofSeconds(1), updated.duration());
     }
 
     @Test
     void updateFilm_withInvalidReleaseDate() {
-        Film film = new Film();
-        film.setName("Фильм");
-        film.setDescription("Описание");
-        film.setReleaseDate(LocalDate.of(2025, 1, 1));
-        film.setDuration(Duration.ofMinutes(100));
+        Film film = Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2025, 1, 1))
+                .duration(Duration.ofMinutes(100))
+                .build();
         Film created = controller.create(film);
 
-        Film update = new Film();
-        update.setId(created.getId());
-        update.setName("Обновлённый фильм");
-        update.setDescription("Описание");
-        update.setReleaseDate(LocalDate.of(1895, 12, 27));
-        update.setDuration(Duration.ofMinutes(100));
+        Film update = Film.builder()
+                .id(created.id())
+                .name("Обновлённый фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(1895, 12, 27))
+                .duration(Duration.ofMinutes(100))
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.update(update));
         assertTrue(ex.getMessage().contains("Дата релиза не может быть раньше 28 декабря 1895 года"));
@@ -152,19 +209,21 @@ class FilmControllerTest {
 
     @Test
     void updateFilm_withTooLongDescription() {
-        Film film = new Film();
-        film.setName("Фильм");
-        film.setDescription("Описание");
-        film.setReleaseDate(LocalDate.of(2025, 1, 1));
-        film.setDuration(Duration.ofMinutes(100));
+        Film film = Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2025, 1, 1))
+                .duration(Duration.ofMinutes(100))
+                .build();
         Film created = controller.create(film);
 
-        Film update = new Film();
-        update.setId(created.getId());
-        update.setName("Обновлённый фильм");
-        update.setDescription("Описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание опи");
-        update.setReleaseDate(LocalDate.of(2025, 1, 1));
-        update.setDuration(Duration.ofMinutes(100));
+        Film update = Film.builder()
+                .id(created.id())
+                .name("Обновлённый фильм")
+                .description("Описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание описание опи")
+                .releaseDate(LocalDate.of(2025, 1, 1))
+                .duration(Duration.ofMinutes(100))
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.update(update));
         assertTrue(ex.getMessage().contains("Описание фильма не может быть более 200 символов"));
@@ -172,22 +231,342 @@ class FilmControllerTest {
 
     @Test
     void updateFilm_withZeroDuration() {
-        Film film = new Film();
-        film.setName("Фильм");
-        film.setDescription("Описание");
-        film.setReleaseDate(LocalDate.of(2025, 1, 1));
-        film.setDuration(Duration.ofMinutes(100));
+        Film film = Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2025, 1, 1))
+                .duration(Duration.ofMinutes(100))
+                .build();
         Film created = controller.create(film);
 
-        Film update = new Film();
-        update.setId(created.getId());
-        update.setName("Обновлённый фильм");
-        update.setDescription("Описание");
-        update.setReleaseDate(LocalDate.of(2025, 1, 1));
-        update.setDuration(Duration.ZERO);
+        Film update = Film.builder()
+                .id(created.id())
+                .name("Обновлённый фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2025, 1, 1))
+                .duration(Duration.ZERO)
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.update(update));
         assertTrue(ex.getMessage().contains("Продолжительность фильма должна быть положительным числом"));
     }
-}
 
+    @Test
+    void searchFilms_byPrefixIgnoringCaseAndYo() {
+        Film film = Film.builder()
+                .name("Ёжик в тумане")
+                .description("Мультфильм")
+                .releaseDate(LocalDate.of(1975, 1, 1))
+                .duration(Duration.ofMinutes(10))
+                .build();
+        Film created = controller.create(film);
+
+        Collection<Film> found = controller.search("ежи", List.of("title"));
+        assertEquals(1, found.size());
+        assertEquals(created.id(), found.iterator().next().id());
+        assertTrue(controller.search("ежи", List.of("description")).isEmpty());
+    }
+
+    @Test
+    void searchFilms_reindexedAfterUpdate() {
+        Film film = Film.builder()
+                .name("Старое название")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(Duration.ofMinutes(90))
+                .build();
+        Film created = controller.create(film);
+
+        Film update = Film.builder()
+                .id(created.id())
+                .name("Новое название")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(Duration.ofMinutes(90))
+                .build();
+        controller.update(update);
+
+        assertTrue(controller.search("старое", List.of("title", "description")).isEmpty());
+        assertEquals(1, controller.search("новое назв", List.of("title", "description")).size());
+    }
+
+    @Test
+    void searchIndex_followsStoredFilmWhenUpdatesRace() {
+        FilmSearchIndex index = new FilmSearchIndex();
+        AtomicReference<FilmService> racing = new AtomicReference<>();
+        AtomicReference<Runnable> duringUpdate = new AtomicReference<>();
+        FilmStorage storage = new InMemoryFilmStorage() {
+            @Override
+            public Film update(Film film) {
+                Film updated = super.update(film);
+                // Другой поток успевает изменить фильм между записью в хранилище и индексацией
+                Runnable concurrent = duringUpdate.getAndSet(null);
+                if (concurrent != null) {
+                    concurrent.run();
+                }
+                return updated;
+            }
+        };
+        racing.set(new FilmService(storage, userStorage, index, new FilmTrendingCounters(),
+                ApproximatePopularity.disabled(), tombstones, event -> { }, clock));
+        Film created = racing.get().create(film("Первое название"));
+
+        // Более позднее обновление проиндексировано раньше — индекс не должен откатиться к раннему
+        duringUpdate.set(() -> racing.get().update(created.toBuilder().name("Третье название").build()));
+        racing.get().update(created.toBuilder().name("Второе название").build());
+        assertTrue(index.search("второе", Set.of(FilmSearchIndex.Field.TITLE)).isEmpty());
+        assertEquals(Set.of(created.id()), index.search("третье", Set.of(FilmSearchIndex.Field.TITLE)).keySet());
+
+        // Фильм удалён и вычищен из индекса, пока обновление ещё не дошло до индексации
+        duringUpdate.set(() -> {
+            racing.get().deleteFilm(created.id());
+            assertDoesNotThrow(() -> tombstones.awaitCleanup(5, TimeUnit.SECONDS));
+        });
+        racing.get().update(created.toBuilder().name("Четвёртое название").build());
+        assertTrue(index.search("название", Set.of(FilmSearchIndex.Field.TITLE)).isEmpty());
+    }
+
+    @Test
+    void searchFilms_titleMatchRankedAboveDescriptionMatch() {
+        Film inDescription = Film.builder()
+                .name("Фильм")
+                .description("Про космос")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(Duration.ofMinutes(90))
+                .build();
+        controller.create(inDescription);
+
+        Film inTitle = Film.builder()
+                .name("Космос")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(Duration.ofMinutes(90))
+                .build();
+        Film created = controller.create(inTitle);
+
+        Collection<Film> found = controller.search("космос", List.of("title", "description"));
+        assertEquals(2, found.size());
+        assertEquals(created.id(), found.iterator().next().id());
+    }
+
+    @Test
+    void trendingFilms_countOnlyLikesInsideWindow() {
+        Film oldHit = controller.create(film("Старый хит"));
+        Film newHit = controller.create(film("Новый хит"));
+        User first = userStorage.create(user("first@example.ru"));
+        User second = userStorage.create(user("second@example.ru"));
+
+        controller.addLike(oldHit.id(), first.id());
+        controller.addLike(oldHit.id(), second.id());
+        clock.advance(Duration.ofHours(2));
+        controller.addLike(newHit.id(), first.id());
+
+        assertEquals(List.of(newHit.id()), ids(controller.getTrendingFilms("1h", 10)));
+        assertEquals(List.of(oldHit.id(), newHit.id()), ids(controller.getTrendingFilms("24h", 10)));
+
+        controller.removeLike(oldHit.id(), first.id());
+        controller.removeLike(oldHit.id(), second.id());
+        assertEquals(List.of(newHit.id()), ids(controller.getTrendingFilms("7d", 10)));
+
+        clock.advance(Duration.ofDays(8));
+        assertTrue(controller.getTrendingFilms("7d", 10).isEmpty());
+    }
+
+    @Test
+    void trendingFilms_unknownWindow() {
+        assertThrows(ValidationException.class, () -> controller.getTrendingFilms("2w", 10));
+    }
+
+    @Test
+    void trendingFilms_rejectsUnreasonableCount() {
+        assertThrows(ValidationException.class, () -> controller.getTrendingFilms("24h", 0));
+        assertThrows(ValidationException.class, () -> controller.getTrendingFilms("24h", Integer.MAX_VALUE));
+        assertTrue(new FilmTrendingCounters().top(TrendWindow.DAY, Integer.MAX_VALUE, 0).isEmpty());
+    }
+
+    @Test
+    void popularFilms_rejectsUnreasonableCount() {
+        ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest("GET", "/"));
+        assertThrows(ValidationException.class, () -> controller.getPopularFilms(0, request));
+        assertThrows(ValidationException.class, () -> controller.getPopularFilms(Integer.MAX_VALUE, request));
+        assertTrue(service.getTopFilms(Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void popularFilms_scoresOnlyLikedFilms() {
+        FilmStorage storage = new InMemoryFilmStorage();
+        for (int i = 1; i <= 5; i++) {
+            storage.create(film("Фильм " + i));
+        }
+        List<Long> scored = new ArrayList<>();
+
+        // Фильм 99 в хранилище отсутствует и в топ не попадает
+        List<Long> top = storage.findTopIds(List.of(4L, 2L, 99L), 10, id -> {
+            scored.add(id);
+            return id;
+        });
+
+        assertEquals(List.of(4L, 2L), top);
+        assertEquals(List.of(4L, 2L), scored);
+    }
+
+    @Test
+    void etags_differAfterRestartWithSameCounters() {
+        Film created = controller.create(film("Фильм"));
+        String etag = service.getFilmEtag(created.id());
+        String popularEtag = service.getTopFilmsEtag(10);
+
+        // «Перезапуск»: новые хранилище и сервис с теми же значениями счётчиков
+        FilmService restarted = new FilmService(new InMemoryFilmStorage(), userStorage, new FilmSearchIndex(),
+                new FilmTrendingCounters(), ApproximatePopularity.disabled(), tombstones, publishedEvents::add, clock);
+        Film recreated = restarted.create(film("Другой фильм"));
+
+        assertEquals(created.id(), recreated.id());
+        assertNotEquals(etag, restarted.getFilmEtag(recreated.id()));
+        assertNotEquals(popularEtag, restarted.getTopFilmsEtag(10));
+    }
+
+    @Test
+    void getFilmById_notModifiedWhenEtagMatches() {
+        Film created = controller.create(film("Фильм"));
+
+        MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+        Film first = controller.getFilmById(created.id(),
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/films/1"), firstResponse));
+        String etag = firstResponse.getHeader("ETag");
+        assertNotNull(first);
+        assertNotNull(etag);
+
+        MockHttpServletRequest conditional = new MockHttpServletRequest("GET", "/films/1");
+        conditional.addHeader("If-None-Match", etag);
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        assertNull(controller.getFilmById(created.id(), new ServletWebRequest(conditional, notModified)));
+        assertEquals(304, notModified.getStatus());
+
+        controller.update(film("Новое название").withId(created.id()));
+        MockHttpServletResponse modified = new MockHttpServletResponse();
+        assertNotNull(controller.getFilmById(created.id(), new ServletWebRequest(conditional, modified)));
+        assertNotEquals(etag, modified.getHeader("ETag"));
+    }
+
+    @Test
+    void getPopularFilms_etagChangesWithLikes() {
+        Film created = controller.create(film("Фильм"));
+        User user = userStorage.create(user("user@example.ru"));
+
+        MockHttpServletResponse before = new MockHttpServletResponse();
+        controller.getPopularFilms(10, new ServletWebRequest(new MockHttpServletRequest("GET", "/"), before));
+        controller.addLike(created.id(), user.id());
+        MockHttpServletResponse after = new MockHttpServletResponse();
+        controller.getPopularFilms(10, new ServletWebRequest(new MockHttpServletRequest("GET", "/"), after));
+
+        assertNotEquals(before.getHeader("ETag"), after.getHeader("ETag"));
+    }
+
+    @Test
+    void likeChanges_publishEvents() {
+        Film created = controller.create(film("Фильм"));
+        User user = userStorage.create(user("user@example.ru"));
+
+        controller.addLike(created.id(), user.id());
+        controller.addLike(created.id(), user.id());
+        controller.removeLike(created.id(), user.id());
+
+        assertEquals(List.of(new FilmLikesChangedEvent(created.id(), user.id(), 1, 1),
+                new FilmLikesChangedEvent(created.id(), user.id(), -1, 0)), publishedEvents);
+    }
+
+    @Test
+    void findByIds_returnsFoundFilmsInRequestOrder() {
+        Film first = controller.create(film("Первый"));
+        Film second = controller.create(film("Второй"));
+
+        Collection<Film> found = controller.findByIds(List.of(second.id(), 999L, first.id()));
+
+        assertEquals(List.of(second.id(), first.id()), ids(found));
+    }
+
+    @Test
+    void deleteFilm_removesLikesAndSearchEntries() throws Exception {
+        Film deleted = controller.create(film("Удаляемый"));
+        Film kept = controller.create(film("Оставшийся"));
+        User user = userStorage.create(user("first@example.ru"));
+        controller.addLike(deleted.id(), user.id());
+        controller.addLike(kept.id(), user.id());
+
+        controller.deleteFilm(deleted.id());
+        assertThrows(NotFoundException.class, () -> service.getById(deleted.id()));
+        assertThrows(NotFoundException.class, () -> controller.deleteFilm(deleted.id()));
+        assertThrows(NotFoundException.class, () -> controller.addLike(deleted.id(), user.id()));
+
+        tombstones.awaitCleanup(5, TimeUnit.SECONDS);
+        assertFalse(tombstones.isFilmDeleted(deleted.id()));
+        assertEquals(List.of(kept.id()), ids(service.getTopFilms(10)));
+        assertTrue(controller.search("удаляемый", List.of("title")).isEmpty());
+        assertEquals(List.of(kept.id()), ids(controller.getTrendingFilms("1h", 10)));
+    }
+
+    @Test
+    void deleteUser_removesTheirLikes() throws Exception {
+        UserService userService = new UserService(userStorage, tombstones, event -> {
+            if (event instanceof UserDeletedEvent deleted) {
+                service.onUserDeleted(deleted);
+            }
+        });
+        Film first = controller.create(film("Первый"));
+        Film second = controller.create(film("Второй"));
+        User liker = userStorage.create(user("first@example.ru"));
+        User other = userStorage.create(user("second@example.ru"));
+        controller.addLike(first.id(), liker.id());
+        controller.addLike(first.id(), other.id());
+        controller.addLike(second.id(), other.id());
+
+        userService.deleteUser(other.id());
+        tombstones.awaitCleanup(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(first.id(), second.id()), ids(service.getTopFilms(10)));
+        controller.addLike(second.id(), liker.id());
+        controller.removeLike(first.id(), liker.id());
+        assertEquals(List.of(second.id(), first.id()), ids(service.getTopFilms(10)));
+        assertThrows(NotFoundException.class, () -> controller.addLike(first.id(), other.id()));
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .email(email)
+                .login(email.substring(0, email.indexOf('@')))
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
+    }
+
+    private static List<Long> ids(Collection<Film> films) {
+        return films.stream().map(Film::id).toList();
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.graph.CsrGraph;
+import ru.yandex.practicum.filmorate.graph.GraphStatistics;
+import ru.yandex.practicum.filmorate.graph.ShortestPath;
+import ru.yandex.practicum.filmorate.model.FriendGraphStats;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FriendGraphStatsTest {
+
+    @Test
+    void statsOfSmallGraph() {
+        // Треугольник 1-2-3, хвост 3-4, отдельная пара 5-6 и одиночка 7
+        CsrGraph graph = CsrGraph.build(List.of(
+                user(1, 2, 3), user(2, 1, 3), user(3, 1, 2, 4), user(4, 3),
+                user(5, 6), user(6), user(7)));
+
+        FriendGraphStats stats = GraphStatistics.compute(graph, ForkJoinPool.commonPool());
+
+        assertEquals(7, stats.users());
+        assertEquals(5, stats.friendships());
+        assertEquals(3, stats.maxDegree());
+        assertEquals(Map.of(0, 1, 1, 3, 2, 2, 3, 1), stats.degreeDistribution());
+        assertEquals(3, stats.components());
+        assertEquals(4, stats.largestComponent());
+        assertEquals(1, stats.isolatedUsers());
+        // Локальные коэффициенты: 1, 1 и 1/3 у вершины 3
+        assertEquals((1 + 1 + 1.0 / 3) / 3, stats.averageClustering(), 1e-9);
+        assertEquals(3.0 / 5, stats.globalClustering(), 1e-9);
+    }
+
+    @Test
+    void buildReadsChangingCollectionOnce() {
+        // Живое представление хранилища: размер устарел, а каждый проход видит нового пользователя
+        List<User> users = new ArrayList<>(List.of(user(1, 2), user(2, 1)));
+        Collection<User> live = new AbstractCollection<>() {
+            @Override
+            public Iterator<User> iterator() {
+                users.add(user(users.size() + 1, 1));
+                return List.copyOf(users).iterator();
+            }
+
+            @Override
+            public int size() {
+                return 2;
+            }
+        };
+
+        CsrGraph graph = CsrGraph.build(live);
+
+        assertEquals(3, graph.vertexCount());
+        assertEquals(2, graph.edgeCount());
+        assertTrue(graph.hasEdge(graph.indexOf(3), graph.indexOf(1)));
+    }
+
+    @Test
+    void parallelStatsAndBidirectionalSearchMatchPlainBfs() {
+        int n = 5_000;
+        Random random = new Random(7);
+        Map<Long, Set<Long>> friends = new HashMap<>();
+        for (long id = 1; id <= n; id++) {
+            friends.put(id, new HashSet<>());
+        }
+        for (int i = 0; i < 6_000; i++) {
+            long a = 1 + random.nextInt(n);
+            long b = 1 + random.nextInt(n);
+            if (a != b) {
+                friends.get(a).add(b);
+                friends.get(b).add(a);
+            }
+        }
+        List<User> users = new ArrayList<>();
+        friends.forEach((id, set) -> users.add(User.builder().id(id).friends(set).build()));
+        CsrGraph graph = CsrGraph.build(users);
+
+        FriendGraphStats stats = GraphStatistics.compute(graph, ForkJoinPool.commonPool());
+
+        int[] component = new int[n];
+        int components = 0;
+        int largest = 0;
+        for (int v = 0; v < n; v++) {
+            if (component[v] == 0) {
+                int size = bfs(graph, v, ++components, component);
+                largest = Math.max(largest, size);
+            }
+        }
+        assertEquals(components, stats.components());
+        assertEquals(largest, stats.largestComponent());
+
+        for (int i = 0; i < 200; i++) {
+            int source = random.nextInt(n);
+            int target = random.nextInt(n);
+            int[] path = ShortestPath.find(graph, source, target);
+            int expected = distance(graph, source, target);
+            if (expected < 0) {
+                assertNull(path);
+                continue;
+            }
+            assertEquals(expected, path.length - 1);
+            assertEquals(source, path[0]);
+            assertEquals(target, path[path.length - 1]);
+            for (int step = 1; step < path.length; step++) {
+                assertTrue(graph.hasEdge(path[step - 1], path[step]));
+            }
+        }
+    }
+
+    private static int bfs(CsrGraph graph, int start, int label, int[] component) {
+        ArrayDeque<Integer> queue = new ArrayDeque<>(List.of(start));
+        component[start] = label;
+        int size = 0;
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            size++;
+            for (int e = graph.firstEdge(v); e < graph.firstEdge(v) + graph.degree(v); e++) {
+                int w = graph.target(e);
+                if (component[w] == 0) {
+                    component[w] = label;
+                    queue.add(w);
+                }
+            }
+        }
+        return size;
+    }
+
+    private static int distance(CsrGraph graph, int source, int target) {
+        int[] dist = new int[graph.vertexCount()];
+        Arrays.fill(dist, -1);
+        dist[source] = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>(List.of(source));
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            for (int e = graph.firstEdge(v); e < graph.firstEdge(v) + graph.degree(v); e++) {
+                int w = graph.target(e);
+                if (dist[w] < 0) {
+                    dist[w] = dist[v] + 1;
+                    queue.add(w);
+                }
+            }
+        }
+        return dist[target];
+    }
+
+    private static User user(long id, long... friendIds) {
+        Set<Long> friends = new HashSet<>();
+        for (long friendId : friendIds) {
+            friends.add(friendId);
+        }
+        return User.builder().id(id).friends(friends).build();
+    }
+}
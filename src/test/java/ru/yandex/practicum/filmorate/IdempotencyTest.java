@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.controller.UserController;
+import ru.yandex.practicum.filmorate.exception.GlobalExceptionHandler;
+import ru.yandex.practicum.filmorate.idempotency.IdempotencyFilter;
+import ru.yandex.practicum.filmorate.idempotency.IdempotencyStore;
+import ru.yandex.practicum.filmorate.service.FeedService;
+import ru.yandex.practicum.filmorate.service.FriendGraphService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+class IdempotencyTest {
+
+    private static final String USER_JSON = "{\"email\":\"user@example.ru\",\"login\":\"user\","
+            + "\"birthday\":\"2000-01-01\"}";
+    private static final int MAX_BODY_BYTES = 1024;
+
+    private InMemoryUserStorage userStorage;
+    private SlowController slowController;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        userStorage = new InMemoryUserStorage();
+        UserService userService = new UserService(userStorage, new Tombstones(), event -> { });
+        UserController userController = new UserController(userService, new FriendGraphService(userStorage),
+                new FeedService(userStorage, Clock.systemUTC(), 100, 1000));
+        slowController = new SlowController();
+        IdempotencyStore store = new IdempotencyStore(Clock.systemUTC(), 60, 100);
+        mvc = MockMvcBuilders.standaloneSetup(userController, slowController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .addFilters(new IdempotencyFilter(store, Jackson2ObjectMapperBuilder.json().build(), true, 5000,
+                        MAX_BODY_BYTES))
+                .build();
+    }
+
+    @Test
+    void retryWithSameKey_returnsStoredResponseWithoutCreatingDuplicate() throws Exception {
+        MvcResult first = createUser("key-1", USER_JSON);
+        MvcResult retry = createUser("key-1", USER_JSON);
+
+        assertEquals(200, first.getResponse().getStatus());
+        assertEquals(200, retry.getResponse().getStatus());
+        assertEquals(first.getResponse().getContentAsString(), retry.getResponse().getContentAsString());
+        assertEquals("true", retry.getResponse().getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertNull(first.getResponse().getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(1, userStorage.findAll().size());
+
+        // Без ключа повтор выполняется заново и упирается в занятый e-mail
+        assertEquals(400, createUser(null, USER_JSON).getResponse().getStatus());
+    }
+
+    @Test
+    void sameKeyWithDifferentBody_isRejected() throws Exception {
+        createUser("key-1", USER_JSON);
+        String otherUser = USER_JSON.replace("user@", "other@").replace("\"user\"", "\"other\"");
+
+        MvcResult reused = createUser("key-1", otherUser);
+
+        assertEquals(422, reused.getResponse().getStatus());
+        assertEquals(1, userStorage.findAll().size());
+        assertEquals(400, createUser(" ", otherUser).getResponse().getStatus());
+    }
+
+    @Test
+    void sameKeyFromDifferentClients_isNotShared() throws Exception {
+        String otherUser = USER_JSON.replace("user@", "other@").replace("\"user\"", "\"other\"");
+
+        MvcResult first = createUser("key-1", USER_JSON, "10.0.0.1");
+        MvcResult other = createUser("key-1", otherUser, "10.0.0.2");
+        MvcResult retry = createUser("key-1", USER_JSON, "10.0.0.1");
+
+        assertEquals(200, first.getResponse().getStatus());
+        assertEquals(200, other.getResponse().getStatus());
+        assertNull(other.getResponse().getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals("true", retry.getResponse().getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(2, userStorage.findAll().size());
+    }
+
+    @Test
+    void bodyOverLimit_isRejectedWithoutExecution() throws Exception {
+        String padded = USER_JSON.replace("\"user\",", "\"user\", " + " ".repeat(MAX_BODY_BYTES) + ",");
+        String exact = USER_JSON + " ".repeat(MAX_BODY_BYTES - USER_JSON.length());
+
+        MvcResult tooLarge = createUser("key-1", padded);
+
+        assertEquals(413, tooLarge.getResponse().getStatus());
+        assertTrue(userStorage.findAll().isEmpty());
+        // Тело ровно предельного размера буферизуется и выполняется
+        assertEquals(200, createUser("key-2", exact).getResponse().getStatus());
+        assertEquals(1, userStorage.findAll().size());
+    }
+
+    @Test
+    void concurrentRetries_waitForFirstExecution() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<MvcResult>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> mvc.perform(post("/slow")
+                        .header(IdempotencyFilter.KEY_HEADER, "slow-key")).andReturn()));
+            }
+            assertTrue(slowController.started.await(5, TimeUnit.SECONDS));
+            // Даём остальным повторам дойти до ожидания, прежде чем отпустить первый запрос
+            Thread.sleep(200);
+            slowController.release.countDown();
+
+            for (Future<MvcResult> result : results) {
+                assertEquals("1", result.get(5, TimeUnit.SECONDS).getResponse().getContentAsString());
+            }
+            assertEquals(1, slowController.calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private MvcResult createUser(String key, String json) throws Exception {
+        return createUser(key, json, "127.0.0.1");
+    }
+
+    private MvcResult createUser(String key, String json, String remoteAddr) throws Exception {
+        var request = post("/users").contentType(MediaType.APPLICATION_JSON).content(json)
+                .with(r -> {
+                    r.setRemoteAddr(remoteAddr);
+                    return r;
+                });
+        if (key != null) {
+            request.header(IdempotencyFilter.KEY_HEADER, key);
+        }
+        return mvc.perform(request).andReturn();
+    }
+
+    @RestController
+    static class SlowController {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @PostMapping("/slow")
+        public int slow() throws InterruptedException {
+            int call = calls.incrementAndGet();
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return call;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.yandex.practicum.filmorate.controller.ProfilingController;
+import ru.yandex.practicum.filmorate.exception.GlobalExceptionHandler;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.idempotency.IdempotencyFilter;
+import ru.yandex.practicum.filmorate.idempotency.IdempotencyStore;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ProfilingService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.FilmTrendingCounters;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+import ru.yandex.practicum.filmorate.storage.sketch.ApproximatePopularity;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+class ProfilingTest {
+
+    private final ProfilingService profiling = new ProfilingService(60, 16);
+
+    @AfterEach
+    void tearDown() {
+        profiling.shutdown();
+    }
+
+    @Test
+    void recording_containsApplicationEvents() throws Exception {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        UserService userService = new UserService(userStorage, new Tombstones(), event -> { });
+        FilmService filmService = new FilmService(new InMemoryFilmStorage(), userStorage, new FilmSearchIndex(),
+                new FilmTrendingCounters(), ApproximatePopularity.disabled(), new Tombstones(), event -> { },
+                Clock.systemUTC());
+
+        assertEquals("RUNNING", profiling.start(30, "default").state());
+        assertThrows(ValidationException.class, () -> profiling.start(30, "default"));
+
+        User first = userService.createUser(user("first"));
+        User second = userService.createUser(user("second"));
+        User common = userService.createUser(user("common"));
+        userService.addFriend(first.id(), common.id());
+        userService.addFriend(second.id(), common.id());
+        assertEquals(1, userService.getCommonFriends(first.id(), second.id()).size());
+        Film film = filmService.create(film("Фильм"));
+        filmService.addLike(film.id(), first.id());
+        assertEquals(1, filmService.getTopFilms(10).size());
+
+        byte[] recording = profiling.stop();
+        assertEquals("CLOSED", profiling.getStatus().state());
+        assertThrows(NotFoundException.class, profiling::stop);
+
+        Path file = Files.createTempFile("profiling-test-", ".jfr");
+        try {
+            Files.write(file, recording);
+            Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().startsWith("filmorate."))
+                    .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+
+            RecordedEvent top = events.get("filmorate.TopFilms").getFirst();
+            assertFalse(top.getBoolean("approximate"));
+            assertEquals(10, top.getInt("requested"));
+            assertEquals(1, top.getInt("returned"));
+
+            RecordedEvent intersection = events.get("filmorate.CommonFriends").getFirst();
+            assertEquals(1, intersection.getInt("friends"));
+            assertEquals(1, intersection.getInt("common"));
+
+            Map<String, RecordedEvent> storageOps = events.get("filmorate.StorageOperation").stream()
+                    .collect(Collectors.toMap(event -> event.getString("storage") + "."
+                            + event.getString("operation"), Function.identity(), (a, b) -> b));
+            assertTrue(storageOps.containsKey("films.findTopIds"));
+            assertTrue(storageOps.containsKey("users.findByIds"));
+
+            assertTrue(events.get("filmorate.Validation").stream()
+                    .anyMatch(event -> "User".equals(event.getString("model"))));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void start_rejectsInvalidParameters() {
+        assertThrows(ValidationException.class, () -> profiling.start(0, "default"));
+        assertThrows(ValidationException.class, () -> profiling.start(61, "default"));
+        assertThrows(ValidationException.class, () -> profiling.start(10, "unknown"));
+        assertEquals("CLOSED", profiling.getStatus().state());
+    }
+
+    @Test
+    void endpoints_areDisabledByDefault() {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withBean(ProfilingService.class, () -> profiling)
+                .withUserConfiguration(ProfilingController.class);
+        runner.run(context -> assertTrue(context.getBeansOfType(ProfilingController.class).isEmpty()));
+        runner.withPropertyValues("filmorate.profiling.enabled=true")
+                .run(context -> assertNotNull(context.getBean(ProfilingController.class)));
+    }
+
+    @Test
+    void stopRetriedWithSameKey_isNotStoredByIdempotencyFilter() throws Exception {
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new ProfilingController(profiling))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .addFilters(new IdempotencyFilter(new IdempotencyStore(Clock.systemUTC(), 60, 100),
+                        Jackson2ObjectMapperBuilder.json().build(), true, 5000, 1024))
+                .build();
+
+        assertEquals(200, mvc.perform(post("/admin/profiling/start").param("durationSeconds", "10")
+                .param("settings", "default")).andReturn().getResponse().getStatus());
+        assertEquals(200, mvc.perform(post("/admin/profiling/stop").header(IdempotencyFilter.KEY_HEADER, "stop"))
+                .andReturn().getResponse().getStatus());
+        // Повтор выполняется заново, а не получает сохранённую запись
+        assertEquals(404, mvc.perform(post("/admin/profiling/stop").header(IdempotencyFilter.KEY_HEADER, "stop"))
+                .andReturn().getResponse().getStatus());
+    }
+}
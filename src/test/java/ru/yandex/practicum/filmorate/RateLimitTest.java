@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.exception.ErrorResponse;
+import ru.yandex.practicum.filmorate.exception.GlobalExceptionHandler;
+import ru.yandex.practicum.filmorate.exception.TooManyRequestsException;
+import ru.yandex.practicum.filmorate.ratelimit.AdmissionControl;
+import ru.yandex.practicum.filmorate.ratelimit.RateLimitInterceptor;
+import ru.yandex.practicum.filmorate.ratelimit.TokenBucketLimiter;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void bucketAllowsBurstThenRefillsLazily() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(10, 5, 100);
+        long now = 1_000 * SECOND;
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire("client", now));
+        }
+        long wait = limiter.tryAcquire("client", now);
+        assertEquals(SECOND / 10, wait);
+        // Другой ключ расходует свою корзину
+        assertEquals(0, limiter.tryAcquire("other", now));
+
+        assertEquals(0, limiter.tryAcquire("client", now + wait));
+        assertTrue(limiter.tryAcquire("client", now + wait) > 0);
+        // После простоя корзина снова полна, но не больше ёмкости
+        long later = now + 10 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire("client", later));
+        }
+        assertTrue(limiter.tryAcquire("client", later) > 0);
+    }
+
+    @Test
+    void bucketCountIsBounded() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 2, 100);
+        for (int i = 0; i < 10_000; i++) {
+            limiter.tryAcquire("client-" + i, i);
+        }
+        assertTrue(limiter.size() <= 100, "Корзин в памяти: " + limiter.size());
+    }
+
+    @Test
+    void writeOverLimitGets429WithRetryAfter() throws Exception {
+        RateLimitInterceptor interceptor = new RateLimitInterceptor(new TokenBucketLimiter(1, 2, 100), Map.of());
+
+        assertTrue(interceptor.preHandle(likeRequest("10.0.0.1"), new MockHttpServletResponse(), null));
+        assertTrue(interceptor.preHandle(likeRequest("10.0.0.1"), new MockHttpServletResponse(), null));
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> interceptor.preHandle(likeRequest("10.0.0.1"), new MockHttpServletResponse(), null));
+        // Другой клиент не страдает от чужого лимита
+        assertTrue(interceptor.preHandle(likeRequest("10.0.0.2"), new MockHttpServletResponse(), null));
+
+        ResponseEntity<ErrorResponse> response = new GlobalExceptionHandler().handleTooManyRequests(e);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst("Retry-After"));
+    }
+
+    @Test
+    void expensiveReadsBeyondConcurrencyLimitGet503() throws Exception {
+        AdmissionControl popular = new AdmissionControl(1);
+        RateLimitInterceptor interceptor = new RateLimitInterceptor(new TokenBucketLimiter(1, 1, 100),
+                Map.of("GET /films/popular", popular));
+        MockHttpServletRequest first = request("GET", "/films/popular", "10.0.0.1");
+        MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(first, firstResponse, null));
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class, () -> interceptor.preHandle(
+                request("GET", "/films/popular", "10.0.0.2"), new MockHttpServletResponse(), null));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, new GlobalExceptionHandler().handleTooManyRequests(e)
+                .getStatusCode());
+        // Чтения без ограничения и запись после освобождения разрешения проходят
+        assertTrue(interceptor.preHandle(request("GET", "/films/{id}", "10.0.0.2"),
+                new MockHttpServletResponse(), null));
+
+        interceptor.afterCompletion(first, firstResponse, null, null);
+        assertEquals(1, popular.available());
+        assertTrue(interceptor.preHandle(request("GET", "/films/popular", "10.0.0.2"),
+                new MockHttpServletResponse(), null));
+    }
+
+    private static MockHttpServletRequest likeRequest(String client) {
+        return request("PUT", "/films/{id}/like/{userId}", client);
+    }
+
+    private static MockHttpServletRequest request(String method, String pattern, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, pattern);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        request.setRemoteAddr(client);
+        return request;
+    }
+}
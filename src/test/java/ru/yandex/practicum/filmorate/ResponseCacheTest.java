@@ -0,0 +1,182 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.yandex.practicum.filmorate.cache.ResponseByteCache;
+import ru.yandex.practicum.filmorate.cache.ResponseCacheFilter;
+import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.FilmLikesChangedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.FilmTrendingCounters;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.sketch.ApproximatePopularity;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class ResponseCacheTest {
+
+    private CountingFilmStorage filmStorage;
+    private FilmService service;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new CountingFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        ResponseByteCache cache = new ResponseByteCache(filmStorage, Jackson2ObjectMapperBuilder.json().build(),
+                true, true, 100);
+        service = new FilmService(filmStorage, userStorage, new FilmSearchIndex(), new FilmTrendingCounters(),
+                ApproximatePopularity.disabled(), new Tombstones(), event -> {
+                    if (event instanceof FilmLikesChangedEvent likes) {
+                        cache.onFilmLikesChanged(likes);
+                    } else if (event instanceof FilmChangedEvent changed) {
+                        cache.onFilmChanged(changed);
+                    }
+                }, Clock.systemUTC());
+        mvc = MockMvcBuilders.standaloneSetup(new FilmController(service))
+                .addFilters(new ResponseCacheFilter(cache))
+                .build();
+        for (int i = 1; i <= 3; i++) {
+            service.create(Film.builder()
+                    .name("Фильм " + i)
+                    .description("Описание")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(Duration.ofMinutes(100))
+                    .build());
+            userStorage.create(User.builder().email("u" + i + "@mail.ru").login("u" + i).build());
+        }
+        // Считаются только чтения при запросах: создание перечитывает фильм для поискового индекса
+        filmStorage.reads = 0;
+    }
+
+    @Test
+    void filmIsServedFromCacheUntilUpdated() throws Exception {
+        String first = body(mvc.perform(get("/films/1")).andReturn());
+        String second = body(mvc.perform(get("/films/1")).andReturn());
+
+        assertEquals(first, second);
+        assertEquals(1, filmStorage.reads);
+
+        service.update(filmStorage.findById(1L).withName("Новое название"));
+        filmStorage.reads = 0;
+        assertTrue(body(mvc.perform(get("/films/1")).andReturn()).contains("Новое название"));
+        assertEquals(1, filmStorage.reads);
+        // Изменение другого фильма не трогает запись фильма 1
+        service.update(filmStorage.findById(2L).withName("Другой"));
+        filmStorage.reads = 0;
+        mvc.perform(get("/films/1"));
+        assertEquals(0, filmStorage.reads);
+    }
+
+    @Test
+    void popularIsInvalidatedByLikesAndByUpdatesOfListedFilms() throws Exception {
+        service.addLike(2L, 1L);
+        service.addLike(3L, 1L);
+        service.addLike(3L, 2L);
+
+        assertEquals("[3, 2]", ids(mvc.perform(get("/films/popular?count=2")).andReturn()));
+        filmStorage.reads = 0;
+        mvc.perform(get("/films/popular").param("count", "2"));
+        assertEquals(0, filmStorage.reads);
+
+        service.addLike(2L, 2L);
+        service.addLike(2L, 3L);
+        assertEquals("[2, 3]", ids(mvc.perform(get("/films/popular?count=2")).andReturn()));
+
+        // Фильм 1 не входит в топ — запись остаётся
+        service.update(filmStorage.findById(1L).withName("Вне топа"));
+        filmStorage.reads = 0;
+        mvc.perform(get("/films/popular?count=2"));
+        assertEquals(0, filmStorage.reads);
+
+        service.update(filmStorage.findById(3L).withName("В топе"));
+        assertTrue(body(mvc.perform(get("/films/popular?count=2")).andReturn()).contains("В топе"));
+    }
+
+    @Test
+    void filmEntriesAreEvictedLeastRecentlyUsedFirst() {
+        ResponseByteCache small = new ResponseByteCache(filmStorage, Jackson2ObjectMapperBuilder.json().build(),
+                true, false, 2);
+        for (long id = 1; id <= 2; id++) {
+            small.putFilm(id, small.filmStamp(id), new byte[]{(byte) id}, "application/json", null);
+        }
+        assertNotNull(small.getFilm(1L));
+
+        // Фильм, ставший популярным позже, вытесняет давно не читанный
+        small.putFilm(3L, small.filmStamp(3L), new byte[]{3}, "application/json", null);
+        assertNull(small.getFilm(2L));
+        assertNotNull(small.getFilm(1L));
+        assertNotNull(small.getFilm(3L));
+
+        // Устаревшая по штампу запись освобождает место при чтении
+        service.update(filmStorage.findById(3L).withName("Новое название"));
+        assertNull(small.getFilm(3L));
+        assertEquals(1, small.size());
+    }
+
+    @Test
+    void cachedResponseKeepsEtagAndIsPreGzipped() throws Exception {
+        MvcResult first = mvc.perform(get("/films/1")).andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+        assertNotNull(etag);
+        assertTrue(first.getResponse().getHeaders("Vary").contains("Accept"));
+
+        MvcResult notModified = mvc.perform(get("/films/1").header("If-None-Match", etag)).andReturn();
+        assertEquals(304, notModified.getResponse().getStatus());
+
+        MvcResult gzipped = mvc.perform(get("/films/1").header("Accept-Encoding", "gzip, deflate")).andReturn();
+        assertEquals("gzip", gzipped.getResponse().getHeader("Content-Encoding"));
+        assertTrue(gzipped.getResponse().getHeaders("Vary").containsAll(List.of("Accept", "Accept-Encoding")));
+        try (GZIPInputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(gzipped.getResponse().getContentAsByteArray()))) {
+            assertEquals(body(first), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String body(MvcResult result) throws IOException {
+        assertEquals(200, result.getResponse().getStatus());
+        return result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    private static String ids(MvcResult result) throws IOException {
+        return Jackson2ObjectMapperBuilder.json().build().readTree(body(result)).findValuesAsText("id").toString();
+    }
+
+    // Считает обращения контроллера к хранилищу: попадание в кэш обходится без них
+    private static final class CountingFilmStorage extends InMemoryFilmStorage {
+        private int reads;
+
+        @Override
+        public Film findById(Long filmId) {
+            reads++;
+            return super.findById(filmId);
+        }
+
+        @Override
+        public List<Film> findByIds(Collection<Long> filmIds) {
+            reads++;
+            return super.findByIds(filmIds);
+        }
+    }
+}
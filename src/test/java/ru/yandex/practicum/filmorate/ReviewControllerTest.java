@@ -0,0 +1,307 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.yandex.practicum.filmorate.controller.ReviewController;
+import ru.yandex.practicum.filmorate.event.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.event.UserDeletedEvent;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ReviewService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryReviewStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+class ReviewControllerTest {
+
+    private ReviewController controller;
+    private ReviewService service;
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+    private Film film;
+    private Film otherFilm;
+    private User author;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        service = new ReviewService(new InMemoryReviewStorage(), filmStorage, userStorage);
+        controller = new ReviewController(service);
+        film = filmStorage.create(film("Фильм"));
+        otherFilm = filmStorage.create(film("Другой фильм"));
+        author = userStorage.create(user("author"));
+    }
+
+    @Test
+    void createReview_validatesFieldsAndReferences() {
+        Review created = controller.create(review(film.id(), "Хороший фильм").withUseful(5));
+        assertEquals(0, created.useful());
+        assertEquals(created, controller.getById(created.reviewId()));
+
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> controller.create(Review.builder().content(" ").build()));
+        assertEquals("Текст отзыва не может быть пустым; Нужно указать, положительный ли отзыв; "
+                + "Нужно указать автора отзыва; Нужно указать фильм", e.getMessage());
+        assertThrows(NotFoundException.class, () -> controller.create(review(999L, "Отзыв")));
+        assertThrows(NotFoundException.class,
+                () -> controller.create(review(film.id(), "Отзыв").withUserId(999L)));
+        assertThrows(NotFoundException.class, () -> controller.getById(999L));
+    }
+
+    @Test
+    void updateReview_keepsAuthorFilmAndUsefulness() {
+        Review created = controller.create(review(film.id(), "Черновик"));
+        User voter = userStorage.create(user("voter"));
+        controller.addLike(created.reviewId(), voter.id());
+
+        Review updated = controller.update(Review.builder()
+                .reviewId(created.reviewId())
+                .content("Исправленный текст")
+                .isPositive(false)
+                .userId(voter.id())
+                .filmId(otherFilm.id())
+                .build());
+
+        assertEquals("Исправленный текст", updated.content());
+        assertFalse(updated.isPositive());
+        assertEquals(author.id(), updated.userId());
+        assertEquals(film.id(), updated.filmId());
+        assertEquals(1, updated.useful());
+        assertThrows(ValidationException.class, () -> controller.update(Review.builder().content("Текст").build()));
+    }
+
+    @Test
+    void votes_reorderReviewsByUsefulness() {
+        Review first = controller.create(review(film.id(), "Первый"));
+        Review second = controller.create(review(film.id(), "Второй"));
+        Review third = controller.create(review(film.id(), "Третий"));
+        Review elsewhere = controller.create(review(otherFilm.id(), "Про другой фильм"));
+        User alice = userStorage.create(user("alice"));
+        User bob = userStorage.create(user("bob"));
+
+        assertEquals(List.of(first.reviewId(), second.reviewId(), third.reviewId()),
+                ids(controller.getReviews(film.id(), 10)));
+
+        controller.addLike(third.reviewId(), alice.id());
+        controller.addLike(third.reviewId(), bob.id());
+        controller.addDislike(first.reviewId(), alice.id());
+        assertEquals(List.of(third.reviewId(), second.reviewId(), first.reviewId()),
+                ids(controller.getReviews(film.id(), 10)));
+        assertEquals(2, controller.getById(third.reviewId()).useful());
+
+        // Повторный лайк не считается, смена лайка на дизлайк сдвигает полезность на 2
+        controller.addLike(third.reviewId(), bob.id());
+        controller.addDislike(third.reviewId(), bob.id());
+        assertEquals(0, controller.getById(third.reviewId()).useful());
+        // Снять лайк, которого нет, нельзя — оценка не меняется
+        controller.removeLike(first.reviewId(), alice.id());
+        assertEquals(-1, controller.getById(first.reviewId()).useful());
+        controller.removeDislike(first.reviewId(), alice.id());
+        assertEquals(0, controller.getById(first.reviewId()).useful());
+
+        assertEquals(List.of(first.reviewId(), second.reviewId()), ids(controller.getReviews(film.id(), 2)));
+        assertEquals(4, controller.getReviews(null, 10).size());
+        assertEquals(List.of(elsewhere.reviewId()), ids(controller.getReviews(otherFilm.id(), 10)));
+        assertTrue(controller.getReviews(999L, 10).isEmpty());
+        assertThrows(ValidationException.class, () -> controller.getReviews(film.id(), 0));
+        assertThrows(NotFoundException.class, () -> controller.addLike(999L, alice.id()));
+        assertThrows(NotFoundException.class, () -> controller.addLike(first.reviewId(), 999L));
+    }
+
+    @Test
+    void concurrentVotes_keepCounterAndIndexConsistent() throws Exception {
+        Review target = controller.create(review(film.id(), "Популярный"));
+        Review other = controller.create(review(film.id(), "Обычный"));
+        List<User> voters = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            voters.add(userStorage.create(user("voter" + i)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (User voter : voters) {
+                futures.add(executor.submit(() -> {
+                    controller.addLike(target.reviewId(), voter.id());
+                    controller.addDislike(other.reviewId(), voter.id());
+                    if (voter.id() % 2 == 0) {
+                        controller.removeLike(target.reviewId(), voter.id());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Review> reviews = controller.getReviews(film.id(), 10);
+        assertEquals(List.of(target.reviewId(), other.reviewId()), ids(reviews));
+        assertEquals(100, reviews.get(0).useful());
+        assertEquals(-200, reviews.get(1).useful());
+    }
+
+    @Test
+    void concurrentVotesAndReads_returnEveryReviewOnce() throws Exception {
+        List<Long> reviewIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            reviewIds.add(controller.create(review(i % 2 == 0 ? film.id() : otherFilm.id(), "Отзыв " + i)).reviewId());
+        }
+        List<User> voters = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            voters.add(userStorage.create(user("voter" + i)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                writers.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 20_000; i++) {
+                        Long reviewId = reviewIds.get(random.nextInt(reviewIds.size()));
+                        Long voterId = voters.get(random.nextInt(voters.size())).id();
+                        if (random.nextBoolean()) {
+                            controller.addLike(reviewId, voterId);
+                        } else {
+                            controller.addDislike(reviewId, voterId);
+                        }
+                    }
+                }));
+            }
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Long filmId = t % 2 == 0 ? null : film.id();
+                int expected = filmId == null ? 20 : 10;
+                readers.add(executor.submit(() -> {
+                    int reads = 0;
+                    while (running.get()) {
+                        List<Review> reviews = controller.getReviews(filmId, 100);
+                        // Каждый отзыв ровно один раз и в порядке полезности
+                        assertEquals(expected, reviews.size(), ids(reviews).toString());
+                        assertEquals(expected, Set.copyOf(ids(reviews)).size(), ids(reviews).toString());
+                        for (int i = 1; i < reviews.size(); i++) {
+                            assertTrue(reviews.get(i - 1).useful() >= reviews.get(i).useful());
+                        }
+                        reads++;
+                    }
+                    return reads;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            running.set(false);
+            for (Future<Integer> reader : readers) {
+                assertTrue(reader.get() > 0);
+            }
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void deletedFilmOrUser_removesTheirReviewsAndVotes() {
+        Review onFilm = controller.create(review(film.id(), "Удалится с фильмом"));
+        User critic = userStorage.create(user("critic"));
+        Review byCritic = controller.create(review(otherFilm.id(), "Удалится с автором").withUserId(critic.id()));
+        Review kept = controller.create(review(otherFilm.id(), "Останется"));
+        controller.addLike(kept.reviewId(), critic.id());
+
+        filmStorage.delete(film.id());
+        service.onFilmChanged(new FilmChangedEvent(film.id()));
+        userStorage.delete(critic.id());
+        service.onUserDeleted(new UserDeletedEvent(critic.id()));
+
+        assertThrows(NotFoundException.class, () -> controller.getById(onFilm.reviewId()));
+        assertThrows(NotFoundException.class, () -> controller.getById(byCritic.reviewId()));
+        assertEquals(0, controller.getById(kept.reviewId()).useful());
+        assertEquals(List.of(kept.reviewId()), ids(controller.getReviews(null, 10)));
+
+        controller.delete(kept.reviewId());
+        assertThrows(NotFoundException.class, () -> controller.delete(kept.reviewId()));
+        assertTrue(controller.getReviews(null, 10).isEmpty());
+    }
+
+    @Test
+    void filmDeletedWhileReviewIsCreated_reviewIsRolledBack() {
+        // Фильм удаляется и его отзывы очищаются между проверкой фильма и сохранением отзыва
+        FilmStorage racingStorage = new InMemoryFilmStorage() {
+            @Override
+            public Film findById(Long filmId) {
+                Film found = super.findById(filmId);
+                delete(filmId);
+                service.onFilmChanged(new FilmChangedEvent(filmId));
+                return found;
+            }
+        };
+        Film doomed = racingStorage.create(film("Удаляемый фильм"));
+        service = new ReviewService(new InMemoryReviewStorage(), racingStorage, userStorage);
+        controller = new ReviewController(service);
+
+        assertThrows(NotFoundException.class, () -> controller.create(review(doomed.id(), "Опоздавший отзыв")));
+        assertTrue(controller.getReviews(null, 10).isEmpty());
+        assertTrue(controller.getReviews(doomed.id(), 10).isEmpty());
+        assertThrows(NotFoundException.class, () -> controller.getById(1L));
+    }
+
+    @Test
+    void getReviews_rejectsCountOutsideLimits() {
+        assertThrows(ValidationException.class, () -> controller.getReviews(null, 0));
+        assertThrows(ValidationException.class, () -> controller.getReviews(film.id(), 501));
+        assertTrue(controller.getReviews(film.id(), 500).isEmpty());
+    }
+
+    @Test
+    void reviewJson_usesIsPositiveProperty() throws Exception {
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+        String json = "{\"content\":\"Отзыв\",\"isPositive\":true,\"userId\":" + author.id()
+                + ",\"filmId\":" + film.id() + "}";
+
+        mvc.perform(post("/reviews").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(jsonPath("$.reviewId").value(1))
+                .andExpect(jsonPath("$.isPositive").value(true))
+                .andExpect(jsonPath("$.useful").value(0));
+    }
+
+    private Review review(Long filmId, String content) {
+        return Review.builder()
+                .content(content)
+                .isPositive(true)
+                .userId(author.id())
+                .filmId(filmId)
+                .build();
+    }
+
+    private static List<Long> ids(Collection<Review> reviews) {
+        return reviews.stream().map(Review::reviewId).toList();
+    }
+}
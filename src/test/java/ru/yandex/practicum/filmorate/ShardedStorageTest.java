@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.ShardedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.ShardedUserStorage;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedStorageTest {
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void findByIdsKeepsRequestOrderAcrossShards() {
+        ShardedFilmStorage storage = new ShardedFilmStorage(4, "", mapper);
+        for (int i = 1; i <= 10; i++) {
+            storage.create(film("Фильм " + i));
+        }
+
+        List<Film> found = storage.findByIds(List.of(7L, 2L, 99L, 4L, 1L));
+
+        assertEquals(List.of(7L, 2L, 4L, 1L), found.stream().map(Film::id).toList());
+        assertEquals(10, storage.findAll().size());
+        assertThrows(NotFoundException.class, () -> storage.findById(99L));
+    }
+
+    @Test
+    void topIdsAreMergedFromAllShards() {
+        ShardedFilmStorage storage = new ShardedFilmStorage(3, "", mapper);
+        for (int i = 1; i <= 12; i++) {
+            storage.create(film("Фильм " + i));
+        }
+        // Оценка растёт вместе с ID, фильм 5 не участвует
+        Map<Long, Long> scores = Map.of(3L, 10L, 4L, 40L, 5L, -1L, 9L, 90L, 10L, 40L, 12L, 5L);
+
+        List<Long> all = storage.findAll().stream().map(Film::id).toList();
+
+        List<Long> top = storage.findTopIds(all, 4, id -> scores.getOrDefault(id, 0L));
+
+        assertEquals(List.of(9L, 4L, 10L, 3L), top);
+        assertEquals(11, storage.findTopIds(all, 20, id -> id == 5 ? -1 : 0).size());
+        // Отбираются только кандидаты, которые есть в хранилище
+        assertEquals(List.of(10L, 3L),
+                storage.findTopIds(List.of(3L, 10L, 99L), 20, id -> scores.getOrDefault(id, 0L)));
+    }
+
+    @Test
+    void commonFriendsAreCollectedFromDifferentShards() {
+        ShardedUserStorage storage = new ShardedUserStorage(4, "", mapper);
+        UserService service = new UserService(storage, new Tombstones(), event -> { });
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            ids.add(service.createUser(user("user" + i + "@mail.ru")).id());
+        }
+        for (Long friendId : ids.subList(2, 6)) {
+            service.addFriend(ids.get(0), friendId);
+            service.addFriend(ids.get(1), friendId);
+        }
+
+        List<User> common = service.getCommonFriends(ids.get(0), ids.get(1));
+
+        assertEquals(Set.copyOf(ids.subList(2, 6)), Set.copyOf(common.stream().map(User::id).toList()));
+    }
+
+    @Test
+    void shardFilesRestoreStateAfterRestart(@TempDir Path dataDir) {
+        ShardedFilmStorage first = new ShardedFilmStorage(2, dataDir.toString(), mapper);
+        Film created = first.create(film("Солярис"));
+        first.create(film("Сталкер"));
+        first.update(created.withDescription("Обновлённое описание"));
+        first.close();
+
+        ShardedFilmStorage second = new ShardedFilmStorage(2, dataDir.toString(), mapper);
+
+        assertEquals("Обновлённое описание", second.findById(created.id()).description());
+        assertEquals(Duration.ofMinutes(169), second.findById(created.id()).duration());
+        assertEquals(2, second.findAll().size());
+        assertEquals(3L, second.create(film("Зеркало")).id());
+        second.close();
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Описание")
+                .releaseDate(LocalDate.of(1972, 3, 20))
+                .duration(Duration.ofMinutes(169))
+                .build();
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .email(email)
+                .login(email.substring(0, email.indexOf('@')))
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
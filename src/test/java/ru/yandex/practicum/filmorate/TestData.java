@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Общие заготовки моделей для тестов: корректные фильм и пользователь с заданным названием или логином.
+ */
+final class TestData {
+
+    private TestData() {
+    }
+
+    static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(Duration.ofMinutes(90))
+                .build();
+    }
+
+    static User user(String login) {
+        return User.builder()
+                .email(login + "@example.ru")
+                .login(login)
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
+    }
+}
@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.TieredFilmStorage;
+import ru.yandex.practicum.filmorate.storage.tiered.FilmSegment;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredStorageTest {
+
+    private static final int FILMS = 5000;
+
+    @TempDir
+    Path segmentDir;
+
+    private TieredFilmStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new TieredFilmStorage(1, segmentDir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    @Test
+    void coldFilms_evictedWithinBudgetAndReloadedOnRead() {
+        List<Film> created = createFilms();
+
+        assertTrue(storage.getEvictionCount() > 0);
+        assertTrue(storage.getHotBytes() <= 1024 * 1024);
+        assertTrue(storage.getHotCount() < FILMS);
+        assertTrue(storage.getSegmentBytes() > 0);
+        for (Film film : created) {
+            assertEquals(film, storage.findById(film.id()));
+        }
+        assertEquals(FILMS, storage.findAll().size());
+        assertEquals(FILMS, storage.findByIds(created.stream().map(Film::id).toList()).size());
+        assertTrue(storage.getHotBytes() <= 1024 * 1024);
+    }
+
+    @Test
+    void updateAndDelete_workForColdFilms() {
+        List<Film> created = createFilms();
+        Film first = created.getFirst();
+        long version = storage.getVersion(first.id());
+
+        Film updated = storage.update(first.withName("Новое название"));
+
+        assertEquals(updated, storage.findById(first.id()));
+        assertEquals(version + 1, storage.getVersion(first.id()));
+        // Вытеснение после обновления пишет в сегмент новую версию, а не старую копию
+        createFilms();
+        assertEquals("Новое название", storage.findById(first.id()).name());
+
+        Film second = created.get(1);
+        assertEquals(second, storage.delete(second.id()));
+        assertThrows(NotFoundException.class, () -> storage.findById(second.id()));
+        assertThrows(NotFoundException.class, () -> storage.delete(second.id()));
+        assertThrows(NotFoundException.class, () -> storage.update(second));
+        assertEquals(0, storage.getVersion(second.id()));
+        assertEquals(2 * FILMS - 1, storage.findAll().size());
+    }
+
+    @Test
+    void segment_roundTripsNullFieldsAndCompacts() throws Exception {
+        Path file = segmentDir.resolve("test.seg");
+        try (FilmSegment segment = new FilmSegment(file)) {
+            Film sparse = new Film(7L, "Без описания", null, null, null);
+            segment.write(sparse);
+            assertEquals(sparse, segment.read(7L));
+            assertNull(segment.read(8L));
+
+            Film large = film(8).withId(8L).withDescription("д".repeat(100_000));
+            for (int i = 0; i < 20; i++) {
+                segment.write(large.withName("Версия " + i));
+            }
+            assertEquals("Версия 19", segment.read(8L).name());
+            assertEquals(sparse, segment.read(7L));
+            // Мёртвые байты перезаписей не копятся бесконечно
+            assertTrue(segment.fileBytes() < 1024 * 1024);
+
+            segment.remove(8L);
+            assertNull(segment.read(8L));
+            assertEquals(1, segment.size());
+        }
+        assertFalse(Files.exists(file));
+    }
+
+    private List<Film> createFilms() {
+        List<Film> created = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            created.add(storage.create(film(i)));
+        }
+        return created;
+    }
+
+    private static Film film(int i) {
+        return Film.builder()
+                .name("Фильм " + i)
+                .description("Описание фильма номер " + i + ". ".repeat(100))
+                .releaseDate(LocalDate.of(2000, 1, 1).plusDays(i))
+                .duration(Duration.ofMinutes(90 + i % 60))
+                .build();
+    }
+}
@@ -4,14 +4,29 @@ import ru.yandex.practicum.filmorate.controller.*;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.yandex.practicum.filmorate.exception.GlobalExceptionHandler;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.FriendshipPath;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FeedService;
+import ru.yandex.practicum.filmorate.service.FriendGraphService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
 
+import java.time.Clock;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -20,37 +35,42 @@ class UserControllerTest {
     private UserController controller;
     private UserService service;
     private UserStorage userStorage;
+    private Tombstones tombstones;
 
     @BeforeEach
     void setUp() {
         userStorage = new InMemoryUserStorage();
-        service = new UserService(userStorage);
-        controller = new UserController(service);
+        tombstones = new Tombstones();
+        service = new UserService(userStorage, tombstones, event -> { });
+        controller = new UserController(service, new FriendGraphService(userStorage),
+                new FeedService(userStorage, Clock.systemUTC(), 100, 1000));
     }
 
     @Test
     void createUser_validUser() {
-        User user = new User();
-        user.setEmail("test@example.ru");
-        user.setLogin("Login");
-        user.setBirthday(LocalDate.of(2000, 1, 1));
-        user.setName("Name");
+        User user = User.builder()
+                .email("test@example.ru")
+                .login("Login")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .name("Name")
+                .build();
 
         User created = controller.createUser(user);
 
-        assertNotNull(created.getId());
-        assertEquals("test@example.ru", created.getEmail());
-        assertEquals("Login", created.getLogin());
-        assertEquals(LocalDate.of(2000, 1, 1), created.getBirthday());
-        assertEquals("Name", created.getName());
+        assertNotNull(created.id());
+        assertEquals("test@example.ru", created.email());
+        assertEquals("Login", created.login());
+        assertEquals(LocalDate.of(2000, 1, 1), created.birthday());
+        assertEquals("Name", created.name());
     }
 
     @Test
     void createUser_emailNull_throwsValidationException() {
-        User user = new User();
-        user.setEmail(null);
-        user.setLogin("login");
-        user.setBirthday(LocalDate.of(2000, 1, 1));
+        User user = User.builder()
+                .email(null)
+                .login("login")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.createUser(user));
         assertTrue(ex.getMessage().contains("E-mail должен быть указан"));
@@ -58,10 +78,11 @@ class UserControllerTest {
 
     @Test
     void createUser_emailNotValid() {
-        User user = new User();
-        user.setEmail("testexample.ru");
-        user.setLogin("login");
-        user.setBirthday(LocalDate.of(2000, 1, 1));
+        User user = User.builder()
+                .email("testexample.ru")
+                .login("login")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.createUser(user));
         assertTrue(ex.getMessage().contains("E-mail должен быть указан"));
@@ -69,10 +90,11 @@ class UserControllerTest {
 
     @Test
     void createUser_loginWithSpace() {
-        User user = new User();
-        user.setEmail("email@example.com");
-        user.setLogin("log in");
-        user.setBirthday(LocalDate.of(2000, 1, 1));
+        User user = User.builder()
+                .email("email@example.com")
+                .login("log in")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.createUser(user));
         assertTrue(ex.getMessage().contains("Логин не может быть пустым и не должен содержать пробелы"));
@@ -80,40 +102,58 @@ class UserControllerTest {
 
     @Test
     void createUser_birthdayInFuture() {
-        User user = new User();
-        user.setEmail("email@example.ru");
-        user.setLogin("login");
-        user.setBirthday(LocalDate.of(2030,01,01));
+        User user = User.builder()
+                .email("email@example.ru")
+                .login("login")
+                .birthday(LocalDate.of(2030,01,01))
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.createUser(user));
         assertTrue(ex.getMessage().contains("Дата рождения не может быть в будущем"));
     }
 
+    @Test
+    void createUser_reportsAllViolationsAtOnce() {
+        User user = User.builder()
+                .email("email.example.ru")
+                .login("log in")
+                .birthday(LocalDate.now().plusDays(1))
+                .build();
+
+        ValidationException ex = assertThrows(ValidationException.class, () -> controller.createUser(user));
+        assertTrue(ex.getMessage().contains("E-mail должен быть указан"));
+        assertTrue(ex.getMessage().contains("Логин не может быть пустым и не должен содержать пробелы"));
+        assertTrue(ex.getMessage().contains("Дата рождения не может быть в будущем"));
+    }
+
     @Test
     void createUser_nameNull_setsNameToLogin() {
-        User user = new User();
-        user.setEmail("email@example.ru");
-        user.setLogin("login");
-        user.setBirthday(LocalDate.of(2000, 1, 1));
-        user.setName(null);
+        User user = User.builder()
+                .email("email@example.ru")
+                .login("login")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .name(null)
+                .build();
 
         User created = controller.createUser(user);
 
-        assertEquals("login", created.getName());
+        assertEquals("login", created.name());
     }
 
     @Test
     void createUser_duplicateEmail() {
-        User user1 = new User();
-        user1.setEmail("email@example.ru");
-        user1.setLogin("login1");
-        user1.setBirthday(LocalDate.of(2025, 1, 1));
+        User user1 = User.builder()
+                .email("email@example.ru")
+                .login("login1")
+                .birthday(LocalDate.of(2025, 1, 1))
+                .build();
         controller.createUser(user1);
 
-        User user2 = new User();
-        user2.setEmail("email@example.ru");
-        user2.setLogin("login2");
-        user2.setBirthday(LocalDate.of(2025, 1, 1));
+        User user2 = User.builder()
+                .email("email@example.ru")
+                .login("login2")
+                .birthday(LocalDate.of(2025, 1, 1))
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.createUser(user2));
         assertTrue(ex.getMessage().contains("Этот E-mail уже используется"));
@@ -121,34 +161,37 @@ class UserControllerTest {
 
     @Test
     void updateUser_validUpdate() {
-        User user = new User();
-        user.setEmail("email@example.ru");
-        user.setLogin("login");
-        user.setBirthday(LocalDate.of(2000, 1, 1));
-        user.setName("Name");
+        User user = User.builder()
+                .email("email@example.ru")
+                .login("login")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .name("Name")
+                .build();
         User created = controller.createUser(user);
 
-        User update = new User();
-        update.setId(created.getId());
-        update.setEmail("newemail@example.ru");
-        update.setLogin("newlogin");
-        update.setBirthday(LocalDate.of(1999, 12, 31));
-        update.setName("New Name");
+        User update = User.builder()
+                .id(created.id())
+                .email("newemail@example.ru")
+                .login("newlogin")
+                .birthday(LocalDate.of(1999, 12, 31))
+                .name("New Name")
+                .build();
 
         User updated = controller.updateUser(update);
 
-        assertEquals("newemail@example.ru", updated.getEmail());
-        assertEquals("newlogin", updated.getLogin());
-        assertEquals(LocalDate.of(1999, 12, 31), updated.getBirthday());
-        assertEquals("New Name", updated.getName());
+        assertEquals("newemail@example.ru", updated.email());
+        assertEquals("newlogin", updated.login());
+        assertEquals(LocalDate.of(1999, 12, 31), updated.birthday());
+        assertEquals("New Name", updated.name());
     }
 
     @Test
     void updateUser_missingId() {
-        User user = new User();
-        user.setEmail("email@example.ru");
-        user.setLogin("login");
-        user.setBirthday(LocalDate.of(2000, 1, 1));
+        User user = User.builder()
+                .email("email@example.ru")
+                .login("login")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.updateUser(user));
         assertTrue(ex.getMessage().contains("Id должен быть указан"));
@@ -156,11 +199,12 @@ class UserControllerTest {
 
     @Test
     void updateUser_nonExistentId() {
-        User user = new User();
-        user.setId(2L);
-        user.setEmail("email@example.ru");
-        user.setLogin("login");
-        user.setBirthday(LocalDate.of(2000, 1, 1));
+        User user = User.builder()
+                .id(2L)
+                .email("email@example.ru")
+                .login("login")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
 
         NotFoundException ex = assertThrows(NotFoundException.class, () -> controller.updateUser(user));
         assertTrue(ex.getMessage().contains("не найден"));
@@ -168,21 +212,24 @@ class UserControllerTest {
 
     @Test
     void updateUser_emailUsedByAnotherUser() {
-        User user1 = new User();
-        user1.setEmail("email1@example.ru");
-        user1.setLogin("login1");
-        user1.setBirthday(LocalDate.of(2000, 1, 1));
+        User user1 = User.builder()
+                .email("email1@example.ru")
+                .login("login1")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
         User created1 = controller.createUser(user1);
 
-        User user2 = new User();
-        user2.setEmail("email2@example.ru");
-        user2.setLogin("login2");
-        user2.setBirthday(LocalDate.of(2000, 1, 1));
+        User user2 = User.builder()
+                .email("email2@example.ru")
+                .login("login2")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
         User created2 = controller.createUser(user2);
 
-        User update = new User();
-        update.setId(created2.getId());
-        update.setEmail("email1@example.ru");
+        User update = User.builder()
+                .id(created2.id())
+                .email("email1@example.ru")
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.updateUser(update));
         assertTrue(ex.getMessage().contains("Этот E-mail уже используется"));
@@ -190,15 +237,17 @@ class UserControllerTest {
 
     @Test
     void updateUser_loginWithSpace() {
-        User user = new User();
-        user.setEmail("email@example.ru");
-        user.setLogin("login");
-        user.setBirthday(LocalDate.of(2000, 1, 1));
+        User user = User.builder()
+                .email("email@example.ru")
+                .login("login")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
         User created = controller.createUser(user);
 
-        User update = new User();
-        update.setId(created.getId());
-        update.setLogin("invalid login");
+        User update = User.builder()
+                .id(created.id())
+                .login("invalid login")
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.updateUser(update));
         assertTrue(ex.getMessage().contains("Логин не может быть пустым"));
@@ -206,15 +255,17 @@ class UserControllerTest {
 
     @Test
     void updateUser_birthdayInFuture() {
-        User user = new User();
-        user.setEmail("email@example.ru");
-        user.setLogin("login");
-        user.setBirthday(LocalDate.of(2000, 1, 1));
+        User user = User.builder()
+                .email("email@example.ru")
+                .login("login")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
         User created = controller.createUser(user);
 
-        User update = new User();
-        update.setId(created.getId());
-        update.setBirthday(LocalDate.of(2030,01,01));
+        User update = User.builder()
+                .id(created.id())
+                .birthday(LocalDate.of(2030,01,01))
+                .build();
 
         ValidationException ex = assertThrows(ValidationException.class, () -> controller.updateUser(update));
         assertTrue(ex.getMessage().contains("Дата рождения не может быть в будущем"));
@@ -222,19 +273,208 @@ class UserControllerTest {
 
     @Test
     void updateUser_nameNull() {
-        User user = new User();
-        user.setEmail("email@example.ru");
-        user.setLogin("login");
-        user.setBirthday(LocalDate.of(2000, 1, 1));
-        user.setName("Name");
+        User user = User.builder()
+                .email("email@example.ru")
+                .login("login")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .name("Name")
+                .build();
         User created = controller.createUser(user);
 
-        User update = new User();
-        update.setId(created.getId());
-        update.setName(null);
+        User update = User.builder()
+                .id(created.id())
+                .name(null)
+                .build();
 
         User updated = controller.updateUser(update);
-        assertEquals(updated.getLogin(), updated.getName());
+        assertEquals(updated.login(), updated.name());
+    }
+
+    @Test
+    void getFriends_notModifiedUntilFriendsChange() {
+        User user = User.builder()
+                .email("user@example.ru")
+                .login("user")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
+        User created = controller.createUser(user);
+
+        User friend = User.builder()
+                .email("friend@example.ru")
+                .login("friend")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
+        User createdFriend = controller.createUser(friend);
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        controller.getFriends(created.id(), new ServletWebRequest(new MockHttpServletRequest("GET", "/"), first));
+        String etag = first.getHeader("ETag");
+
+        MockHttpServletRequest conditional = new MockHttpServletRequest("GET", "/");
+        conditional.addHeader("If-None-Match", etag);
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        assertNull(controller.getFriends(created.id(), new ServletWebRequest(conditional, notModified)));
+        assertEquals(304, notModified.getStatus());
+
+        controller.addFriend(created.id(), createdFriend.id());
+        MockHttpServletResponse modified = new MockHttpServletResponse();
+        assertEquals(1, controller.getFriends(created.id(), new ServletWebRequest(conditional, modified)).size());
+        assertEquals(200, modified.getStatus());
+    }
+
+    @Test
+    void deleteUser_removedFromFriendsLists() throws Exception {
+        User deleted = controller.createUser(User.builder()
+                .email("deleted@example.ru")
+                .login("deleted")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build());
+        User friend = controller.createUser(User.builder()
+                .email("friend@example.ru")
+                .login("friend")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build());
+        controller.addFriend(deleted.id(), friend.id());
+
+        controller.deleteUser(deleted.id());
+        assertThrows(NotFoundException.class, () -> controller.getUserById(deleted.id()));
+        assertThrows(NotFoundException.class, () -> controller.addFriend(friend.id(), deleted.id()));
+
+        tombstones.awaitCleanup(5, TimeUnit.SECONDS);
+        assertFalse(tombstones.isUserDeleted(deleted.id()));
+        assertTrue(service.getUserById(friend.id()).friends().isEmpty());
+        assertThrows(NotFoundException.class, () -> controller.deleteUser(deleted.id()));
+    }
+
+    @Test
+    void deleteUser_hiddenFromFriendsBeforeCleanup() throws Exception {
+        User deleted = controller.createUser(User.builder()
+                .email("deleted@example.ru")
+                .login("deleted")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build());
+        User friend = controller.createUser(User.builder()
+                .email("friend@example.ru")
+                .login("friend")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build());
+        controller.addFriend(deleted.id(), friend.id());
+        // Очередь очистки занята, поэтому ссылки удалённого пользователя пока остаются в хранилище
+        CountDownLatch cleanupBlocked = new CountDownLatch(1);
+        tombstones.buryUser(-1L, () -> {
+            try {
+                cleanupBlocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        controller.deleteUser(deleted.id());
+
+        assertEquals(Set.of(deleted.id()), userStorage.getById(friend.id()).friends());
+        assertTrue(service.getUserById(friend.id()).friends().isEmpty());
+        assertTrue(service.findAllUsers().iterator().next().friends().isEmpty());
+        assertTrue(service.getUsersByIds(List.of(friend.id())).getFirst().friends().isEmpty());
+
+        cleanupBlocked.countDown();
+        tombstones.awaitCleanup(5, TimeUnit.SECONDS);
+        assertTrue(userStorage.getById(friend.id()).friends().isEmpty());
+        assertFalse(tombstones.hasDeletedUsers());
+    }
+
+    @Test
+    void findUsersByIds_skipsMissingIds() {
+        User user = User.builder()
+                .email("user@example.ru")
+                .login("user")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
+        User created = controller.createUser(user);
+
+        Collection<User> found = controller.findUsersByIds(List.of(999L, created.id()));
+
+        assertEquals(1, found.size());
+        assertEquals(created.id(), found.iterator().next().id());
+    }
+
+    @Test
+    void getDistance_returnsShortestFriendChain() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            ids.add(controller.createUser(User.builder()
+                    .email("chain" + i + "@example.ru")
+                    .login("chain" + i)
+                    .birthday(LocalDate.of(2000, 1, 1))
+                    .build()).id());
+        }
+        // Цепочка 0-1-2-3-4 и короткий путь 0-5-4
+        for (int i = 0; i < 4; i++) {
+            controller.addFriend(ids.get(i), ids.get(i + 1));
+        }
+        controller.addFriend(ids.get(0), ids.get(5));
+
+        assertEquals(3, controller.getDistance(ids.get(0), ids.get(3)).distance());
+
+        controller.addFriend(ids.get(5), ids.get(4));
+        FriendshipPath path = controller.getDistance(ids.get(0), ids.get(4));
+        assertEquals(2, path.distance());
+        assertEquals(List.of(ids.get(0), ids.get(5), ids.get(4)), path.path());
+        assertEquals(0, controller.getDistance(ids.get(2), ids.get(2)).distance());
+    }
+
+    @Test
+    void getDistance_userCreatedAfterSnapshot_rebuildsGraph() {
+        // Счётчик изменений не меняется, как в окне между записью пользователя и его увеличением
+        InMemoryUserStorage lagging = new InMemoryUserStorage() {
+            @Override
+            public long getModificationCount() {
+                return 0;
+            }
+        };
+        UserService laggingService = new UserService(lagging, tombstones, event -> { });
+        FriendGraphService graphService = new FriendGraphService(lagging);
+        User first = laggingService.createUser(User.builder()
+                .email("first@example.ru").login("first").birthday(LocalDate.of(2000, 1, 1)).build());
+        assertEquals(0, graphService.getDistance(first.id(), first.id()).distance());
+
+        User second = laggingService.createUser(User.builder()
+                .email("second@example.ru").login("second").birthday(LocalDate.of(2000, 1, 1)).build());
+        laggingService.addFriend(first.id(), second.id());
+
+        assertEquals(List.of(first.id(), second.id()), graphService.getDistance(first.id(), second.id()).path());
+    }
+
+    @Test
+    void getDistance_notConnected_throwsNotFoundException() {
+        User first = controller.createUser(User.builder()
+                .email("first@example.ru").login("first").birthday(LocalDate.of(2000, 1, 1)).build());
+        User second = controller.createUser(User.builder()
+                .email("second@example.ru").login("second").birthday(LocalDate.of(2000, 1, 1)).build());
+
+        assertThrows(NotFoundException.class, () -> controller.getDistance(first.id(), second.id()));
+        assertThrows(NotFoundException.class, () -> controller.getDistance(first.id(), 999L));
+    }
+
+    @Test
+    void getFeed_rejectsCountOutsideLimits() {
+        User user = controller.createUser(User.builder()
+                .email("feed@example.ru").login("feed").birthday(LocalDate.of(2000, 1, 1)).build());
+
+        assertThrows(ValidationException.class, () -> controller.getFeed(user.id(), 0));
+        assertThrows(ValidationException.class, () -> controller.getFeed(user.id(), 501));
+        assertTrue(controller.getFeed(user.id(), 500).isEmpty());
     }
-}
 
+    @Test
+    void errorResponses_cacheOnlyMessagesWithoutIds() {
+        GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+        NotFoundException first = assertThrows(NotFoundException.class, () -> controller.getUserById(1001L));
+        NotFoundException second = assertThrows(NotFoundException.class, () -> controller.getUserById(1002L));
+        assertNotSame(handler.handleNotFound(first).getBody(), handler.handleNotFound(first).getBody());
+        assertEquals("Пользователь с id=1002 не найден", handler.handleNotFound(second).getBody().error());
+
+        ValidationException constant = new ValidationException("Этот E-mail уже используется");
+        assertSame(handler.handleValidation(constant), handler.handleValidation(constant));
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.exception.ErrorResponse;
+import ru.yandex.practicum.filmorate.exception.GlobalExceptionHandler;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.Tombstones;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Путь ответа 404 для несуществующего пользователя: сервис + обработчик исключений.
+ * ID меняется от вызова к вызову, как при переборе случайных ID ботами, поэтому сообщения не повторяются.
+ * legacy* воспроизводит прежнее поведение (исключение со стектрейсом и HashMap на каждый ответ).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotFoundPathBenchmark {
+
+    // Пользователей в хранилище нет, поэтому любой ID отсутствует
+    private static final long FIRST_MISSING_ID = 1_000_000L;
+
+    private UserService userService;
+    private long nextId = FIRST_MISSING_ID;
+    private GlobalExceptionHandler handler;
+
+    @Setup
+    public void setUp() {
+        userService = new UserService(new InMemoryUserStorage(), new Tombstones(), event -> { });
+        handler = new GlobalExceptionHandler();
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> stacklessNotFound() {
+        try {
+            userService.getUserById(nextId++);
+            throw new IllegalStateException("Пользователь не должен существовать");
+        } catch (NotFoundException e) {
+            return handler.handleNotFound(e);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, String>> legacyNotFound() {
+        try {
+            throw new LegacyNotFoundException("Пользователь с id=" + nextId++ + " не найден");
+        } catch (LegacyNotFoundException e) {
+            Map<String, String> errorBody = new HashMap<>();
+            errorBody.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorBody);
+        }
+    }
+
+    private static class LegacyNotFoundException extends RuntimeException {
+        LegacyNotFoundException(String message) {
+            super(message);
+        }
+    }
+}
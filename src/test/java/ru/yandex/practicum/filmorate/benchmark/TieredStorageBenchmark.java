@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.loadtest.ZipfSampler;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.TieredFilmStorage;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * findById при доступе по закону Ципфа: memory держит все фильмы в куче, tiered — только горячие.
+ * Режим SampleTime даёт перцентили задержки (p0.99 в отчёте JMH); занятая куча после сборки мусора
+ * печатается после заполнения хранилища и в конце прогона.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TieredStorageBenchmark {
+
+    private static final int SEQUENCE_SIZE = 1 << 16;
+
+    @Param({"memory", "tiered"})
+    public String storage;
+
+    @Param({"200000"})
+    public int films;
+
+    @Param({"0.99"})
+    public double exponent;
+
+    @Param({"8"})
+    public long heapBudgetMb;
+
+    private FilmStorage filmStorage;
+    private long[] sequence;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        long before = usedHeapAfterGc();
+        filmStorage = "tiered".equals(storage) ? new TieredFilmStorage(heapBudgetMb, "") : new InMemoryFilmStorage();
+        String description = "Описание фильма для нагрузки на хранилище. ".repeat(4);
+        for (int i = 0; i < films; i++) {
+            filmStorage.create(Film.builder()
+                    .name("Фильм " + i)
+                    .description(description + i)
+                    .releaseDate(LocalDate.of(2000, 1, 1).plusDays(i % 5000))
+                    .duration(Duration.ofMinutes(90))
+                    .build());
+        }
+        // Последовательность ID заранее, чтобы выборка по Ципфу не попадала в замер
+        ZipfSampler sampler = new ZipfSampler(films, exponent);
+        Random random = new Random(42);
+        sequence = new long[SEQUENCE_SIZE];
+        for (int i = 0; i < SEQUENCE_SIZE; i++) {
+            sequence[i] = sampler.next(random) + 1L;
+        }
+        System.out.printf("%n[%s] куча под фильмами после заполнения: %d КБ%n", storage,
+                (usedHeapAfterGc() - before) / 1024);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%n[%s] занятая куча: %d КБ", storage, usedHeapAfterGc() / 1024);
+        if (filmStorage instanceof TieredFilmStorage tiered) {
+            System.out.printf(", горячих фильмов %d (%d КБ), сегмент %d КБ, вытеснений %d", tiered.getHotCount(),
+                    tiered.getHotBytes() / 1024, tiered.getSegmentBytes() / 1024, tiered.getEvictionCount());
+            tiered.close();
+        }
+        System.out.println();
+    }
+
+    @Benchmark
+    public Film zipfianFindById() {
+        long id = sequence[cursor++ & (SEQUENCE_SIZE - 1)];
+        return filmStorage.findById(id);
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Размер и скорость кодирования/декодирования страницы фильмов в JSON, Smile и CBOR.
+ * Размеры сообщений печатаются при подготовке каждого форка.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final TypeReference<List<Film>> FILMS = new TypeReference<>() {
+    };
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private ObjectMapper mapper;
+    private List<Film> films;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        mapper = switch (format) {
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            default -> builder.build();
+        };
+        films = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            films.add(Film.builder()
+                    .id(id)
+                    .name("Фильм номер " + id)
+                    .description("Описание фильма номер " + id + ", достаточно длинное для реалистичного размера")
+                    .releaseDate(LocalDate.of(1990, 1, 1).plusDays(id))
+                    .duration(Duration.ofMinutes(80 + id))
+                    .build());
+        }
+        encoded = mapper.writeValueAsBytes(films);
+        if (!films.equals(mapper.readValue(encoded, FILMS))) {
+            throw new IllegalStateException("Формат " + format + " искажает фильмы при обратном чтении");
+        }
+        System.out.printf("%n%s: %d байт на 100 фильмов%n", format, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return mapper.writeValueAsBytes(films);
+    }
+
+    @Benchmark
+    public List<Film> decode() throws IOException {
+        return mapper.readValue(encoded, FILMS);
+    }
+}
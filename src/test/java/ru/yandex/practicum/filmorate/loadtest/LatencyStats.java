@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Задержки одного эндпоинта. Каждый поток нагрузки пишет в свой экземпляр без блокировок,
+ * в конце прогона экземпляры сливаются через merge.
+ */
+final class LatencyStats {
+
+    private long[] samples = new long[1024];
+    private int size;
+    private long errors;
+
+    void record(long nanos, boolean ok) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = nanos;
+        if (!ok) {
+            errors++;
+        }
+    }
+
+    void merge(LatencyStats other) {
+        for (int i = 0; i < other.size; i++) {
+            record(other.samples[i], true);
+        }
+        errors += other.errors;
+    }
+
+    int count() {
+        return size;
+    }
+
+    long errors() {
+        return errors;
+    }
+
+    // Перцентиль в микросекундах по методу ближайшего ранга; сортирует накопленные замеры
+    long percentileMicros(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        Arrays.sort(samples, 0, size);
+        int rank = (int) Math.ceil(percentile / 100 * size) - 1;
+        return samples[Math.max(rank, 0)] / 1_000;
+    }
+}
@@ -0,0 +1,295 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Нагрузочный прогон REST API: поднимает приложение на случайном порту, наполняет его пользователями,
+ * фильмами, лайками и дружбой со степенным распределением и проигрывает смешанную нагрузку.
+ * В конце печатает пропускную способность и перцентили задержки по каждому эндпоинту.
+ *
+ * <p>Запуск: {@code mvn -Ploadtest test-compile exec:exec -Dloadtest.args="users=5000 duration=60"}.
+ * Параметры и значения по умолчанию — в {@link Config}.
+ */
+public final class LoadTestHarness {
+
+    // Смесь запросов: вес определяет долю эндпоинта в нагрузке
+    enum Endpoint {
+        POPULAR(30),
+        FRIENDS(20),
+        COMMON_FRIENDS(10),
+        LIKE(25),
+        FILM_UPDATE(10),
+        USER_UPDATE(5);
+
+        private final int weight;
+
+        Endpoint(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    record Config(int users, int films, int likes, int friendships, int threads,
+                  int warmupSeconds, int durationSeconds, double zipfExponent, long seed) {
+
+        static Config parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("Ожидается параметр вида ключ=значение: " + arg);
+                }
+                values.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+            return new Config(
+                    Integer.parseInt(values.getOrDefault("users", "2000")),
+                    Integer.parseInt(values.getOrDefault("films", "1000")),
+                    Integer.parseInt(values.getOrDefault("likes", "20000")),
+                    Integer.parseInt(values.getOrDefault("friendships", "5000")),
+                    Integer.parseInt(values.getOrDefault("threads", "32")),
+                    Integer.parseInt(values.getOrDefault("warmup", "5")),
+                    Integer.parseInt(values.getOrDefault("duration", "30")),
+                    Double.parseDouble(values.getOrDefault("zipf", "1.1")),
+                    Long.parseLong(values.getOrDefault("seed", "42")));
+        }
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Config config;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final String baseUrl;
+    private final ZipfSampler userSampler;
+    private final ZipfSampler filmSampler;
+    private long[] userIds;
+    private long[] filmIds;
+
+    private LoadTestHarness(Config config, int port) {
+        this.config = config;
+        this.baseUrl = "http://localhost:" + port;
+        this.userSampler = new ZipfSampler(config.users(), config.zipfExponent());
+        this.filmSampler = new ZipfSampler(config.films(), config.zipfExponent());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.parse(args);
+        System.out.println("Параметры прогона: " + config);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .run("--server.port=0", "--logging.level.root=WARN", "--logging.level.org.zalando.logbook=OFF",
+                        // Вся нагрузка идёт с одного адреса — лимит на клиента исказил бы замеры
+                        "--filmorate.rate-limit.enabled=false");
+        try {
+            int port = Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+            LoadTestHarness harness = new LoadTestHarness(config, port);
+            harness.seed();
+            harness.run();
+        } finally {
+            context.close();
+        }
+    }
+
+    private void seed() throws Exception {
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(config.threads());
+        try {
+            userIds = createAll(pool, "/users", config.users(), i -> userJson(null, i));
+            filmIds = createAll(pool, "/films", config.films(), i -> filmJson(null, i, 0));
+            // Лайки и дружба: и кто, и кого выбирается по Ципфу — у популярных фильмов и активных
+            // пользователей большая часть связей
+            runAll(pool, config.likes(), random ->
+                    put("/films/" + pickFilm(random) + "/like/" + pickUser(random)));
+            runAll(pool, config.friendships(), random -> {
+                long userId = pickUser(random);
+                long friendId = pickUser(random);
+                // Дружба с самим собой не нужна — такая попытка просто пропускается
+                return userId == friendId ? 0 : put("/users/" + userId + "/friends/" + friendId);
+            });
+        } finally {
+            pool.shutdown();
+        }
+        System.out.printf("Наполнение: %d пользователей, %d фильмов, %d лайков, %d дружб за %d мс%n",
+                config.users(), config.films(), config.likes(), config.friendships(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void run() throws Exception {
+        int totalWeight = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            totalWeight += endpoint.weight;
+        }
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.warmupSeconds());
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(config.durationSeconds());
+        int weightSum = totalWeight;
+
+        ExecutorService pool = Executors.newFixedThreadPool(config.threads());
+        List<Future<Map<Endpoint, LatencyStats>>> workers = new ArrayList<>();
+        for (int t = 0; t < config.threads(); t++) {
+            Random random = new Random(config.seed() + t);
+            workers.add(pool.submit(() -> work(random, weightSum, warmupEnd, end)));
+        }
+        Map<Endpoint, LatencyStats> total = new EnumMap<>(Endpoint.class);
+        for (Future<Map<Endpoint, LatencyStats>> worker : workers) {
+            worker.get().forEach((endpoint, stats) ->
+                    total.computeIfAbsent(endpoint, e -> new LatencyStats()).merge(stats));
+        }
+        pool.shutdown();
+        report(total);
+    }
+
+    // Замкнутый цикл: каждый поток отправляет следующий запрос сразу после ответа на предыдущий
+    private Map<Endpoint, LatencyStats> work(Random random, int totalWeight, long warmupEnd, long end)
+            throws IOException, InterruptedException {
+        Map<Endpoint, LatencyStats> stats = new EnumMap<>(Endpoint.class);
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            Endpoint endpoint = pickEndpoint(random, totalWeight);
+            int status = call(endpoint, random);
+            long elapsed = System.nanoTime() - now;
+            if (now >= warmupEnd) {
+                stats.computeIfAbsent(endpoint, e -> new LatencyStats()).record(elapsed, status < 500);
+            }
+        }
+        return stats;
+    }
+
+    private int call(Endpoint endpoint, Random random) throws IOException, InterruptedException {
+        return switch (endpoint) {
+            case POPULAR -> get("/films/popular?count=10");
+            case FRIENDS -> get("/users/" + pickUser(random) + "/friends");
+            case COMMON_FRIENDS -> get("/users/" + pickUser(random) + "/friends/common/" + pickUser(random));
+            case LIKE -> put("/films/" + pickFilm(random) + "/like/" + pickUser(random));
+            case FILM_UPDATE -> {
+                int index = filmSampler.next(random);
+                yield send("PUT", "/films", filmJson(filmIds[index], index, random.nextInt(1000)));
+            }
+            case USER_UPDATE -> {
+                int index = userSampler.next(random);
+                yield send("PUT", "/users", userJson(userIds[index], index));
+            }
+        };
+    }
+
+    private void report(Map<Endpoint, LatencyStats> total) {
+        System.out.printf("%nРезультаты за %d с (%d потоков):%n", config.durationSeconds(), config.threads());
+        System.out.printf("%-16s %10s %10s %8s %10s %10s %10s%n",
+                "эндпоинт", "запросов", "в секунду", "ошибок", "p50, мкс", "p99, мкс", "p999, мкс");
+        long requests = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            LatencyStats stats = total.getOrDefault(endpoint, new LatencyStats());
+            requests += stats.count();
+            System.out.printf("%-16s %10d %10.1f %8d %10d %10d %10d%n", endpoint, stats.count(),
+                    (double) stats.count() / config.durationSeconds(), stats.errors(),
+                    stats.percentileMicros(50), stats.percentileMicros(99), stats.percentileMicros(99.9));
+        }
+        System.out.printf("%-16s %10d %10.1f%n", "ВСЕГО", requests, (double) requests / config.durationSeconds());
+    }
+
+    private Endpoint pickEndpoint(Random random, int totalWeight) {
+        int roll = random.nextInt(totalWeight);
+        for (Endpoint endpoint : Endpoint.values()) {
+            roll -= endpoint.weight;
+            if (roll < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException("Недостижимо");
+    }
+
+    private long pickUser(Random random) {
+        return userIds[userSampler.next(random)];
+    }
+
+    private long pickFilm(Random random) {
+        return filmIds[filmSampler.next(random)];
+    }
+
+    private long[] createAll(ExecutorService pool, String path, int count, IntFunction<String> body)
+            throws Exception {
+        List<Future<Long>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            futures.add(pool.submit(() -> {
+                HttpResponse<String> response = client.send(request("POST", path, body.apply(index)),
+                        HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200 && response.statusCode() != 201) {
+                    throw new IllegalStateException("Не удалось создать " + path + ": " + response.body());
+                }
+                return MAPPER.readTree(response.body()).get("id").asLong();
+            }));
+        }
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = futures.get(i).get();
+        }
+        return ids;
+    }
+
+    private void runAll(ExecutorService pool, int count, SeedStep step) throws Exception {
+        List<Future<Integer>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Random random = new Random(config.seed() * 31 + i);
+            futures.add(pool.submit(() -> step.run(random)));
+        }
+        for (Future<Integer> future : futures) {
+            future.get();
+        }
+    }
+
+    @FunctionalInterface
+    private interface SeedStep {
+        int run(Random random) throws IOException, InterruptedException;
+    }
+
+    private int get(String path) throws IOException, InterruptedException {
+        return send("GET", path, null);
+    }
+
+    private int put(String path) throws IOException, InterruptedException {
+        return send("PUT", path, null);
+    }
+
+    private int send(String method, String path, String body) throws IOException, InterruptedException {
+        return client.send(request(method, path, body), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private HttpRequest request(String method, String path, String body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path));
+        if (body == null) {
+            return builder.method(method, HttpRequest.BodyPublishers.noBody()).build();
+        }
+        return builder.header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static String userJson(Long id, int index) {
+        return "{" + (id == null ? "" : "\"id\":" + id + ",")
+                + "\"email\":\"load" + index + "@filmorate.ru\",\"login\":\"load" + index
+                + "\",\"name\":\"Пользователь " + index + "\",\"birthday\":\"1990-01-01\"}";
+    }
+
+    private static String filmJson(Long id, int index, int revision) {
+        return "{" + (id == null ? "" : "\"id\":" + id + ",")
+                + "\"name\":\"Фильм " + index + "\",\"description\":\"Описание, редакция " + revision
+                + "\",\"releaseDate\":\"2000-01-01\",\"duration\":" + (90 + index % 60) + "}";
+    }
+}
@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время от запуска JVM до первого успешного ответа и RSS процесса после него
+ * для обычного запуска и оптимизированных режимов (ленивые бины, AppCDS, AOT).
+ * Каждый режим запускается runs раз в отдельном процессе, печатаются медианы.
+ *
+ * <p>Запуск: {@code mvn -Pfast-startup package} и затем {@code mvn -Pfast-startup exec:exec}.
+ * Аргументы: путь к исполняемому jar, каталог с распакованным jar и архивом CDS, затем runs=N.
+ */
+public final class StartupBenchmark {
+
+    private static final long TIMEOUT_SECONDS = 120;
+
+    private record Mode(String name, List<String> jvmArgs, boolean extracted) {
+    }
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(args[0]);
+        Path cdsDir = Path.of(args[1]);
+        int runs = 5;
+        for (String arg : Arrays.copyOfRange(args, 2, args.length)) {
+            if (arg.startsWith("runs=")) {
+                runs = Integer.parseInt(arg.substring("runs=".length()));
+            }
+        }
+        String archive = "-XX:SharedArchiveFile=" + cdsDir.resolve("application.jsa");
+        List<Mode> modes = List.of(
+                new Mode("обычный", List.of(), false),
+                new Mode("ленивые бины", List.of("-Dspring.profiles.active=fast-startup"), false),
+                new Mode("CDS + ленивые", List.of(archive, "-Dspring.profiles.active=fast-startup"), true),
+                new Mode("AOT + CDS + ленивые",
+                        List.of(archive, "-Dspring.aot.enabled=true", "-Dspring.profiles.active=fast-startup"), true));
+
+        System.out.printf("%-22s %18s %12s%n", "режим", "до ответа, мс", "RSS, МБ");
+        for (Mode mode : modes) {
+            Path target = mode.extracted() ? cdsDir.resolve(jar.getFileName()) : jar;
+            if (!Files.exists(target)) {
+                System.out.printf("%-22s нет %s — сначала mvn -Pfast-startup package%n", mode.name(), target);
+                continue;
+            }
+            long[] millis = new long[runs];
+            long[] rss = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                long[] result = measure(target, mode.jvmArgs());
+                millis[run] = result[0];
+                rss[run] = result[1];
+            }
+            System.out.printf("%-22s %18d %12d%n", mode.name(), median(millis), median(rss) / 1024);
+        }
+    }
+
+    // Возвращает {мс до первого ответа, RSS в КБ}
+    private static long[] measure(Path jar, List<String> jvmArgs) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.addAll(List.of("-jar", jar.toString(), "--server.port=" + port, "--logging.level.root=WARN"));
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/films")).build();
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        try {
+            long deadline = started + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Приложение завершилось с кодом " + process.exitValue());
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                        return new long[]{elapsed, residentKilobytes(process.pid())};
+                    }
+                } catch (ConnectException e) {
+                    // Порт ещё не открыт
+                }
+                Thread.sleep(5);
+            }
+            throw new IllegalStateException("Приложение не ответило за " + TIMEOUT_SECONDS + " с");
+        } finally {
+            process.destroy();
+            process.waitFor(10, TimeUnit.SECONDS);
+        }
+    }
+
+    // VmRSS из /proc; на системах без procfs RSS не измеряется
+    private static long residentKilobytes(long pid) throws IOException {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        if (!Files.exists(status)) {
+            return 0;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return 0;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}